@@ -0,0 +1,97 @@
+package com.austin.inventory;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares 10k single-row inserts against the batched insert path
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkInsertBenchmarkTest {
+
+    private static final String TEST_DATABASE = "bulk-insert-test.db";
+    private static final String USER = "bulk@test.com";
+    private static final int ITEM_COUNT = 10_000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+        databaseHelper = new DatabaseHelper(context, TEST_DATABASE);
+        databaseHelper.insertUser(USER, "Password1!", "5555555555");
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void batchInsert_beatsSingleInserts() {
+        List<InventoryItem> items = new ArrayList<>(ITEM_COUNT);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            items.add(new InventoryItem(0, "Item " + i, i));
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        for (InventoryItem item : items) {
+            databaseHelper.insertInventoryItem(item.getName(), item.getQuantity(), USER);
+        }
+        long singleMs = SystemClock.elapsedRealtime() - start;
+
+        start = SystemClock.elapsedRealtime();
+        long[] ids = databaseHelper.insertInventoryItems(items, USER);
+        long batchMs = SystemClock.elapsedRealtime() - start;
+
+        Log.i("BulkInsertBenchmarkTest", ITEM_COUNT + " single inserts: " + singleMs + "ms, batch: " + batchMs + "ms");
+
+        for (long id : ids) {
+            assertTrue(id > 0);
+        }
+        assertEquals(2 * ITEM_COUNT, databaseHelper.getInventoryItemsForUser(USER).size());
+        assertTrue("Batch insert was not faster", batchMs < singleMs);
+    }
+
+    @Test
+    public void batchUpdateAndDelete_reportPerRowResults() {
+        List<InventoryItem> items = new ArrayList<>();
+        items.add(new InventoryItem(0, "Bolts", 5));
+        items.add(new InventoryItem(0, "Nuts", 7));
+        long[] ids = databaseHelper.insertInventoryItems(items, USER);
+
+        List<InventoryItem> updates = new ArrayList<>();
+        updates.add(new InventoryItem((int) ids[0], "Bolts", 50));
+        updates.add(new InventoryItem(Integer.MAX_VALUE, "Missing", 1));
+        boolean[] updated = databaseHelper.updateInventoryItems(updates);
+        assertTrue(updated[0]);
+        assertFalse(updated[1]);
+
+        boolean[] deleted = databaseHelper.deleteInventoryItems(updates);
+        assertTrue(deleted[0]);
+        assertFalse(deleted[1]);
+
+        List<InventoryItem> remaining = databaseHelper.getInventoryItemsForUser(USER);
+        assertEquals(1, remaining.size());
+        assertEquals("Nuts", remaining.get(0).getName());
+    }
+}
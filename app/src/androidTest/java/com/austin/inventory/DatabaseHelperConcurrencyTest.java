@@ -0,0 +1,178 @@
+package com.austin.inventory;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress test for the shared DatabaseHelper connection - several threads read and write at once
+ * and every operation must succeed. Also compares per-operation latency against the old
+ * open/close-per-call pattern, and checks reads on the DatabaseScheduler's read pool are not held up
+ * by a long write on its writer thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperConcurrencyTest {
+
+    private static final String TEST_DATABASE = "concurrency-test.db";
+    private static final String LEGACY_DATABASE = "concurrency-legacy-test.db";
+    private static final String USER = "stress@test.com";
+    private static final int THREADS = 8;
+    private static final int OPS_PER_THREAD = 250;
+    // Large enough that inserting it takes far longer than a page read
+    private static final int BATCH_SIZE = 50_000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+        context.deleteDatabase(LEGACY_DATABASE);
+        databaseHelper = new DatabaseHelper(context, TEST_DATABASE);
+        databaseHelper.insertUser(USER, "Password1!", "5555555555");
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DATABASE);
+        context.deleteDatabase(LEGACY_DATABASE);
+    }
+
+    @Test
+    public void concurrentReadsAndWrites_neverFail() throws Exception {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        runConcurrently(databaseHelper, failures);
+
+        assertTrue("Failures during stress run: " + failures, failures.isEmpty());
+        List<InventoryItem> items = databaseHelper.getInventoryItemsForUser(USER);
+        assertEquals(THREADS / 2 * OPS_PER_THREAD, items.size());
+    }
+
+    @Test
+    public void sharedConnection_isFasterThanOpenClosePerCall() {
+        int totalOps = THREADS * OPS_PER_THREAD;
+        long sharedPerOp = runSequential(databaseHelper, false) / totalOps;
+
+        DatabaseHelper legacyHelper = new DatabaseHelper(context, LEGACY_DATABASE);
+        legacyHelper.insertUser(USER, "Password1!", "5555555555");
+        long legacyPerOp = runSequential(legacyHelper, true) / totalOps;
+        legacyHelper.close();
+
+        Log.i("DatabaseHelperConcurrencyTest", "Shared: " + sharedPerOp + "ns/op, open/close: " + legacyPerOp + "ns/op");
+        assertTrue("Expected shared connection to beat open/close per call", sharedPerOp < legacyPerOp);
+    }
+
+    @Test
+    public void readsProceedDuringLongBatchWrite() throws Exception {
+        List<InventoryItem> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new InventoryItem(0, "Batch " + i, i));
+        }
+        DatabaseScheduler scheduler = new DatabaseScheduler(DatabaseScheduler.READ_THREADS);
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        AtomicLong writeFinished = new AtomicLong();
+        Future<?> write = scheduler.write(() -> {
+            writeStarted.countDown();
+            databaseHelper.insertInventoryItems(batch, USER);
+            writeFinished.set(System.nanoTime());
+        });
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+
+        AtomicLong readsFinished = new AtomicLong();
+        AtomicInteger rowsSeen = new AtomicInteger();
+        Future<?> reads = scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE, () -> {
+            for (int i = 0; i < 10; i++) {
+                rowsSeen.addAndGet(databaseHelper.getInventoryPage(USER, InventorySort.NAME, null, InventoryContract.PAGE_SIZE).size());
+            }
+            readsFinished.set(System.nanoTime());
+        });
+        reads.get(1, TimeUnit.MINUTES);
+        write.get(5, TimeUnit.MINUTES);
+        assertTrue(scheduler.shutdown(5, TimeUnit.SECONDS));
+
+        Log.i("DatabaseHelperConcurrencyTest", "Reads finished " + TimeUnit.NANOSECONDS.toMillis(writeFinished.get() - readsFinished.get()) + "ms before the batch write");
+        assertTrue("Reads waited for the batch write", readsFinished.get() < writeFinished.get());
+        // The batch is one transaction, so the reads see none of it
+        assertEquals(0, rowsSeen.get());
+        assertEquals(BATCH_SIZE, databaseHelper.getInventoryItemsForUser(USER).size());
+    }
+
+    /**
+     * Half of the threads insert items while the other half read the full list
+     */
+    private void runConcurrently(DatabaseHelper helper, ConcurrentLinkedQueue<Throwable> failures) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            final boolean writer = t % 2 == 0;
+            final int threadIndex = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPS_PER_THREAD; i++) {
+                        if (writer) {
+                            helper.insertInventoryItem("Item " + threadIndex + "-" + i, i, USER);
+                        } else {
+                            helper.getInventoryItemsForUser(USER);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        executor.shutdown();
+    }
+
+    /**
+     * Same mix of reads and writes on one thread, optionally closing the database after every call
+     * the way each DatabaseHelper method used to
+     * @return total nanoseconds spent
+     */
+    private long runSequential(DatabaseHelper helper, boolean closeEachCall) {
+        long total = 0;
+        for (int i = 0; i < THREADS * OPS_PER_THREAD; i++) {
+            long begin = System.nanoTime();
+            if (i % 2 == 0) {
+                helper.insertInventoryItem("Sequential " + i, i, USER);
+            } else {
+                helper.getInventoryItemsForUser(USER);
+            }
+            if (closeEachCall) {
+                helper.close();
+            }
+            total += System.nanoTime() - begin;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,105 @@
+package com.austin.inventory;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Upgrades a large database built with the shipped version 5 schema and checks that every row
+ * survives and the upgrade stays within a time budget.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseMigrationTest {
+
+    private static final String TEST_DATABASE = "migration-test.db";
+    private static final String USER = "migrate@test.com";
+    private static final int ITEM_COUNT = 50_000;
+    private static final long MAX_MIGRATION_MS = 5_000;
+
+    private Context context;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+        createVersion5Database();
+    }
+
+    @After
+    public void tearDown() {
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void upgradeFromVersion5_preservesDataWithinBudget() {
+        DatabaseHelper databaseHelper = new DatabaseHelper(context, TEST_DATABASE);
+
+        long start = SystemClock.elapsedRealtime();
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.i("DatabaseMigrationTest", "Upgraded " + ITEM_COUNT + " rows in " + elapsed + "ms");
+
+        assertEquals(InventoryContract.DATABASE_VERSION, db.getVersion());
+        assertTrue("Migration took " + elapsed + "ms", elapsed < MAX_MIGRATION_MS);
+
+        assertTrue(databaseHelper.checkUserEmail(USER));
+        assertEquals(ITEM_COUNT, databaseHelper.getInventoryItemsForUser(USER).size());
+
+        try (Cursor cursor = db.rawQuery("SELECT SUM(quantity) FROM inventory", null)) {
+            cursor.moveToFirst();
+            long expected = (long) ITEM_COUNT * (ITEM_COUNT - 1) / 2;
+            assertEquals(expected, cursor.getLong(0));
+        }
+
+        // Rows that existed before the upgrade are in the full-text index
+        assertEquals(11, databaseHelper.searchInventory(USER, "item 4999", InventorySort.NAME, null).size());
+
+        // The summary row is backfilled from the upgraded rows
+        InventorySummary summary = databaseHelper.getInventorySummary(USER);
+        assertEquals(ITEM_COUNT, summary.itemCount);
+        assertEquals((long) ITEM_COUNT * (ITEM_COUNT - 1) / 2, summary.totalUnits);
+
+        databaseHelper.close();
+    }
+
+    /**
+     * Build the schema exactly as version 5 of the app shipped it
+     */
+    private void createVersion5Database() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(TEST_DATABASE), null);
+        db.execSQL("CREATE TABLE allusers(email TEXT PRIMARY KEY, password TEXT, phone TEXT, two_fa_enabled INTEGER DEFAULT 0)");
+        db.execSQL("CREATE TABLE inventory(id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, quantity INTEGER, user_email TEXT, FOREIGN KEY(user_email) REFERENCES allusers(email))");
+        db.execSQL("INSERT INTO allusers(email, password, phone) VALUES (?, ?, ?)", new Object[]{USER, "hash", "5555555555"});
+
+        db.beginTransaction();
+        try {
+            SQLiteStatement insert = db.compileStatement("INSERT INTO inventory(name, quantity, user_email) VALUES (?, ?, ?)");
+            for (int i = 0; i < ITEM_COUNT; i++) {
+                insert.bindString(1, "Item " + i);
+                insert.bindLong(2, i);
+                insert.bindString(3, USER);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        db.setVersion(5);
+        db.close();
+    }
+}
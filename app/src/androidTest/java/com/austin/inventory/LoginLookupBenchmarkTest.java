@@ -0,0 +1,98 @@
+package com.austin.inventory;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the database work of a login done as four separate lookups against the single getUserRecord query
+ * Password hashing is left out - it costs the same either way
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoginLookupBenchmarkTest {
+
+    private static final String TEST_DATABASE = "login-lookup-test.db";
+    private static final String USER = "login@test.com";
+    private static final String HASH = "pbkdf2$1000$00$00";
+    private static final int LOGINS = 2_000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+        databaseHelper = new DatabaseHelper(context, TEST_DATABASE);
+        for (int i = 0; i < 1_000; i++) {
+            databaseHelper.insertUser("user" + i + "@test.com", HASH, "5555555555");
+        }
+        databaseHelper.insertUser(USER, HASH, "5555555555");
+        databaseHelper.updateUser2FASetting(USER, true);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void userRecord_matchesSeparateLookups() {
+        UserRecord record = databaseHelper.getUserRecord(USER);
+
+        assertNotNull(record);
+        assertEquals(HASH, record.passwordHash);
+        assertEquals(databaseHelper.getUserPhoneNumber(USER), record.phone);
+        assertEquals(databaseHelper.is2FAEnabled(USER), record.twoFactorEnabled);
+        assertNull(databaseHelper.getUserRecord("missing@test.com"));
+    }
+
+    @Test
+    public void singleQuery_beatsSeparateLookups() {
+        // Warm up both paths so statement caches are filled
+        separateLookups();
+        databaseHelper.getUserRecord(USER);
+
+        long start = SystemClock.elapsedRealtime();
+        for (int i = 0; i < LOGINS; i++) {
+            separateLookups();
+        }
+        long separateMs = SystemClock.elapsedRealtime() - start;
+
+        start = SystemClock.elapsedRealtime();
+        for (int i = 0; i < LOGINS; i++) {
+            databaseHelper.getUserRecord(USER);
+        }
+        long singleMs = SystemClock.elapsedRealtime() - start;
+
+        Log.i("LoginLookupBenchmarkTest", LOGINS + " logins - separate lookups: " + separateMs + "ms, getUserRecord: " + singleMs + "ms");
+        assertTrue("Single query was not faster", singleMs < separateMs);
+    }
+
+    /**
+     * The lookups the login path used to make, including the SELECT * credential check
+     */
+    private void separateLookups() {
+        assertTrue(databaseHelper.checkUserEmail(USER));
+        try (Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("SELECT * FROM allusers WHERE email = ? AND password = ?", new String[]{USER, HASH})) {
+            assertTrue(cursor.getCount() > 0);
+        }
+        assertTrue(databaseHelper.is2FAEnabled(USER));
+        assertNotNull(databaseHelper.getUserPhoneNumber(USER));
+    }
+}
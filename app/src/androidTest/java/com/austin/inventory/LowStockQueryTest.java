@@ -0,0 +1,80 @@
+package com.austin.inventory;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the low stock query against per-item and global thresholds and that it runs on the indexes
+ */
+@RunWith(AndroidJUnit4.class)
+public class LowStockQueryTest {
+
+    private static final String TEST_DATABASE = "low-stock-test.db";
+    private static final String USER = "low@test.com";
+    private static final int DEFAULT_THRESHOLD = 2;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+        databaseHelper = new DatabaseHelper(context, TEST_DATABASE);
+        databaseHelper.insertUser(USER, "Password1!", "5555555555");
+        databaseHelper.insertUser("other@test.com", "Password1!", "5555555555");
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void lowStock_usesItemThresholdBeforeGlobalDefault() {
+        List<InventoryItem> items = new ArrayList<>();
+        items.add(new InventoryItem(0, "Default low", 2));
+        items.add(new InventoryItem(0, "Default ok", 3));
+        items.add(new InventoryItem(0, "Own low", 10, 10));
+        items.add(new InventoryItem(0, "Own ok", 1, 0));
+        databaseHelper.insertInventoryItems(items, USER);
+        databaseHelper.insertInventoryItems(items, "other@test.com");
+
+        List<InventoryItem> low = databaseHelper.getLowStockItems(USER, DEFAULT_THRESHOLD);
+
+        assertEquals(2, low.size());
+        assertEquals("Default low", low.get(0).getName());
+        assertEquals("Own low", low.get(1).getName());
+        assertEquals(10, low.get(1).getReorderThreshold());
+        assertEquals(2, databaseHelper.countLowStockItems(USER, DEFAULT_THRESHOLD));
+    }
+
+    @Test
+    public void lowStock_searchesIndexes() {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN SELECT id FROM inventory WHERE user_email = ? AND quantity - reorder_threshold <= 0"
+                + " UNION ALL SELECT id FROM inventory WHERE user_email = ? AND reorder_threshold IS NULL AND quantity <= ?", new String[]{USER, USER, "2"})) {
+            while (cursor.moveToNext()) {
+                plan.append(cursor.getString(cursor.getColumnCount() - 1)).append('\n');
+            }
+        }
+
+        assertTrue(plan.toString(), plan.toString().contains("idx_inventory_user_shortfall"));
+        assertTrue(plan.toString(), plan.toString().contains("idx_inventory_user_threshold"));
+    }
+}
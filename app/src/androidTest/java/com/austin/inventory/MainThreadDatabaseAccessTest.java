@@ -0,0 +1,75 @@
+package com.austin.inventory;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DatabaseHelper calls fail on the main thread once the MainThreadIoGuard is in THROW mode, and still
+ * work from a background thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainThreadDatabaseAccessTest {
+
+    private static final String TEST_DATABASE = "main-thread-test.db";
+    private static final String USER = "guard@test.com";
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+    private MainThreadIoGuard guard;
+    private MainThreadIoGuard.Mode previousMode;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(TEST_DATABASE);
+        databaseHelper = new DatabaseHelper(context, TEST_DATABASE);
+        guard = MainThreadIoGuard.getInstance();
+        previousMode = guard.getMode();
+        guard.setMode(MainThreadIoGuard.Mode.THROW);
+        guard.reset();
+    }
+
+    @After
+    public void tearDown() {
+        guard.setMode(previousMode);
+        guard.reset();
+        databaseHelper.close();
+        context.deleteDatabase(TEST_DATABASE);
+    }
+
+    @Test
+    public void mainThreadCall_throwsAndIsReported() {
+        AtomicReference<MainThreadIoGuard.Violation> caught = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            try {
+                databaseHelper.checkUserEmail(USER);
+            } catch (MainThreadIoGuard.Violation violation) {
+                caught.set(violation);
+            }
+        });
+
+        assertNotNull(caught.get());
+        assertTrue(caught.get().getCallSite(), caught.get().getCallSite().startsWith(MainThreadDatabaseAccessTest.class.getName()));
+        assertFalse(guard.report().isEmpty());
+    }
+
+    @Test
+    public void backgroundCall_isAllowed() {
+        assertTrue(databaseHelper.insertUser(USER, "hash", "5555555555"));
+        assertTrue(databaseHelper.checkUserEmail(USER));
+        assertTrue(guard.report().isEmpty());
+    }
+}
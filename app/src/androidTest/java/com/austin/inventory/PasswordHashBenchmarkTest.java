@@ -0,0 +1,53 @@
+package com.austin.inventory;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reports password hash latency on the device at several cost settings, and what calibrate() picks
+ */
+@RunWith(AndroidJUnit4.class)
+public class PasswordHashBenchmarkTest {
+
+    private static final int[] ITERATIONS = {10_000, 50_000, 100_000, 200_000, 400_000};
+    private static final int RUNS = 3;
+    private static final long TARGET_MS = 250;
+
+    @Test
+    public void reportHashLatency() {
+        for (int iterations : ITERATIONS) {
+            Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(iterations);
+            hasher.hash("warm up");
+
+            long start = SystemClock.elapsedRealtime();
+            for (int i = 0; i < RUNS; i++) {
+                hasher.hash("Password1!");
+            }
+            long averageMs = (SystemClock.elapsedRealtime() - start) / RUNS;
+            Log.i("PasswordHashBenchmarkTest", iterations + " iterations: " + averageMs + "ms per hash");
+        }
+    }
+
+    @Test
+    public void calibratedCost_isNearTarget() {
+        int iterations = Pbkdf2PasswordHasher.calibrate(TARGET_MS);
+        Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(iterations);
+
+        long start = SystemClock.elapsedRealtime();
+        String encoded = hasher.hash("Password1!");
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        Log.i("PasswordHashBenchmarkTest", "Calibrated to " + iterations + " iterations, hash took " + elapsed + "ms");
+
+        assertTrue(hasher.verify("Password1!", encoded));
+        // Generous bounds - the point is that the cost tracks the device, not exact timing
+        assertTrue("Hash took " + elapsed + "ms", iterations == Pbkdf2PasswordHasher.MIN_ITERATIONS || elapsed > TARGET_MS / 4);
+        assertTrue("Hash took " + elapsed + "ms", elapsed < TARGET_MS * 4);
+    }
+}
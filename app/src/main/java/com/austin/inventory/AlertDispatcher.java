@@ -0,0 +1,226 @@
+/**
+ * AlertDispatcher.java
+ *
+ * This class queues low-stock and out-of-stock alerts and sends them as a single SMS digest, so a
+ * burst of taps during a busy shift becomes one text instead of one per item.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Alerts are deduplicated per item (the latest quantity wins, and a quantity already sent is not
+ * sent again until the item is restocked) and at most one digest is sent per
+ * window. The first alert after a quiet window goes out straight away; anything reported while a
+ * window is running waits for it to end. The recipient's phone number is looked up once per user
+ * and cached until forgetRecipient() is called - a user with no number is looked up again each time.
+ */
+
+package com.austin.inventory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+public class AlertDispatcher {
+
+    /**
+     * Sends a text message - called on the sender executor
+     */
+    public interface SmsTransport {
+        void send(String phoneNumber, String message);
+    }
+
+    /**
+     * Finds the phone number alerts for a user are sent to
+     */
+    public interface RecipientLookup {
+        String getPhoneNumber(String userEmail);
+    }
+
+    static final String PREFIX = "Streamline Inventory: ";
+
+    private final SmsTransport transport;
+    private final RecipientLookup recipientLookup;
+    private final ScheduledExecutorService scheduler;
+    private final Executor sender;
+    private final LongSupplier windowMs;
+
+    // Latest alert per item id for each user, in the order the items were first reported
+    private final Map<String, LinkedHashMap<Integer, Alert>> pending = new HashMap<>();
+    // Phone number per user - only numbers that were found
+    private final Map<String, String> recipients = new HashMap<>();
+    // Quantity each item was last alerted at - cleared by cancel()
+    private final Map<Integer, Integer> sentQuantities = new HashMap<>();
+    private ScheduledFuture<?> scheduledDigest;
+    private boolean digestSent;
+    private long lastSentMs;
+
+    /**
+     * @param transport sends the digest
+     * @param recipientLookup finds a user's phone number - called on the sender executor until a number
+     * is found, and again after forgetRecipient()
+     * @param scheduler times the digests - only hands each one to the sender, so it can be shared by other timers
+     * @param sender looks up the recipient and sends each digest
+     * @param windowMs minimum time between digests, read each time one is scheduled
+     */
+    public AlertDispatcher(SmsTransport transport, RecipientLookup recipientLookup, ScheduledExecutorService scheduler, Executor sender,
+                           LongSupplier windowMs) {
+        this.transport = transport;
+        this.recipientLookup = recipientLookup;
+        this.scheduler = scheduler;
+        this.sender = sender;
+        this.windowMs = windowMs;
+    }
+
+    /**
+     * Queue an alert for an item that has reached its threshold or run out
+     * @param userEmail email of user the item belongs to
+     * @param itemId id of item
+     * @param itemName name shown in the message
+     * @param quantity current quantity, 0 for out of stock
+     */
+    public synchronized void report(String userEmail, int itemId, String itemName, int quantity) {
+        LinkedHashMap<Integer, Alert> alerts = pending.get(userEmail);
+        Integer sentQuantity = sentQuantities.get(itemId);
+        if (sentQuantity != null && sentQuantity == quantity && (alerts == null || !alerts.containsKey(itemId))) {
+            // The user already has a text saying exactly this
+            return;
+        }
+        if (alerts == null) {
+            alerts = new LinkedHashMap<>();
+            pending.put(userEmail, alerts);
+        }
+        alerts.put(itemId, new Alert(itemId, itemName, quantity));
+
+        if (scheduledDigest == null) {
+            long delay = !digestSent ? 0 : Math.max(0, lastSentMs + windowMs.getAsLong() - now());
+            scheduledDigest = scheduler.schedule(this::sendDigests, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Drop a queued alert for an item that has been restocked before the digest went out
+     * @param itemId id of item
+     */
+    public synchronized void cancel(int itemId) {
+        for (LinkedHashMap<Integer, Alert> alerts : pending.values()) {
+            alerts.remove(itemId);
+        }
+        sentQuantities.remove(itemId);
+    }
+
+    /**
+     * Look a user's phone number up again before their next digest - call when the number or their
+     * SMS setting changes
+     * @param userEmail email of user
+     */
+    public void forgetRecipient(String userEmail) {
+        synchronized (recipients) {
+            recipients.remove(userEmail);
+        }
+    }
+
+    /**
+     * Send one message per user with everything queued since the last digest
+     */
+    private void sendDigests() {
+        Map<String, List<Alert>> batch = new HashMap<>();
+        synchronized (this) {
+            scheduledDigest = null;
+            for (Map.Entry<String, LinkedHashMap<Integer, Alert>> entry : pending.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    batch.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
+                }
+                for (Alert alert : entry.getValue().values()) {
+                    sentQuantities.put(alert.itemId, alert.quantity);
+                }
+            }
+            pending.clear();
+            if (batch.isEmpty()) {
+                return;
+            }
+            digestSent = true;
+            lastSentMs = now();
+        }
+
+        for (Map.Entry<String, List<Alert>> entry : batch.entrySet()) {
+            sender.execute(() -> {
+                String phoneNumber = getRecipient(entry.getKey());
+                if (phoneNumber != null) {
+                    transport.send(phoneNumber, formatDigest(entry.getValue()));
+                }
+            });
+        }
+    }
+
+    private String getRecipient(String userEmail) {
+        synchronized (recipients) {
+            String phoneNumber = recipients.get(userEmail);
+            if (phoneNumber == null) {
+                phoneNumber = recipientLookup.getPhoneNumber(userEmail);
+                if (phoneNumber != null) {
+                    recipients.put(userEmail, phoneNumber);
+                }
+            }
+            return phoneNumber;
+        }
+    }
+
+    /**
+     * Build the message text - a single alert keeps the wording of the old per-item texts
+     * @param alerts alerts for one user, in the order reported
+     * @return message to send
+     */
+    static String formatDigest(List<Alert> alerts) {
+        if (alerts.size() == 1) {
+            Alert alert = alerts.get(0);
+            return alert.quantity == 0 ?
+                    PREFIX + "Out of inventory for " + alert.itemName :
+                    PREFIX + "Low inventory alert - " + alert.itemName + " is down to " + alert.quantity;
+        }
+
+        StringBuilder out = new StringBuilder();
+        StringBuilder low = new StringBuilder();
+        for (Alert alert : alerts) {
+            if (alert.quantity == 0) {
+                out.append(out.length() == 0 ? "" : ", ").append(alert.itemName);
+            } else {
+                low.append(low.length() == 0 ? "" : ", ").append(alert.itemName).append(" (").append(alert.quantity).append(')');
+            }
+        }
+
+        StringBuilder message = new StringBuilder(PREFIX).append(alerts.size()).append(" items need restocking.");
+        if (out.length() > 0) {
+            message.append(" Out: ").append(out).append('.');
+        }
+        if (low.length() > 0) {
+            message.append(" Low: ").append(low).append('.');
+        }
+        return message.toString();
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Latest state of one item waiting to be sent
+     */
+    static final class Alert {
+        final int itemId;
+        final String itemName;
+        final int quantity;
+
+        Alert(int itemId, String itemName, int quantity) {
+            this.itemId = itemId;
+            this.itemName = itemName;
+            this.quantity = quantity;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * AppExecutors.java
+ *
+ * This class holds the executors shared by the whole app - a DatabaseScheduler with a read pool
+ * and a single writer for database work, one for CPU work such as list diffs, one for timers that
+ * must fire on time, and one that posts results back to the main thread.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Utilizes executor service for Asynchronous tasks
+ * Documentation: https://developer.android.com/reference/java/util/concurrent/ExecutorService
+ */
+
+package com.austin.inventory;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+public class AppExecutors {
+
+    private static volatile AppExecutors instance;
+
+    private final DatabaseScheduler database;
+    // Kept apart from the database threads so a large diff never delays a query
+    private final ExecutorService computation;
+    // Only hands work on to other executors, so a timer never waits behind a long write
+    private final ScheduledExecutorService timers;
+    private final Executor mainThread;
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private AppExecutors() {
+        database = new DatabaseScheduler(DatabaseScheduler.READ_THREADS);
+        computation = Executors.newSingleThreadExecutor();
+        timers = Executors.newSingleThreadScheduledExecutor();
+        Handler handler = new Handler(Looper.getMainLooper());
+        mainThread = handler::post;
+    }
+
+    /**
+     * The database writer thread as a scheduler, for delayed writes such as buffered quantity changes
+     */
+    public ScheduledExecutorService databaseWriter() {
+        return database.writer();
+    }
+
+    /**
+     * The database read pool as an Executor, for BACKGROUND reads that deliver their own results
+     * Anything the work throws is logged
+     */
+    public Executor databaseReader() {
+        return work -> database.read(DatabaseScheduler.Priority.BACKGROUND, deliver(() -> {
+            work.run();
+            return null;
+        }, null));
+    }
+
+    /**
+     * Scheduler for timers that are not database writes, such as alert digests - a task must only
+     * hand its work to another executor, never touch the database itself
+     */
+    public ScheduledExecutorService timers() {
+        return timers;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Run a database read (or other disk work that does not write the database) on the read pool
+     * and deliver the result on the main thread - reads never wait for a write to finish
+     * @param priority USER_VISIBLE for anything a screen is waiting on
+     * @param work work to run - skipped if the callback has been cancelled by the time it starts
+     * @param callback receives the result, or what the work threw, unless it has been cancelled
+     */
+    public <T> void runRead(@NonNull DatabaseScheduler.Priority priority, @NonNull Supplier<T> work, @NonNull ResultCallback<T> callback) {
+        Runnable read = deliver(work, callback);
+        database.read(priority, () -> {
+            if (!callback.isCancelled()) {
+                read.run();
+            }
+        });
+    }
+
+    /**
+     * Run a database write on the writer thread, after every write submitted before it, and deliver
+     * the result on the main thread - the write runs even if the callback is cancelled
+     * @param work write to run
+     * @param callback receives the result, or what the work threw, unless it has been cancelled - may
+     *                 be null for fire-and-forget work
+     */
+    public <T> void runWrite(@NonNull Supplier<T> work, @Nullable ResultCallback<T> callback) {
+        database.write(deliver(work, callback));
+    }
+
+    /**
+     * Wrap work so its result, or the exception it threw, reaches the callback on the main thread
+     * The executors' futures would keep a failure to themselves, so it is logged here. An Error is
+     * still rethrown on the main thread - the process cannot carry on after one
+     */
+    private <T> Runnable deliver(Supplier<T> work, @Nullable ResultCallback<T> callback) {
+        return () -> {
+            T result;
+            try {
+                result = work.get();
+            } catch (RuntimeException e) {
+                Log.e("AppExecutors", "Background work failed", e);
+                if (callback != null) {
+                    mainThread.execute(() -> {
+                        if (!callback.isCancelled()) {
+                            callback.onError(e);
+                        }
+                    });
+                }
+                return;
+            } catch (Error e) {
+                mainThread.execute(() -> {
+                    throw e;
+                });
+                return;
+            }
+            if (callback != null) {
+                mainThread.execute(() -> {
+                    if (!callback.isCancelled()) {
+                        callback.onResult(result);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Run CPU-bound work off the main thread and deliver the result on the main thread
+     * @param work computation to run - must not touch the database
+     * @param callback receives the result, or what the work threw, unless it has been cancelled
+     */
+    public <T> void runComputation(@NonNull Supplier<T> work, @NonNull ResultCallback<T> callback) {
+        computation.execute(deliver(work, callback));
+    }
+}
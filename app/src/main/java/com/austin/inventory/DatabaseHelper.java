@@ -8,7 +8,14 @@
  * Author: Austin Henley
  * Created on: 12/6/2023
  *
- * Note: This class uses SQLite for database operations and interacts with the InventoryItem model
+ * Note: This class uses SQLite for database operations and interacts with the InventoryItem model.
+ * Table names and shared SQL live in InventoryContract so the JDBC store used for off-device
+ * benchmarks runs the same queries.
+ *
+ * A single process-wide instance is shared through getInstance() and the underlying database stays
+ * open for the lifetime of the app. Write-ahead logging is enabled so reads run on their own pooled
+ * connections and do not block on (or get closed by) writes running on other threads.
+ * Documentation: https://developer.android.com/reference/android/database/sqlite/SQLiteOpenHelper#setWriteAheadLoggingEnabled(boolean)
  */
 
 package com.austin.inventory;
@@ -16,56 +23,114 @@ package com.austin.inventory;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static com.austin.inventory.InventoryContract.*;
 
-public class DatabaseHelper extends SQLiteOpenHelper {
+public class DatabaseHelper extends SQLiteOpenHelper implements InventoryStore, UserStore {
 
     private static final String DATABASE_NAME = "InventoryApp.db";
-    private static final int DATABASE_VERSION = 5;
+    private static volatile DatabaseHelper instance;
 
-    // Users table
-    private static final String TABLE_USERS = "allusers";
-    private static final String COLUMN_EMAIL = "email";
-    private static final String COLUMN_PASSWORD = "password";
-    private static final String COLUMN_PHONE = "phone";
-    private static final String COLUMN_2FA_ENABLED = "two_fa_enabled";
+    // Latency of every call, shown on the debug metrics screen
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final MainThreadIoGuard mainThreadGuard = MainThreadIoGuard.getInstance();
 
-    // Inventory table
-    private static final String TABLE_INVENTORY = "inventory";
-    private static final String COLUMN_ID = "id";
-    private static final String COLUMN_NAME = "name";
-    private static final String COLUMN_QUANTITY = "quantity";
-    private static final String COLUMN_USER_EMAIL = "user_email";
+    /**
+     * Get the shared helper for the app - the database is opened once and never closed by callers
+     * @param context any context, only the application context is retained
+     * @return process-wide DatabaseHelper
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null) {
+                    instance = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+                }
+            }
+        }
+        return instance;
+    }
 
-    public DatabaseHelper(@Nullable Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    /**
+     * Create a helper for a specific database file - used directly only by tests
+     * @param context context used to locate the database
+     * @param databaseName name of the database file
+     */
+    DatabaseHelper(@Nullable Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        // WAL gives each reader thread its own connection from the pool
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
-        // Create Users Table
-        db.execSQL("CREATE TABLE " + TABLE_USERS + "(" + COLUMN_EMAIL + " TEXT PRIMARY KEY, " + COLUMN_PASSWORD + " TEXT, " + COLUMN_PHONE + " TEXT, " + COLUMN_2FA_ENABLED + " INTEGER DEFAULT 0)");
-
-        // Create inventory table
-        db.execSQL("CREATE TABLE " + TABLE_INVENTORY + "(" + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " + COLUMN_NAME + " TEXT, " + COLUMN_QUANTITY + " INTEGER, " + COLUMN_USER_EMAIL + " TEXT, " + "FOREIGN KEY(" + COLUMN_USER_EMAIL + ") REFERENCES " + TABLE_USERS + "(" + COLUMN_EMAIL + "))");
+        // Fresh installs build the version 5 schema and then take the same migration path as upgrades
+        DatabaseMigrations.createBaseSchema(db::execSQL);
+        migrate(db, DatabaseMigrations.BASE_VERSION, DATABASE_VERSION);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < DatabaseMigrations.BASE_VERSION) {
+            // Pre-release schemas have no migration path
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_INVENTORY);
+            onCreate(db);
+            return;
+        }
 
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_INVENTORY);
+        migrate(db, oldVersion, newVersion);
+    }
 
-        onCreate(db);
+    /**
+     * Run every migration step between two versions in order, each in its own transaction
+     * @param db database being migrated
+     * @param fromVersion current schema version
+     * @param toVersion target schema version
+     */
+    private static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        for (int version = fromVersion; version < toVersion; version++) {
+            DatabaseMigrations.Migration migration = DatabaseMigrations.get(version);
+
+            long start = SystemClock.elapsedRealtime();
+            db.beginTransaction();
+            try {
+                migration.migrate(db::execSQL);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            Log.i("DatabaseHelper", "Migrated database from version " + version + " to " + (version + 1) + " in " + (SystemClock.elapsedRealtime() - start) + "ms");
+        }
+    }
+
+    /**
+     * Start timing a database call and check it against the MainThreadIoGuard - in LOG mode a call
+     * on the main thread is logged with its call site, in THROW mode it fails
+     * @param operation name of the calling method
+     * @return System.nanoTime() to pass to MetricsRegistry.recordSince when the call finishes
+     */
+    private long startCall(String operation) {
+        MainThreadIoGuard.Violation violation = mainThreadGuard.check(operation);
+        if (violation != null) {
+            Log.w("DatabaseHelper", violation.getMessage(), violation);
+        }
+        return System.nanoTime();
     }
 
     //region User Operations
@@ -73,55 +138,85 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     /**
      * Insert user into table
      * @param email email of user being inserted
-     * @param password password of user being inserted
+     * @param passwordHash encoded hash from a PasswordHasher - never the plain password
      * @param phone phone number of user being inserted
      * @return "true" if successful, "false" if failed
      */
-    public boolean insertUser(String email, String password, String phone) {
-        String hashedPassword = hashPassword(password);
-        if (hashedPassword == null) {
-            Log.e("DatabaseHelper", "Failed to hash password for user " + email);
-            return false;
+    @Override
+    public boolean insertUser(String email, String passwordHash, String phone) {
+        long start = startCall("insertUser");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(COLUMN_EMAIL, email);
+            contentValues.put(COLUMN_PASSWORD, passwordHash);
+            contentValues.put(COLUMN_PHONE, phone);
+            long result = db.insert(TABLE_USERS, null, contentValues);
+            return result != -1;
+        } finally {
+            metrics.recordSince("db.insertUser", start);
         }
-
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(COLUMN_EMAIL, email);
-        contentValues.put(COLUMN_PASSWORD, hashedPassword);
-        contentValues.put(COLUMN_PHONE, phone);
-        long result = db.insert(TABLE_USERS, null, contentValues);
-        db.close();
-        return result != -1;
     }
 
+    /**
+     * Check if a user with this email is registered
+     * @param email email being checked
+     * @return "true" if the user exists, "false" if not
+     */
+    @Override
     public boolean checkUserEmail(String email) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ?", new String[]{email});
-        boolean exists = cursor.getCount() > 0;
-        cursor.close();
-        db.close();
-        return exists;
+        long start = startCall("checkUserEmail");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_USER_EXISTS, new String[]{email});
+            boolean exists = cursor.moveToFirst();
+            cursor.close();
+            return exists;
+        } finally {
+            metrics.recordSince("db.checkUserEmail", start);
+        }
     }
 
     /**
-     * Check user credentials for logging in
+     * Retrieve everything needed to log a user in with one unique index lookup
      * @param email user email
-     * @param password user password
-     * @return "true" if successful, "false" if failed
+     * @return user record, null if the user does not exist
      */
-    public boolean checkUserCredentials(String email, String password) {
-        String hashedPassword = hashPassword(password);
-        if (hashedPassword == null) {
-            Log.e("DatabaseHelper", "Failed to hash password for login attempt");
-            return false;
+    @Override
+    @Nullable
+    public UserRecord getUserRecord(String email) {
+        long start = startCall("getUserRecord");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_USER_RECORD, new String[]{email});
+            UserRecord record = null;
+            if (cursor.moveToFirst()) {
+                record = new UserRecord(email, cursor.getString(0), cursor.getString(1), cursor.getInt(2) == 1);
+            }
+            cursor.close();
+            return record;
+        } finally {
+            metrics.recordSince("db.getUserRecord", start);
         }
+    }
 
-        SQLiteDatabase db = this.getWritableDatabase();
-        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ? AND " + COLUMN_PASSWORD + " = ?", new String[]{email, hashedPassword});
-        boolean valid = cursor.getCount() > 0;
-        cursor.close();
-        db.close();
-        return valid;
+    /**
+     * Replace a user's password hash - used to upgrade older hashes after a successful login
+     * @param email user email
+     * @param passwordHash new encoded hash
+     * @return "true" if successful, "false" if failed
+     */
+    @Override
+    public boolean updatePasswordHash(String email, String passwordHash) {
+        long start = startCall("updatePasswordHash");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(COLUMN_PASSWORD, passwordHash);
+            return db.update(TABLE_USERS, contentValues, COLUMN_EMAIL + " = ?", new String[]{email}) > 0;
+        } finally {
+            metrics.recordSince("db.updatePasswordHash", start);
+        }
     }
 
     /**
@@ -129,21 +224,26 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param email email of user being retrieved
      * @return Phone number as string
      */
+    @Override
     public String getUserPhoneNumber(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        String phoneNumber = null;
-        Cursor cursor = db.query(TABLE_USERS, new String[]{COLUMN_PHONE}, COLUMN_EMAIL + " = ?", new String[]{email}, null, null, null);
-
-        if (cursor.moveToFirst()) {
-            int phoneIndex = cursor.getColumnIndex(COLUMN_PHONE);
-            if (phoneIndex != -1) {
-                phoneNumber = cursor.getString(phoneIndex);
+        long start = startCall("getUserPhoneNumber");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            String phoneNumber = null;
+            Cursor cursor = db.query(TABLE_USERS, new String[]{COLUMN_PHONE}, COLUMN_EMAIL + " = ?", new String[]{email}, null, null, null);
+
+            if (cursor.moveToFirst()) {
+                int phoneIndex = cursor.getColumnIndex(COLUMN_PHONE);
+                if (phoneIndex != -1) {
+                    phoneNumber = cursor.getString(phoneIndex);
+                }
             }
-        }
 
-        cursor.close();
-        db.close();
-        return phoneNumber;
+            cursor.close();
+            return phoneNumber;
+        } finally {
+            metrics.recordSince("db.getUserPhoneNumber", start);
+        }
     }
 
     /**
@@ -151,13 +251,17 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param email email of user being updated
      * @param is2FAEnabled boolean 2FA is being updated to
      */
+    @Override
     public void updateUser2FASetting(String email, boolean is2FAEnabled) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(COLUMN_2FA_ENABLED, is2FAEnabled ? 1 : 0); // Convert boolean to integer
-        int numRowsUpdated = db.update(TABLE_USERS, contentValues, COLUMN_EMAIL + " = ?", new String[]{email});
-        Log.d("DatabaseHelper", "Number of rows updated: " + numRowsUpdated); // Log to check if the update is successful
-        db.close();
+        long start = startCall("updateUser2FASetting");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues contentValues = new ContentValues();
+            contentValues.put(COLUMN_2FA_ENABLED, is2FAEnabled ? 1 : 0); // Convert boolean to integer
+            db.update(TABLE_USERS, contentValues, COLUMN_EMAIL + " = ?", new String[]{email});
+        } finally {
+            metrics.recordSince("db.updateUser2FASetting", start);
+        }
     }
 
 
@@ -166,44 +270,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param email email of logged in user
      * @return "true" if user has 2FA enabled, "false" if they do not
      */
+    @Override
     public boolean is2FAEnabled(String email) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_USERS, new String[]{COLUMN_2FA_ENABLED}, COLUMN_EMAIL + " = ?", new String[]{email}, null, null, null);
-        boolean isEnabled = false;
-        if (cursor.moveToFirst()) {
-            int columnIndex = cursor.getColumnIndex(COLUMN_2FA_ENABLED);
-            if (columnIndex != -1) {
-                isEnabled = cursor.getInt(columnIndex) == 1;
-            }
-        }
-
-        cursor.close();
-        db.close();
-        return isEnabled;
-    }
-
-    /**
-     * Simple hashing of password using SHA-256
-     * <a href="https://mkyong.com/java/java-sha-hashing-example/">Examples</a>
-     * @param password password being hashed
-     * @return Hashed password
-     */
-    private String hashPassword(String password) {
+        long start = startCall("is2FAEnabled");
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedHash = digest.digest(password.getBytes());
-            StringBuilder hexString = new StringBuilder(2 * encodedHash.length);
-            for (byte b : encodedHash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_USERS, new String[]{COLUMN_2FA_ENABLED}, COLUMN_EMAIL + " = ?", new String[]{email}, null, null, null);
+            boolean isEnabled = false;
+            if (cursor.moveToFirst()) {
+                int columnIndex = cursor.getColumnIndex(COLUMN_2FA_ENABLED);
+                if (columnIndex != -1) {
+                    isEnabled = cursor.getInt(columnIndex) == 1;
+                }
             }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            Log.e("DatabaseHelper", "NoSuchAlgorithmException in hashPassword", e);
-            return null;
+
+            cursor.close();
+            return isEnabled;
+        } finally {
+            metrics.recordSince("db.is2FAEnabled", start);
         }
     }
+
     //endregion
 
     //region Inventory Operations
@@ -214,47 +301,262 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param userEmail email of user item belongs to
      * @return "true" if successful, "false" if failed
      */
+    @Override
     public boolean insertInventoryItem(String name, int quantity, String userEmail) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(COLUMN_NAME, name);
-        contentValues.put(COLUMN_QUANTITY, quantity);
-        contentValues.put(COLUMN_USER_EMAIL, userEmail); // Add user email to ContentValues
-        long result = db.insert(TABLE_INVENTORY, null, contentValues);
-        db.close();
-        return result != -1;
+        // Same statement as bulk inserts - the owner's id is looked up from the email
+        return insertInventoryItems(Collections.singletonList(new InventoryItem(0, name, quantity)), userEmail)[0] != -1;
     }
 
     /**
-     * Use foreign key to find all inventory items for specific user
+     * Use foreign key to find all inventory items for specific user, ordered by name
      * @param userEmail email of user
      * @return list of inventory items
      */
+    @Override
     public List<InventoryItem> getInventoryItemsForUser(String userEmail) {
-        List<InventoryItem> itemList = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery("SELECT * FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_USER_EMAIL + " = ?", new String[]{userEmail});
+        return getInventoryItemsForUser(userEmail, InventorySort.NAME);
+    }
 
-        // Getting column indexes
-        int idIndex = cursor.getColumnIndex(COLUMN_ID);
-        int nameIndex = cursor.getColumnIndex(COLUMN_NAME);
-        int quantityIndex = cursor.getColumnIndex(COLUMN_QUANTITY);
+    /**
+     * Use foreign key to find all inventory items for specific user
+     * Ordering is done by SQLite using the per-sort indexes, never in Java
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @return list of inventory items
+     */
+    @Override
+    public List<InventoryItem> getInventoryItemsForUser(String userEmail, InventorySort sort) {
+        long start = startCall("getInventoryItemsForUser");
+        try {
+            List<InventoryItem> itemList = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(itemsForUserSql(sort), new String[]{userEmail});
 
-        if (idIndex != -1 && nameIndex != -1 && quantityIndex != -1) {
-            if (cursor.moveToFirst()) {
-                do {
-                    int id = cursor.getInt(idIndex);
-                    String name = cursor.getString(nameIndex);
-                    int quantity = cursor.getInt(quantityIndex);
-                    InventoryItem item = new InventoryItem(id, name, quantity);
-                    itemList.add(item);
-                } while (cursor.moveToNext());
+            long now = System.currentTimeMillis();
+            while (cursor.moveToNext()) {
+                itemList.add(readItem(cursor, now));
+            }
+
+            cursor.close();
+            return itemList;
+        } finally {
+            metrics.recordSince("db.getInventoryItemsForUser", start);
+        }
+    }
+
+    /**
+     * Read all of a user's items into columns - no InventoryItem is created per row
+     * @param userEmail email of user
+     * @param sort order of the rows
+     * @return snapshot of every item the user owns
+     */
+    @Override
+    public InventorySnapshot getInventorySnapshot(String userEmail, InventorySort sort) {
+        long start = startCall("getInventorySnapshot");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(itemsForUserSql(sort), new String[]{userEmail});
+            // getCount() is known once the first window is filled, so the columns are sized exactly
+            InventorySnapshot.Builder builder = new InventorySnapshot.Builder(cursor.getCount());
+
+            long now = System.currentTimeMillis();
+            while (cursor.moveToNext()) {
+                int threshold = cursor.isNull(3) ? InventoryItem.NO_THRESHOLD : cursor.getInt(3);
+                builder.add(cursor.getInt(0), cursor.getString(1), cursor.getInt(2), threshold, readUsageRate(cursor, now));
+            }
+
+            cursor.close();
+            return builder.build();
+        } finally {
+            metrics.recordSince("db.getInventorySnapshot", start);
+        }
+    }
+
+    /**
+     * Search without a cancellation signal - see the overload below
+     */
+    @Override
+    public List<InventoryItem> searchInventory(String userEmail, String query, InventorySort sort) {
+        return searchInventory(userEmail, query, sort, null);
+    }
+
+    /**
+     * Find a user's items whose name has words starting with each word typed
+     * Matching uses the full-text index, so cost depends on the number of hits rather than the inventory size
+     * @param userEmail email of user
+     * @param query text typed by the user
+     * @param sort order of the results
+     * @param cancellationSignal cancels the query if the user keeps typing, may be null
+     * @return up to SEARCH_LIMIT matching items, empty if the query has no searchable words
+     */
+    public List<InventoryItem> searchInventory(String userEmail, String query, InventorySort sort, @Nullable CancellationSignal cancellationSignal) {
+        long start = startCall("searchInventory");
+        try {
+            List<InventoryItem> itemList = new ArrayList<>();
+            String match = FtsQuery.prefixMatch(query);
+            if (match.isEmpty()) {
+                return itemList;
             }
+
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(searchSql(sort), new String[]{match, userEmail}, cancellationSignal);
+
+            long now = System.currentTimeMillis();
+            while (cursor.moveToNext()) {
+                itemList.add(readItem(cursor, now));
+            }
+
+            cursor.close();
+            return itemList;
+        } finally {
+            metrics.recordSince("db.searchInventory", start);
         }
+    }
+
+    /**
+     * Find every item at or below its reorder threshold, or the global minimum when it has none
+     * Each half of the query is a range scan on its own index, so the cost depends on the number of low items
+     * @param userEmail email of user
+     * @param defaultThreshold global minimum inventory setting
+     * @return low stock items, lowest quantity first
+     */
+    @Override
+    public List<InventoryItem> getLowStockItems(String userEmail, int defaultThreshold) {
+        long start = startCall("getLowStockItems");
+        try {
+            List<InventoryItem> itemList = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_LOW_STOCK_ITEMS, new String[]{userEmail, userEmail, String.valueOf(defaultThreshold)});
 
-        cursor.close();
-        db.close();
-        return itemList;
+            long now = System.currentTimeMillis();
+            while (cursor.moveToNext()) {
+                itemList.add(readItem(cursor, now));
+            }
+
+            cursor.close();
+            return itemList;
+        } finally {
+            metrics.recordSince("db.getLowStockItems", start);
+        }
+    }
+
+    /**
+     * Count the items getLowStockItems would return without reading them
+     * @param userEmail email of user
+     * @param defaultThreshold global minimum inventory setting
+     * @return number of low stock items
+     */
+    @Override
+    public int countLowStockItems(String userEmail, int defaultThreshold) {
+        long start = startCall("countLowStockItems");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_COUNT_LOW_STOCK, new String[]{userEmail, userEmail, String.valueOf(defaultThreshold)});
+            int count = cursor.moveToFirst() ? cursor.getInt(0) : 0;
+            cursor.close();
+            return count;
+        } finally {
+            metrics.recordSince("db.countLowStockItems", start);
+        }
+    }
+
+    /**
+     * Read a user's totals from the summary row the inventory triggers keep current
+     * Low stock is counted against the threshold last passed to syncDefaultThreshold
+     * @param userEmail email of user
+     * @return totals, InventorySummary.EMPTY if the user has never had an item
+     */
+    @Override
+    public InventorySummary getInventorySummary(String userEmail) {
+        long start = startCall("getInventorySummary");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_SUMMARY, new String[]{userEmail});
+            InventorySummary summary = cursor.moveToFirst()
+                    ? new InventorySummary(cursor.getInt(0), cursor.getLong(1), cursor.getInt(2), cursor.getInt(3))
+                    : InventorySummary.EMPTY;
+            cursor.close();
+            return summary;
+        } finally {
+            metrics.recordSince("db.getInventorySummary", start);
+        }
+    }
+
+    /**
+     * Copy the global minimum inventory setting to app_settings for the summary triggers
+     * Only writes, and recounts low stock for every user, when the setting has changed
+     * @param defaultThreshold global minimum inventory setting
+     */
+    @Override
+    public void syncDefaultThreshold(int defaultThreshold) {
+        long start = startCall("syncDefaultThreshold");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                Cursor cursor = db.rawQuery(SQL_DEFAULT_THRESHOLD, null);
+                boolean current = cursor.moveToFirst() && !cursor.isNull(0) && cursor.getInt(0) == defaultThreshold;
+                cursor.close();
+                if (!current) {
+                    db.execSQL(SQL_SET_DEFAULT_THRESHOLD, new Object[]{defaultThreshold});
+                    db.execSQL(SQL_RECOUNT_LOW_STOCK, new Object[]{defaultThreshold});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            metrics.recordSince("db.syncDefaultThreshold", start);
+        }
+    }
+
+    /**
+     * Build an item from a row selected with ITEM_COLUMNS
+     * @param now time to decay the usage rate to, in epoch milliseconds
+     */
+    private static InventoryItem readItem(Cursor cursor, long now) {
+        int threshold = cursor.isNull(3) ? InventoryItem.NO_THRESHOLD : cursor.getInt(3);
+        return new InventoryItem(cursor.getInt(0), cursor.getString(1), cursor.getInt(2), threshold, readUsageRate(cursor, now));
+    }
+
+    /**
+     * Usage rate of a row selected with ITEM_COLUMNS, as of now
+     */
+    private static double readUsageRate(Cursor cursor, long now) {
+        if (cursor.isNull(4)) {
+            return UsageForecast.NO_USAGE;
+        }
+        return UsageForecast.rateAt(cursor.getDouble(4), cursor.getLong(5), now);
+    }
+
+    /**
+     * Get one page of a user's inventory in the given order
+     * Uses the last item of the previous page as a keyset so each page is an index range scan
+     * no matter how deep the user has scrolled
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @param after last item of the previous page, null for the first page
+     * @param limit maximum number of items to return
+     * @return list of inventory items, shorter than limit once the end is reached
+     */
+    @Override
+    public List<InventoryItem> getInventoryPage(String userEmail, InventorySort sort, @Nullable InventoryItem after, int limit) {
+        long start = startCall("getInventoryPage");
+        try {
+            List<InventoryItem> itemList = new ArrayList<>(limit);
+            SQLiteDatabase db = this.getReadableDatabase();
+
+            Cursor cursor = db.rawQuery(pageSql(sort, after != null, limit), pageArgs(userEmail, sort, after));
+            long now = System.currentTimeMillis();
+            while (cursor.moveToNext()) {
+                itemList.add(readItem(cursor, now));
+            }
+
+            cursor.close();
+            return itemList;
+        } finally {
+            metrics.recordSince("db.getInventoryPage", start);
+        }
     }
 
     /**
@@ -264,15 +566,43 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param quantity updated quantity of item
      * @return "true" if successful, "false" if failed
      */
+    @Override
     public boolean updateInventoryItem(int id, String name, int quantity) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues contentValues = new ContentValues();
-        contentValues.put(COLUMN_NAME, name);
-        contentValues.put(COLUMN_QUANTITY, quantity);
+        long start = startCall("updateInventoryItem");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                SQLiteStatement statement = db.compileStatement(SQL_RENAME_ITEM);
+                statement.bindString(1, name);
+                statement.bindLong(2, id);
+                boolean updated = statement.executeUpdateDelete() > 0;
+                statement.close();
+                if (updated) {
+                    writeQuantityChanges(db, Collections.singletonMap(id, quantity), true);
+                }
+                db.setTransactionSuccessful();
+                return updated;
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            metrics.recordSince("db.updateInventoryItem", start);
+        }
+    }
 
-        int updateStatus = db.update(TABLE_INVENTORY, contentValues, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
-        return updateStatus > 0;
+    /**
+     * Update inventory item details including its reorder threshold
+     * @param id id of item being updated
+     * @param name updated name of item
+     * @param quantity updated quantity of item
+     * @param reorderThreshold updated threshold, InventoryItem.NO_THRESHOLD to use the global minimum
+     * @return "true" if successful, "false" if failed
+     */
+    @Override
+    public boolean updateInventoryItem(int id, String name, int quantity, int reorderThreshold) {
+        // Same statements as bulk updates, so the quantity change is recorded in the history
+        return updateInventoryItems(Collections.singletonList(new InventoryItem(id, name, quantity, reorderThreshold)))[0];
     }
 
     /**
@@ -280,11 +610,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param id id of item being deleted
      * @return "true" if successful, "false" if failed
      */
+    @Override
     public boolean deleteInventoryItem(int id) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        int deleteStatus = db.delete(TABLE_INVENTORY, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
-        return deleteStatus > 0;
+        long start = startCall("deleteInventoryItem");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            int deleteStatus = db.delete(TABLE_INVENTORY, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
+            return deleteStatus > 0;
+        } finally {
+            metrics.recordSince("db.deleteInventoryItem", start);
+        }
     }
 
     /**
@@ -292,9 +627,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param id id of item being incremented
      */
     public void incrementItemQuantity(int id) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.execSQL("UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_QUANTITY + " = " + COLUMN_QUANTITY + " + 1 WHERE " + COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        applyQuantityDeltas(Collections.singletonMap(id, 1));
     }
 
     /**
@@ -302,9 +635,282 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      * @param id id of item being decremented
      */
     public void decrementItemQuantity(int id) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.execSQL("UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_QUANTITY + " = " + COLUMN_QUANTITY + " - 1 WHERE " + COLUMN_ID + " = ? AND " + COLUMN_QUANTITY + " > 0", new String[]{String.valueOf(id)});
-        db.close();
+        applyQuantityDeltas(Collections.singletonMap(id, -1));
+    }
+
+    /**
+     * Apply net quantity changes to many items in one transaction
+     * Quantities never drop below zero. Every change is appended to the quantity history and units
+     * taken out of stock update the item's usage rate, so forecasts never read the history back
+     * @param deltas amount to add to each item, keyed by item id
+     */
+    @Override
+    public void applyQuantityDeltas(Map<Integer, Integer> deltas) {
+        long start = startCall("applyQuantityDeltas");
+        try {
+            if (deltas.isEmpty()) {
+                return;
+            }
+            SQLiteDatabase db = this.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                writeQuantityChanges(db, deltas, false);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            metrics.recordSince("db.applyQuantityDeltas", start);
+        }
+    }
+
+    /**
+     * Apply a batch of changes from QuantityWriteBuffer - skipped if the batch was already written
+     * The batch's sequence is stored in the same transaction, so a batch replayed from the journal
+     * after the process died between the commit and the journal update is not counted twice
+     * @param batch sequence of the batch, higher than any batch before it
+     * @param deltas amount to add to each item, keyed by item id
+     */
+    @Override
+    public void applyQuantityDeltas(long batch, Map<Integer, Integer> deltas) {
+        long start = startCall("applyQuantityDeltas");
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                Cursor cursor = db.rawQuery(SQL_APPLIED_QUANTITY_BATCH, null);
+                boolean applied = cursor.moveToFirst() && !cursor.isNull(0) && cursor.getLong(0) >= batch;
+                cursor.close();
+                if (applied) {
+                    return;
+                }
+                writeQuantityChanges(db, deltas, false);
+                db.execSQL(SQL_SET_APPLIED_QUANTITY_BATCH, new Object[]{batch});
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            metrics.recordSince("db.applyQuantityDeltas", start);
+        }
+    }
+
+    @Override
+    public long appliedQuantityBatch() {
+        long start = startCall("appliedQuantityBatch");
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(SQL_APPLIED_QUANTITY_BATCH, null);
+            long batch = cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+            cursor.close();
+            return batch;
+        } finally {
+            metrics.recordSince("db.appliedQuantityBatch", start);
+        }
+    }
+
+    /**
+     * Write quantity changes with their history and usage - the caller owns the transaction
+     * @param changes amount to add to each item, or its new quantity if replace, keyed by item id
+     * @param replace "true" if changes holds new quantities rather than amounts to add
+     */
+    private void writeQuantityChanges(SQLiteDatabase db, Map<Integer, Integer> changes, boolean replace) {
+        long now = System.currentTimeMillis();
+        List<Integer> ids = new ArrayList<>(changes.keySet());
+        SQLiteStatement update = db.compileStatement(SQL_SET_QUANTITY_AND_USAGE);
+        SQLiteStatement history = db.compileStatement(SQL_INSERT_HISTORY);
+        try {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                int to = Math.min(ids.size(), from + MAX_IDS_PER_QUERY);
+                String[] args = new String[to - from];
+                for (int i = from; i < to; i++) {
+                    args[i - from] = String.valueOf(ids.get(i));
+                }
+                // Read inside the transaction so the usage update is based on the row being replaced
+                Cursor cursor = db.rawQuery(quantityAndUsageSql(args.length), args);
+                while (cursor.moveToNext()) {
+                    int id = cursor.getInt(0);
+                    int quantity = cursor.getInt(1);
+                    int change = changes.get(id);
+                    int newQuantity = Math.max(0, replace ? change : quantity + change);
+                    if (newQuantity == quantity) {
+                        continue;
+                    }
+                    boolean used = !cursor.isNull(2);
+                    double rate = used ? cursor.getDouble(2) : UsageForecast.NO_USAGE;
+                    long updatedAt = used ? cursor.getLong(3) : now;
+                    if (newQuantity < quantity) {
+                        rate = UsageForecast.afterUse(rate, updatedAt, quantity - newQuantity, now);
+                        updatedAt = now;
+                        used = true;
+                    }
+
+                    update.bindLong(1, newQuantity);
+                    if (used) {
+                        update.bindDouble(2, rate);
+                        update.bindLong(3, updatedAt);
+                    } else {
+                        update.bindNull(2);
+                        update.bindNull(3);
+                    }
+                    update.bindLong(4, id);
+                    update.executeUpdateDelete();
+                    update.clearBindings();
+
+                    history.bindLong(1, id);
+                    history.bindLong(2, newQuantity - quantity);
+                    history.bindLong(3, now);
+                    history.executeInsert();
+                }
+                cursor.close();
+            }
+        } finally {
+            update.close();
+            history.close();
+        }
+    }
+    //endregion
+
+    //region Bulk Inventory Operations
+    // Each bulk call runs in one transaction with a single compiled statement reused for every row
+
+    /**
+     * Add many inventory items in one transaction
+     * @param items items to add - ids are ignored
+     * @param userEmail email of user the items belong to
+     * @return row id of each inserted item in list order, -1 for rows that failed
+     */
+    @Override
+    public long[] insertInventoryItems(List<InventoryItem> items, String userEmail) {
+        long start = startCall("insertInventoryItems");
+        try {
+            long[] results = new long[items.size()];
+            long now = System.currentTimeMillis();
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement statement = db.compileStatement(SQL_INSERT_ITEM);
+            SQLiteStatement history = db.compileStatement(SQL_INSERT_HISTORY);
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < items.size(); i++) {
+                    InventoryItem item = items.get(i);
+                    statement.bindString(1, item.getName());
+                    statement.bindLong(2, item.getQuantity());
+                    statement.bindString(3, userEmail);
+                    bindThreshold(statement, 4, item);
+                    try {
+                        results[i] = statement.executeInsert();
+                    } catch (SQLException e) {
+                        Log.e("DatabaseHelper", "Failed to insert " + item, e);
+                        results[i] = -1;
+                    }
+                    statement.clearBindings();
+
+                    // The opening stock is the item's first history entry - adding stock never changes usage
+                    if (results[i] != -1 && item.getQuantity() != 0) {
+                        history.bindLong(1, results[i]);
+                        history.bindLong(2, item.getQuantity());
+                        history.bindLong(3, now);
+                        history.executeInsert();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                statement.close();
+                history.close();
+            }
+            return results;
+        } finally {
+            metrics.recordSince("db.insertInventoryItems", start);
+        }
+    }
+
+    /**
+     * Update name, quantity and reorder threshold of many inventory items in one transaction
+     * @param items items to update, matched on id
+     * @return "true" for each row that was updated in list order
+     */
+    @Override
+    public boolean[] updateInventoryItems(List<InventoryItem> items) {
+        long start = startCall("updateInventoryItems");
+        try {
+            boolean[] results = new boolean[items.size()];
+            Map<Integer, Integer> quantities = new HashMap<>();
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement statement = db.compileStatement(SQL_UPDATE_ITEM_DETAILS);
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < items.size(); i++) {
+                    InventoryItem item = items.get(i);
+                    statement.bindString(1, item.getName());
+                    bindThreshold(statement, 2, item);
+                    statement.bindLong(3, item.getId());
+                    try {
+                        results[i] = statement.executeUpdateDelete() > 0;
+                    } catch (SQLException e) {
+                        Log.e("DatabaseHelper", "Failed to update " + item, e);
+                    }
+                    if (results[i]) {
+                        quantities.put(item.getId(), item.getQuantity());
+                    }
+                    statement.clearBindings();
+                }
+                // Quantities go through the same path as +/- taps so edits show up in history and usage
+                writeQuantityChanges(db, quantities, true);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                statement.close();
+            }
+            return results;
+        } finally {
+            metrics.recordSince("db.updateInventoryItems", start);
+        }
+    }
+
+    /**
+     * Delete many inventory items in one transaction
+     * @param items items to delete, matched on id
+     * @return "true" for each row that was deleted in list order
+     */
+    @Override
+    public boolean[] deleteInventoryItems(List<InventoryItem> items) {
+        long start = startCall("deleteInventoryItems");
+        try {
+            boolean[] results = new boolean[items.size()];
+            SQLiteDatabase db = this.getWritableDatabase();
+            SQLiteStatement statement = db.compileStatement(SQL_DELETE_ITEM);
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < items.size(); i++) {
+                    statement.bindLong(1, items.get(i).getId());
+                    try {
+                        results[i] = statement.executeUpdateDelete() > 0;
+                    } catch (SQLException e) {
+                        Log.e("DatabaseHelper", "Failed to delete " + items.get(i), e);
+                    }
+                    statement.clearBindings();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                statement.close();
+            }
+            return results;
+        } finally {
+            metrics.recordSince("db.deleteInventoryItems", start);
+        }
+    }
+
+    /**
+     * Bind an item's reorder threshold, NULL when it uses the global minimum
+     */
+    private static void bindThreshold(SQLiteStatement statement, int index, InventoryItem item) {
+        if (item.getReorderThreshold() == InventoryItem.NO_THRESHOLD) {
+            statement.bindNull(index);
+        } else {
+            statement.bindLong(index, item.getReorderThreshold());
+        }
     }
     //endregion
-}
\ No newline at end of file
+}
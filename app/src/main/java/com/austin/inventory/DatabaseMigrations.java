@@ -0,0 +1,292 @@
+/**
+ * DatabaseMigrations.java
+ *
+ * This class holds the step-wise schema migrations for the app database. Each step moves the schema
+ * from version N to N + 1 in place so user data survives app updates.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * To change the schema: bump InventoryContract.DATABASE_VERSION and register a step from the previous
+ * version below. Never edit a step that has already shipped.
+ *
+ * Steps are plain SQL run through InventoryContract.SqlRunner, so the Android DatabaseHelper and
+ * the desktop JDBC store build exactly the same schema. Each store runs every step in its own
+ * transaction.
+ */
+
+package com.austin.inventory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.austin.inventory.InventoryContract.*;
+
+final class DatabaseMigrations {
+
+    // Oldest schema version that can be migrated in place
+    static final int BASE_VERSION = 5;
+
+    /**
+     * A single schema step - runs inside its own transaction
+     */
+    interface Migration {
+        void migrate(SqlRunner db);
+    }
+
+    // Keyed by the version the step migrates from
+    private static final Map<Integer, Migration> MIGRATIONS = new HashMap<>();
+
+    static {
+        // 5 -> 6: Index inventory by owner so per-user queries stop scanning the whole table
+        register(5, db -> db.execSQL("CREATE INDEX IF NOT EXISTS idx_inventory_user_email ON "
+                + TABLE_INVENTORY + "(" + COLUMN_USER_EMAIL + ")"));
+
+        // 6 -> 7: Indexes matching each InventorySort order so keyset pages are index range scans
+        register(6, db -> {
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_inventory_user_name ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_EMAIL + ", " + COLUMN_NAME + " COLLATE NOCASE, " + COLUMN_ID + ")");
+            db.execSQL("CREATE INDEX IF NOT EXISTS idx_inventory_user_quantity ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_EMAIL + ", " + COLUMN_QUANTITY + ", " + COLUMN_ID + ")");
+            // Both new indexes lead with user_email
+            db.execSQL("DROP INDEX IF EXISTS idx_inventory_user_email");
+        });
+
+        // 7 -> 8: Full-text index over item names, kept in sync with inventory by triggers
+        register(7, db -> {
+            // External content table - the names are stored once, in inventory. prefix="2,3" indexes
+            // short prefixes so search-as-you-type queries do not expand into every matching term
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_INVENTORY_FTS + " USING fts4(content=\"" + TABLE_INVENTORY + "\", "
+                    + COLUMN_NAME + ", prefix=\"2,3\")");
+            // Only name changes touch the index - quantity updates do not
+            db.execSQL("CREATE TRIGGER inventory_fts_before_update BEFORE UPDATE OF " + COLUMN_NAME + " ON " + TABLE_INVENTORY
+                    + " BEGIN DELETE FROM " + TABLE_INVENTORY_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+            db.execSQL("CREATE TRIGGER inventory_fts_before_delete BEFORE DELETE ON " + TABLE_INVENTORY
+                    + " BEGIN DELETE FROM " + TABLE_INVENTORY_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+            db.execSQL("CREATE TRIGGER inventory_fts_after_update AFTER UPDATE OF " + COLUMN_NAME + " ON " + TABLE_INVENTORY
+                    + " BEGIN INSERT INTO " + TABLE_INVENTORY_FTS + "(docid, " + COLUMN_NAME + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_NAME + "); END");
+            db.execSQL("CREATE TRIGGER inventory_fts_after_insert AFTER INSERT ON " + TABLE_INVENTORY
+                    + " BEGIN INSERT INTO " + TABLE_INVENTORY_FTS + "(docid, " + COLUMN_NAME + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_NAME + "); END");
+            // Index the rows that already exist
+            db.execSQL("INSERT INTO " + TABLE_INVENTORY_FTS + "(" + TABLE_INVENTORY_FTS + ") VALUES ('rebuild')");
+        });
+
+        // 8 -> 9: Per-item reorder threshold, NULL falls back to the global minimum inventory setting
+        register(8, db -> {
+            db.execSQL("ALTER TABLE " + TABLE_INVENTORY + " ADD COLUMN " + COLUMN_REORDER_THRESHOLD + " INTEGER");
+            // Items with a threshold are low when this expression is <= 0 - NULL thresholds are never in range
+            db.execSQL("CREATE INDEX idx_inventory_user_shortfall ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_EMAIL + ", " + COLUMN_QUANTITY + " - " + COLUMN_REORDER_THRESHOLD + ")");
+            // Items without a threshold are a quantity range under reorder_threshold IS NULL
+            db.execSQL("CREATE INDEX idx_inventory_user_threshold ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_EMAIL + ", " + COLUMN_REORDER_THRESHOLD + ", " + COLUMN_QUANTITY + ")");
+        });
+
+        // 9 -> 10: Quantity change history and an incrementally updated usage rate per item
+        register(9, db -> {
+            db.execSQL("ALTER TABLE " + TABLE_INVENTORY + " ADD COLUMN " + COLUMN_USAGE_RATE + " REAL");
+            db.execSQL("ALTER TABLE " + TABLE_INVENTORY + " ADD COLUMN " + COLUMN_USAGE_UPDATED_AT + " INTEGER");
+            db.execSQL("CREATE TABLE " + TABLE_QUANTITY_HISTORY + "(" + COLUMN_ID + " INTEGER PRIMARY KEY, "
+                    + COLUMN_ITEM_ID + " INTEGER NOT NULL, " + COLUMN_DELTA + " INTEGER NOT NULL, " + COLUMN_CHANGED_AT + " INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX idx_quantity_history_item ON " + TABLE_QUANTITY_HISTORY + "(" + COLUMN_ITEM_ID + ", " + COLUMN_CHANGED_AT + ")");
+            // History is never updated, only dropped along with its item
+            db.execSQL("CREATE TRIGGER quantity_history_after_item_delete AFTER DELETE ON " + TABLE_INVENTORY
+                    + " BEGIN DELETE FROM " + TABLE_QUANTITY_HISTORY + " WHERE " + COLUMN_ITEM_ID + " = old." + COLUMN_ID + "; END");
+        });
+
+        // 10 -> 11: Per-user totals kept current by triggers, so the summary header is a single-row lookup
+        register(10, db -> {
+            db.execSQL("CREATE TABLE " + TABLE_APP_SETTINGS + "(" + COLUMN_SETTING + " TEXT PRIMARY KEY, " + COLUMN_VALUE + " INTEGER)");
+            // The default minimum inventory when this step shipped - stores resync it from Settings on every summary read
+            db.execSQL("INSERT INTO " + TABLE_APP_SETTINGS + " VALUES ('" + SETTING_DEFAULT_THRESHOLD + "', 2)");
+
+            db.execSQL("CREATE TABLE " + TABLE_INVENTORY_SUMMARY + "(" + COLUMN_USER_EMAIL + " TEXT PRIMARY KEY, "
+                    + COLUMN_ITEM_COUNT + " INTEGER NOT NULL DEFAULT 0, " + COLUMN_TOTAL_UNITS + " INTEGER NOT NULL DEFAULT 0, "
+                    + COLUMN_OUT_OF_STOCK_COUNT + " INTEGER NOT NULL DEFAULT 0, " + COLUMN_LOW_STOCK_COUNT + " INTEGER NOT NULL DEFAULT 0)");
+            // quantity is nullable - a user whose rows are all NULL would otherwise get NULL totals
+            db.execSQL("INSERT INTO " + TABLE_INVENTORY_SUMMARY + " SELECT " + COLUMN_USER_EMAIL + ", COUNT(*), IFNULL(SUM(" + COLUMN_QUANTITY + "), 0), IFNULL(SUM("
+                    + COLUMN_QUANTITY + " = 0), 0), IFNULL(SUM(" + v11IsLowStock(TABLE_INVENTORY) + "), 0) FROM " + TABLE_INVENTORY
+                    + " WHERE " + COLUMN_USER_EMAIL + " IS NOT NULL GROUP BY " + COLUMN_USER_EMAIL);
+
+            // Renames do not change any total, so only these columns fire the update trigger
+            db.execSQL("CREATE TRIGGER inventory_summary_after_insert AFTER INSERT ON " + TABLE_INVENTORY + " BEGIN "
+                    + v11SummaryRow("new") + v11SummaryChange("new", '+') + " END");
+            db.execSQL("CREATE TRIGGER inventory_summary_after_delete AFTER DELETE ON " + TABLE_INVENTORY + " BEGIN "
+                    + v11SummaryChange("old", '-') + " END");
+            db.execSQL("CREATE TRIGGER inventory_summary_after_update AFTER UPDATE OF " + COLUMN_QUANTITY + ", " + COLUMN_REORDER_THRESHOLD + ", "
+                    + COLUMN_USER_EMAIL + " ON " + TABLE_INVENTORY + " BEGIN "
+                    + v11SummaryRow("new") + v11SummaryChange("old", '-') + v11SummaryChange("new", '+') + " END");
+        });
+
+        // 11 -> 12: Inventory references its owner by an integer user id instead of repeating the email in every row
+        register(11, db -> {
+            // Items whose email matches no account could never be shown - drop them first so the triggers clean up after them
+            db.execSQL("DELETE FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_USER_EMAIL + " IS NULL OR " + COLUMN_USER_EMAIL + " NOT IN (SELECT "
+                    + COLUMN_EMAIL + " FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " IS NOT NULL)");
+
+            // SQLite cannot change a primary key or drop a column in place, so both tables are rebuilt and renamed
+            db.execSQL("CREATE TABLE allusers_new(" + COLUMN_ID + " INTEGER PRIMARY KEY, " + COLUMN_EMAIL + " TEXT NOT NULL UNIQUE, "
+                    + COLUMN_PASSWORD + " TEXT, " + COLUMN_PHONE + " TEXT, " + COLUMN_2FA_ENABLED + " INTEGER DEFAULT 0)");
+            db.execSQL("INSERT INTO allusers_new(" + COLUMN_EMAIL + ", " + COLUMN_PASSWORD + ", " + COLUMN_PHONE + ", " + COLUMN_2FA_ENABLED + ") SELECT "
+                    + COLUMN_EMAIL + ", " + COLUMN_PASSWORD + ", " + COLUMN_PHONE + ", " + COLUMN_2FA_ENABLED + " FROM " + TABLE_USERS
+                    + " WHERE " + COLUMN_EMAIL + " IS NOT NULL ORDER BY rowid");
+
+            db.execSQL("CREATE TABLE inventory_new(" + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " + COLUMN_NAME + " TEXT, " + COLUMN_QUANTITY + " INTEGER, "
+                    + COLUMN_USER_ID + " INTEGER NOT NULL REFERENCES " + TABLE_USERS + "(" + COLUMN_ID + "), " + COLUMN_REORDER_THRESHOLD + " INTEGER, "
+                    + COLUMN_USAGE_RATE + " REAL, " + COLUMN_USAGE_UPDATED_AT + " INTEGER)");
+            // Item ids are kept so quantity_history and the full-text index still line up
+            db.execSQL("INSERT INTO inventory_new SELECT i." + COLUMN_ID + ", i." + COLUMN_NAME + ", i." + COLUMN_QUANTITY + ", u." + COLUMN_ID
+                    + ", i." + COLUMN_REORDER_THRESHOLD + ", i." + COLUMN_USAGE_RATE + ", i." + COLUMN_USAGE_UPDATED_AT
+                    + " FROM " + TABLE_INVENTORY + " i JOIN allusers_new u ON u." + COLUMN_EMAIL + " = i." + COLUMN_USER_EMAIL);
+            // AUTOINCREMENT never hands out an id again, even one deleted from the end - carry the high-water mark over
+            db.execSQL("DELETE FROM sqlite_sequence WHERE name = 'inventory_new'");
+            db.execSQL("UPDATE sqlite_sequence SET name = 'inventory_new' WHERE name = '" + TABLE_INVENTORY + "'");
+
+            // Dropping inventory drops its indexes and triggers too
+            db.execSQL("DROP TABLE " + TABLE_INVENTORY);
+            db.execSQL("DROP TABLE " + TABLE_USERS);
+            db.execSQL("ALTER TABLE allusers_new RENAME TO " + TABLE_USERS);
+            db.execSQL("ALTER TABLE inventory_new RENAME TO " + TABLE_INVENTORY);
+
+            // The same indexes as before, led by the integer key - idx_inventory_user_name also serves plain lookups by user_id
+            db.execSQL("CREATE INDEX idx_inventory_user_name ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_ID + ", " + COLUMN_NAME + " COLLATE NOCASE, " + COLUMN_ID + ")");
+            db.execSQL("CREATE INDEX idx_inventory_user_quantity ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_ID + ", " + COLUMN_QUANTITY + ", " + COLUMN_ID + ")");
+            db.execSQL("CREATE INDEX idx_inventory_user_shortfall ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_ID + ", " + COLUMN_QUANTITY + " - " + COLUMN_REORDER_THRESHOLD + ")");
+            db.execSQL("CREATE INDEX idx_inventory_user_threshold ON " + TABLE_INVENTORY + "("
+                    + COLUMN_USER_ID + ", " + COLUMN_REORDER_THRESHOLD + ", " + COLUMN_QUANTITY + ")");
+
+            // The full-text index itself is unchanged, only its triggers went with the old table
+            createFtsTriggers(db);
+            db.execSQL("CREATE TRIGGER quantity_history_after_item_delete AFTER DELETE ON " + TABLE_INVENTORY
+                    + " BEGIN DELETE FROM " + TABLE_QUANTITY_HISTORY + " WHERE " + COLUMN_ITEM_ID + " = old." + COLUMN_ID + "; END");
+
+            db.execSQL("DROP TABLE " + TABLE_INVENTORY_SUMMARY);
+            createSummaryTable(db);
+        });
+    }
+
+    private DatabaseMigrations() {}
+
+    /**
+     * Create the tables as they were at BASE_VERSION - later changes belong in a registered step
+     * @param db database being created
+     */
+    static void createBaseSchema(SqlRunner db) {
+        // Create Users Table
+        db.execSQL("CREATE TABLE " + TABLE_USERS + "(" + COLUMN_EMAIL + " TEXT PRIMARY KEY, " + COLUMN_PASSWORD + " TEXT, " + COLUMN_PHONE + " TEXT, " + COLUMN_2FA_ENABLED + " INTEGER DEFAULT 0)");
+
+        // Create inventory table
+        db.execSQL("CREATE TABLE " + TABLE_INVENTORY + "(" + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " + COLUMN_NAME + " TEXT, " + COLUMN_QUANTITY + " INTEGER, " + COLUMN_USER_EMAIL + " TEXT, " + "FOREIGN KEY(" + COLUMN_USER_EMAIL + ") REFERENCES " + TABLE_USERS + "(" + COLUMN_EMAIL + "))");
+    }
+
+    /**
+     * Triggers keeping the full-text index in step with inventory - step 11 -> 12 only. Step 7 -> 8
+     * spells out its own copy, so a change here must ship as a new step
+     */
+    private static void createFtsTriggers(SqlRunner db) {
+        // Only name changes touch the index - quantity updates do not
+        db.execSQL("CREATE TRIGGER inventory_fts_before_update BEFORE UPDATE OF " + COLUMN_NAME + " ON " + TABLE_INVENTORY
+                + " BEGIN DELETE FROM " + TABLE_INVENTORY_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER inventory_fts_before_delete BEFORE DELETE ON " + TABLE_INVENTORY
+                + " BEGIN DELETE FROM " + TABLE_INVENTORY_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER inventory_fts_after_update AFTER UPDATE OF " + COLUMN_NAME + " ON " + TABLE_INVENTORY
+                + " BEGIN INSERT INTO " + TABLE_INVENTORY_FTS + "(docid, " + COLUMN_NAME + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_NAME + "); END");
+        db.execSQL("CREATE TRIGGER inventory_fts_after_insert AFTER INSERT ON " + TABLE_INVENTORY
+                + " BEGIN INSERT INTO " + TABLE_INVENTORY_FTS + "(docid, " + COLUMN_NAME + ") VALUES (new." + COLUMN_ID + ", new." + COLUMN_NAME + "); END");
+    }
+
+    /**
+     * Create and backfill inventory_summary, keyed by user_id, and the triggers that keep it current -
+     * step 11 -> 12 only. Step 10 -> 11 spells out its own copy keyed by email, so a change here must
+     * ship as a new step
+     */
+    private static void createSummaryTable(SqlRunner db) {
+        db.execSQL("CREATE TABLE " + TABLE_INVENTORY_SUMMARY + "(" + COLUMN_USER_ID + " INTEGER PRIMARY KEY, "
+                + COLUMN_ITEM_COUNT + " INTEGER NOT NULL DEFAULT 0, " + COLUMN_TOTAL_UNITS + " INTEGER NOT NULL DEFAULT 0, "
+                + COLUMN_OUT_OF_STOCK_COUNT + " INTEGER NOT NULL DEFAULT 0, " + COLUMN_LOW_STOCK_COUNT + " INTEGER NOT NULL DEFAULT 0)");
+        // quantity is nullable - a user whose rows are all NULL would otherwise get NULL totals
+        db.execSQL("INSERT INTO " + TABLE_INVENTORY_SUMMARY + " SELECT " + COLUMN_USER_ID + ", COUNT(*), IFNULL(SUM(" + COLUMN_QUANTITY + "), 0), IFNULL(SUM("
+                + COLUMN_QUANTITY + " = 0), 0), IFNULL(SUM(" + isLowStock(TABLE_INVENTORY) + "), 0) FROM " + TABLE_INVENTORY
+                + " WHERE " + COLUMN_USER_ID + " IS NOT NULL GROUP BY " + COLUMN_USER_ID);
+
+        // Renames do not change any total, so only these columns fire the update trigger
+        db.execSQL("CREATE TRIGGER inventory_summary_after_insert AFTER INSERT ON " + TABLE_INVENTORY + " BEGIN "
+                + addSummaryRow("new") + summaryChange("new", '+') + " END");
+        db.execSQL("CREATE TRIGGER inventory_summary_after_delete AFTER DELETE ON " + TABLE_INVENTORY + " BEGIN "
+                + summaryChange("old", '-') + " END");
+        db.execSQL("CREATE TRIGGER inventory_summary_after_update AFTER UPDATE OF " + COLUMN_QUANTITY + ", " + COLUMN_REORDER_THRESHOLD + ", "
+                + COLUMN_USER_ID + " ON " + TABLE_INVENTORY + " BEGIN "
+                + addSummaryRow("new") + summaryChange("old", '-') + summaryChange("new", '+') + " END");
+    }
+
+    // Copies of the helpers below as step 10 -> 11 uses them, keyed by email - never change these once released
+    private static String v11IsLowStock(String row) {
+        return "(" + row + "." + COLUMN_QUANTITY + " <= COALESCE(" + row + "." + COLUMN_REORDER_THRESHOLD + ", " + DEFAULT_THRESHOLD_VALUE + "))";
+    }
+
+    private static String v11SummaryRow(String row) {
+        return "INSERT OR IGNORE INTO " + TABLE_INVENTORY_SUMMARY + "(" + COLUMN_USER_EMAIL + ") VALUES (" + row + "." + COLUMN_USER_EMAIL + ");";
+    }
+
+    private static String v11SummaryChange(String row, char sign) {
+        return "UPDATE " + TABLE_INVENTORY_SUMMARY + " SET "
+                + COLUMN_ITEM_COUNT + " = " + COLUMN_ITEM_COUNT + " " + sign + " 1, "
+                + COLUMN_TOTAL_UNITS + " = " + COLUMN_TOTAL_UNITS + " " + sign + " IFNULL(" + row + "." + COLUMN_QUANTITY + ", 0), "
+                + COLUMN_OUT_OF_STOCK_COUNT + " = " + COLUMN_OUT_OF_STOCK_COUNT + " " + sign + " IFNULL(" + row + "." + COLUMN_QUANTITY + " = 0, 0), "
+                + COLUMN_LOW_STOCK_COUNT + " = " + COLUMN_LOW_STOCK_COUNT + " " + sign + " IFNULL(" + v11IsLowStock(row) + ", 0)"
+                + " WHERE " + COLUMN_USER_EMAIL + " = " + row + "." + COLUMN_USER_EMAIL + ";";
+    }
+
+    /**
+     * 1 when an inventory row is at or below its threshold, or the stored default when it has none
+     * @param row "new", "old" or a table name
+     */
+    private static String isLowStock(String row) {
+        return "(" + row + "." + COLUMN_QUANTITY + " <= COALESCE(" + row + "." + COLUMN_REORDER_THRESHOLD + ", " + DEFAULT_THRESHOLD_VALUE + "))";
+    }
+
+    /**
+     * Trigger statement creating the summary row for the owner of an inventory row if it is missing
+     */
+    private static String addSummaryRow(String row) {
+        return "INSERT OR IGNORE INTO " + TABLE_INVENTORY_SUMMARY + "(" + COLUMN_USER_ID + ") VALUES (" + row + "." + COLUMN_USER_ID + ");";
+    }
+
+    /**
+     * Trigger statement adding an inventory row to, or taking it away from, its owner's totals - a
+     * NULL quantity counts as no units and neither out of stock nor low, as in the backfill
+     * @param row "new" or "old"
+     * @param sign '+' or '-'
+     */
+    private static String summaryChange(String row, char sign) {
+        return "UPDATE " + TABLE_INVENTORY_SUMMARY + " SET "
+                + COLUMN_ITEM_COUNT + " = " + COLUMN_ITEM_COUNT + " " + sign + " 1, "
+                + COLUMN_TOTAL_UNITS + " = " + COLUMN_TOTAL_UNITS + " " + sign + " IFNULL(" + row + "." + COLUMN_QUANTITY + ", 0), "
+                + COLUMN_OUT_OF_STOCK_COUNT + " = " + COLUMN_OUT_OF_STOCK_COUNT + " " + sign + " IFNULL(" + row + "." + COLUMN_QUANTITY + " = 0, 0), "
+                + COLUMN_LOW_STOCK_COUNT + " = " + COLUMN_LOW_STOCK_COUNT + " " + sign + " IFNULL(" + isLowStock(row) + ", 0)"
+                + " WHERE " + COLUMN_USER_ID + " = " + row + "." + COLUMN_USER_ID + ";";
+    }
+
+    private static void register(int fromVersion, Migration migration) {
+        if (MIGRATIONS.containsKey(fromVersion)) {
+            throw new IllegalStateException("Migration from version " + fromVersion + " already registered");
+        }
+        MIGRATIONS.put(fromVersion, migration);
+    }
+
+    /**
+     * Find the step that upgrades a schema by one version
+     * @param fromVersion version being migrated from
+     * @return migration to fromVersion + 1
+     */
+    static Migration get(int fromVersion) {
+        Migration migration = MIGRATIONS.get(fromVersion);
+        if (migration == null) {
+            throw new IllegalStateException("No migration from version " + fromVersion + " to " + (fromVersion + 1));
+        }
+        return migration;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * DatabaseScheduler.java
+ *
+ * This class owns the threads that touch the database: a small pool for reads and a single writer
+ * that runs every mutation in the order it was submitted. A long write such as a CSV import no
+ * longer holds up the inventory list, and two writes can never interleave.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Write-ahead logging lets readers run on their own connections while the writer holds the write
+ * lock, so the read pool is sized to the connections SQLite keeps for readers. Queued reads are
+ * ordered by Priority - something the user is waiting to see goes ahead of background work - and
+ * can be cancelled before they start. Idle threads exit after a while and are recreated on demand.
+ */
+
+package com.austin.inventory;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class DatabaseScheduler {
+
+    public enum Priority {
+        // The user is looking at a screen waiting for this
+        USER_VISIBLE,
+        // Exports and other work nobody is watching
+        BACKGROUND
+    }
+
+    // Android keeps 4 connections per database in WAL mode, one of them for the writer
+    static final int READ_THREADS = 3;
+    private static final long IDLE_SECONDS = 30;
+
+    private final ThreadPoolExecutor readers;
+    private final ScheduledThreadPoolExecutor writer;
+    // Keeps reads of the same priority in the order they were submitted
+    private final AtomicLong sequence = new AtomicLong();
+
+    DatabaseScheduler(int readThreads) {
+        readers = new ThreadPoolExecutor(readThreads, readThreads, IDLE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), threadFactory("db-read-"));
+        readers.allowCoreThreadTimeOut(true);
+        writer = new ScheduledThreadPoolExecutor(1, threadFactory("db-write-"));
+        writer.setKeepAliveTime(IDLE_SECONDS, TimeUnit.SECONDS);
+        writer.allowCoreThreadTimeOut(true);
+        // Rescheduled flushes cancel the previous one - drop it rather than leave it queued
+        writer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Queue work that reads the database, or other disk work that does not write to it
+     * @param priority USER_VISIBLE work runs before any queued BACKGROUND work
+     * @param work the read
+     * @return cancel(false) on this stops the read if it has not started yet - anything the work
+     * throws is kept here too
+     */
+    public Future<?> read(Priority priority, Runnable work) {
+        ReadTask task = new ReadTask(work, priority, sequence.getAndIncrement());
+        readers.execute(task);
+        return task;
+    }
+
+    /**
+     * Queue a database mutation - runs on the writer thread after every write submitted before it
+     * @param work the write
+     * @return holds anything the work throws
+     */
+    public Future<?> write(Runnable work) {
+        return writer.submit(work);
+    }
+
+    /**
+     * The writer thread as a scheduler, for delayed writes that must stay in order with the others
+     */
+    public ScheduledExecutorService writer() {
+        return writer;
+    }
+
+    /**
+     * Stop taking work and wait for anything already queued - used by tests
+     * @return "true" if everything finished within the timeout
+     */
+    boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        readers.shutdown();
+        writer.shutdown();
+        return readers.awaitTermination(timeout, unit) && writer.awaitTermination(timeout, unit);
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A queued read, ordered by priority and then by submission
+     */
+    private static final class ReadTask extends FutureTask<Void> implements Comparable<ReadTask> {
+
+        private final Priority priority;
+        private final long sequence;
+
+        ReadTask(Runnable work, Priority priority, long sequence) {
+            super(work, null);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ReadTask other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.austin.inventory;
+
+/**
+ * Turns text typed in the search box into an FTS4 MATCH expression
+ * Documentation: https://www.sqlite.org/fts3.html#full_text_index_queries
+ */
+final class FtsQuery {
+
+    private FtsQuery() {}
+
+    /**
+     * Every word becomes a prefix term and all of them must match, so "Red bol" finds "red bolts"
+     * Words are split and folded the way the "simple" tokenizer the index uses does it - only ASCII
+     * letters and digits are recognised and only A-Z is lower cased, while every non-ASCII character
+     * is kept as part of a word unchanged, so an accented capital only matches the same capital
+     * Characters the tokenizer would split on are dropped, which also strips FTS operators and quotes
+     * @param input raw search text
+     * @return MATCH expression, empty if the input has no letters or digits
+     */
+    static String prefixMatch(String input) {
+        StringBuilder match = new StringBuilder();
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= input.length(); i++) {
+            char c = i < input.length() ? input.charAt(i) : ' ';
+            if (c >= 'A' && c <= 'Z') {
+                // Lower case so a word like "or" is never read as an operator - the tokenizer folds case anyway
+                term.append((char) (c + ('a' - 'A')));
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c >= 0x80) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                if (match.length() > 0) match.append(' ');
+                match.append(term).append('*');
+                term.setLength(0);
+            }
+        }
+        return match.toString();
+    }
+}
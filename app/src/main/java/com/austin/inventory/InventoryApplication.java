@@ -0,0 +1,47 @@
+/**
+ * InventoryApplication.java
+ *
+ * This class sets up process-wide policies before any screen starts. Debug builds turn on StrictMode
+ * disk checks and put the MainThreadIoGuard in LOG mode, so database or file access on the main
+ * thread shows up in logcat with the call site that made it.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Release builds leave both off.
+ * Documentation: https://developer.android.com/reference/android/os/StrictMode
+ */
+
+package com.austin.inventory;
+
+import android.app.Application;
+import android.os.StrictMode;
+
+public class InventoryApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if (BuildConfig.DEBUG) {
+            enableStrictMode();
+            MainThreadIoGuard.getInstance().setMode(MainThreadIoGuard.Mode.LOG);
+        }
+    }
+
+    /**
+     * Log disk reads and writes on the main thread, and database cursors or streams that are never
+     * closed - StrictMode also catches SharedPreferences and file access the guard cannot see
+     */
+    private static void enableStrictMode() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .penaltyLog()
+                .build());
+        StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                .detectLeakedSqlLiteObjects()
+                .detectLeakedClosableObjects()
+                .penaltyLog()
+                .build());
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * InventoryCache.java
+ *
+ * This class keeps an in-memory copy of the inventory rows each user has loaded, in the order they
+ * are shown. It lives for the whole process, so coming back to the inventory screen is served from
+ * memory instead of re-querying the database.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * The cache is write-through: InventoryRepository updates it alongside every insert, update, delete
+ * and quantity change, so it only goes stale if the database is changed behind the repository's back.
+ *
+ * Rows are held in columnar InventorySnapshot.Builder form and edited in place. get() hands out an
+ * immutable snapshot that is only rebuilt after a change, so returning to the screen copies nothing.
+ *
+ * Each entry remembers the last row of the last page as the database returned it, which is where
+ * the next page starts. Rows written to the database that sort after it are left for a later page.
+ * A row moved there by a tap that has not been written yet is kept instead, and replaced when it
+ * arrives with a page.
+ */
+
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class InventoryCache {
+
+    private static final class Entry {
+        final InventorySort sort;
+        final InventorySnapshot.Builder items;
+        // "true" once the last page has been loaded
+        boolean complete;
+        // Last row loaded, as the database returned it - null once complete
+        @Nullable
+        InventoryItem cursor;
+        // Last snapshot handed out by get(), null after any change
+        @Nullable
+        InventorySnapshot published;
+
+        Entry(InventorySort sort, InventorySnapshot firstPage) {
+            this.sort = sort;
+            items = new InventorySnapshot.Builder(firstPage.size());
+            items.addAll(firstPage);
+        }
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /**
+     * Everything loaded so far for a user in the given order
+     * @return snapshot of the cached rows, null if nothing is cached for that order
+     */
+    @Nullable
+    synchronized InventoryPage get(String userEmail, InventorySort sort) {
+        Entry entry = entries.get(userEmail);
+        if (entry == null || entry.sort != sort) {
+            return null;
+        }
+        if (entry.published == null) {
+            entry.published = entry.items.build();
+        }
+        return new InventoryPage(entry.published, entry.complete, entry.cursor);
+    }
+
+    /**
+     * Start a user's cache over from a freshly loaded first page
+     * @param cursor last row of the page as the database returned it, null if the page is empty
+     */
+    synchronized void putFirstPage(String userEmail, InventorySort sort, InventorySnapshot items, boolean last, @Nullable InventoryItem cursor) {
+        Entry entry = new Entry(sort, items);
+        entry.complete = last;
+        entry.cursor = last ? null : cursor;
+        entry.published = items;
+        entries.put(userEmail, entry);
+    }
+
+    /**
+     * Add the next page loaded for a user - ignored if the cache was reset in the meantime
+     * @param cursor last row of the page as the database returned it, null if the page is empty
+     */
+    synchronized void appendPage(String userEmail, InventorySort sort, InventorySnapshot page, boolean last, @Nullable InventoryItem cursor) {
+        Entry entry = entries.get(userEmail);
+        if (entry == null || entry.sort != sort) {
+            return;
+        }
+        // Rows kept past the old cursor are all at the end - without any the page goes straight on
+        int kept = 0;
+        if (entry.cursor != null) {
+            int at = entry.items.search(entry.sort, entry.cursor.getId(), entry.cursor.getName(), entry.cursor.getQuantity());
+            kept = entry.items.size() - (at >= 0 ? at + 1 : -at - 1);
+        }
+        if (kept == 0) {
+            entry.items.addAll(page);
+        } else {
+            for (int i = 0; i < page.size(); i++) {
+                InventoryItem item = page.getItem(i);
+                remove(entry, item.getId());
+                insert(entry, item);
+            }
+        }
+        entry.complete = last;
+        if (last) {
+            entry.cursor = null;
+        } else if (cursor != null) {
+            entry.cursor = cursor;
+        }
+        entry.published = null;
+    }
+
+    synchronized void itemInserted(String userEmail, InventoryItem item) {
+        Entry entry = entries.get(userEmail);
+        if (entry != null) {
+            place(entry, item, false);
+        }
+    }
+
+    synchronized void itemUpdated(InventoryItem item) {
+        for (Entry entry : entries.values()) {
+            InventoryItem old = remove(entry, item.getId());
+            if (old != null) {
+                // An edit does not change how fast the item has been used
+                place(entry, new InventoryItem(item.getId(), item.getName(), item.getQuantity(), item.getReorderThreshold(), old.getUsageRate()), false);
+            }
+        }
+    }
+
+    synchronized void itemDeleted(int id) {
+        for (Entry entry : entries.values()) {
+            remove(entry, id);
+        }
+    }
+
+    synchronized void quantityChanged(int id, int delta) {
+        for (Entry entry : entries.values()) {
+            int index = entry.items.indexOf(id);
+            if (index == -1) {
+                continue;
+            }
+            int oldQuantity = entry.items.getQuantity(index);
+            int quantity = Math.max(0, oldQuantity + delta);
+            // Same update the database makes when the change is flushed, so the forecast moves with the tap
+            double usageRate = quantity < oldQuantity
+                    ? UsageForecast.afterUse(entry.items.getUsageRate(index), oldQuantity - quantity)
+                    : entry.items.getUsageRate(index);
+            if (entry.sort == InventorySort.QUANTITY) {
+                // Not written yet, so a later page would not bring it back - kept even past the cursor
+                InventoryItem old = remove(entry, id);
+                place(entry, new InventoryItem(id, old.getName(), quantity, old.getReorderThreshold(), usageRate), true);
+            } else {
+                // Name order does not depend on quantity, so the row stays where it is
+                entry.items.setQuantity(index, quantity);
+                entry.items.setUsageRate(index, usageRate);
+                entry.published = null;
+            }
+        }
+    }
+
+    synchronized void invalidate(String userEmail) {
+        entries.remove(userEmail);
+    }
+
+    @Nullable
+    private static InventoryItem remove(Entry entry, int id) {
+        int index = entry.items.indexOf(id);
+        if (index == -1) {
+            return null;
+        }
+        InventoryItem removed = entry.items.getItem(index);
+        entry.items.remove(index);
+        entry.published = null;
+        return removed;
+    }
+
+    /**
+     * Insert an item at its sorted position
+     * @param keep "true" to keep an item that sorts after the cursor - otherwise it is left out
+     *             because it is in the database and will arrive with a later page
+     */
+    private static void place(Entry entry, InventoryItem item, boolean keep) {
+        if (!keep && entry.cursor != null && entry.sort.comparator().compare(item, entry.cursor) > 0) {
+            return;
+        }
+        insert(entry, item);
+    }
+
+    private static void insert(Entry entry, InventoryItem item) {
+        int position = position(entry, item);
+        entry.published = null;
+        if (position < entry.items.size() && entry.items.getId(position) == item.getId()) {
+            entry.items.set(position, item);
+            return;
+        }
+        entry.items.insert(position, item.getId(), item.getName(), item.getQuantity(), item.getReorderThreshold(), item.getUsageRate());
+    }
+
+    /**
+     * @return row of the item if it is cached with the same sort key, otherwise where it would go
+     */
+    private static int position(Entry entry, InventoryItem item) {
+        int position = entry.items.search(entry.sort, item.getId(), item.getName(), item.getQuantity());
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * InventoryContract.java
+ *
+ * This class holds the database schema names and the SQL shared by every store implementation -
+ * the Android DatabaseHelper and the desktop JDBC store used for benchmarks run the same queries.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Arguments are always bound as strings, as SQLiteDatabase.rawQuery does, so comparisons against
+ * numeric columns behave the same under both drivers.
+ */
+
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class InventoryContract {
+
+    static final int DATABASE_VERSION = 12;
+
+    // Number of inventory rows returned per page
+    static final int PAGE_SIZE = 100;
+
+    // Maximum number of rows returned by a search
+    static final int SEARCH_LIMIT = 200;
+
+    // Ids bound per IN (...) query - SQLite before 3.32 allows at most 999 arguments per statement
+    static final int MAX_IDS_PER_QUERY = 500;
+
+    /**
+     * Runs one statement - implemented by each store so schema steps are not tied to a driver
+     */
+    interface SqlRunner {
+        void execSQL(String sql);
+    }
+
+    // Users table - keyed by COLUMN_ID, emails are unique
+    static final String TABLE_USERS = "allusers";
+    static final String COLUMN_EMAIL = "email";
+    static final String COLUMN_PASSWORD = "password";
+    static final String COLUMN_PHONE = "phone";
+    static final String COLUMN_2FA_ENABLED = "two_fa_enabled";
+
+    // Inventory table
+    static final String TABLE_INVENTORY = "inventory";
+    static final String COLUMN_ID = "id";
+    static final String COLUMN_NAME = "name";
+    static final String COLUMN_QUANTITY = "quantity";
+    // Owner of the row, references the users table id
+    static final String COLUMN_USER_ID = "user_id";
+    // Owner column before version 12 - only the migration steps that ran against it still use it
+    static final String COLUMN_USER_EMAIL = "user_email";
+    // NULL when the item uses the global minimum inventory setting
+    static final String COLUMN_REORDER_THRESHOLD = "reorder_threshold";
+    // Units used per day as of usage_updated_at (see UsageForecast), NULL until the item is first used
+    static final String COLUMN_USAGE_RATE = "usage_rate";
+    // Epoch milliseconds of the last use counted in usage_rate
+    static final String COLUMN_USAGE_UPDATED_AT = "usage_updated_at";
+
+    // Append-only log of quantity changes - one row per item per QuantityWriteBuffer flush
+    static final String TABLE_QUANTITY_HISTORY = "quantity_history";
+    static final String COLUMN_ITEM_ID = "item_id";
+    // Change actually applied, after clamping at zero
+    static final String COLUMN_DELTA = "delta";
+    // Epoch milliseconds
+    static final String COLUMN_CHANGED_AT = "changed_at";
+
+    // One row per user with running totals kept current by triggers on inventory
+    static final String TABLE_INVENTORY_SUMMARY = "inventory_summary";
+    static final String COLUMN_ITEM_COUNT = "item_count";
+    static final String COLUMN_TOTAL_UNITS = "total_units";
+    static final String COLUMN_OUT_OF_STOCK_COUNT = "out_of_stock_count";
+    static final String COLUMN_LOW_STOCK_COUNT = "low_stock_count";
+
+    // App-wide values the triggers need - SharedPreferences cannot be read from SQL
+    static final String TABLE_APP_SETTINGS = "app_settings";
+    static final String COLUMN_SETTING = "setting";
+    static final String COLUMN_VALUE = "value";
+    // Copy of the global minimum inventory setting, used for items without a reorder threshold
+    static final String SETTING_DEFAULT_THRESHOLD = "default_threshold";
+    // Sequence of the last QuantityWriteBuffer batch written - no row until the first batch
+    static final String SETTING_APPLIED_QUANTITY_BATCH = "applied_quantity_batch";
+
+    // Full-text index over inventory names
+    static final String TABLE_INVENTORY_FTS = "inventory_fts";
+
+    // Columns read into an InventoryItem, in order: id, name, quantity, reorder threshold (nullable),
+    // usage rate (nullable), usage updated at (nullable)
+    static final String ITEM_COLUMNS = COLUMN_ID + ", " + COLUMN_NAME + ", " + COLUMN_QUANTITY + ", " + COLUMN_REORDER_THRESHOLD
+            + ", " + COLUMN_USAGE_RATE + ", " + COLUMN_USAGE_UPDATED_AT;
+
+    // Args: user email - the owner's id, looked up once per statement through the unique email index
+    private static final String USER_ID_FOR_EMAIL = "(SELECT " + COLUMN_ID + " FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ?)";
+    // Args: user email
+    private static final String FOR_USER = COLUMN_USER_ID + " = " + USER_ID_FOR_EMAIL;
+
+    // Items with their own threshold - written to match the expression index idx_inventory_user_shortfall
+    private static final String LOW_STOCK_WITH_THRESHOLD = FOR_USER + " AND " + COLUMN_QUANTITY + " - " + COLUMN_REORDER_THRESHOLD + " <= 0";
+    // Items using the global minimum - a range on idx_inventory_user_threshold
+    private static final String LOW_STOCK_WITHOUT_THRESHOLD = FOR_USER + " AND " + COLUMN_REORDER_THRESHOLD + " IS NULL AND " + COLUMN_QUANTITY + " <= ?";
+
+    // Stored default threshold, as a scalar subquery
+    static final String DEFAULT_THRESHOLD_VALUE = "(SELECT " + COLUMN_VALUE + " FROM " + TABLE_APP_SETTINGS
+            + " WHERE " + COLUMN_SETTING + " = '" + SETTING_DEFAULT_THRESHOLD + "')";
+
+    //region User SQL
+    // Args: email
+    static final String SQL_USER_EXISTS = "SELECT 1 FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ? LIMIT 1";
+    // Args: email - returns password, phone, 2FA flag
+    static final String SQL_USER_RECORD = "SELECT " + COLUMN_PASSWORD + ", " + COLUMN_PHONE + ", " + COLUMN_2FA_ENABLED + " FROM " + TABLE_USERS + " WHERE " + COLUMN_EMAIL + " = ?";
+    //endregion
+
+    //region Inventory SQL
+    // Args: name, quantity, user email, reorder threshold
+    static final String SQL_INSERT_ITEM = "INSERT INTO " + TABLE_INVENTORY + " (" + COLUMN_NAME + ", " + COLUMN_QUANTITY + ", " + COLUMN_USER_ID + ", " + COLUMN_REORDER_THRESHOLD + ") VALUES (?, ?, "
+            + USER_ID_FOR_EMAIL + ", ?)";
+    // Args: name, reorder threshold, id - the quantity is written with SQL_SET_QUANTITY_AND_USAGE so the change is in the history
+    static final String SQL_UPDATE_ITEM_DETAILS = "UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_NAME + " = ?, " + COLUMN_REORDER_THRESHOLD + " = ? WHERE " + COLUMN_ID + " = ?";
+    // Args: name, id
+    static final String SQL_RENAME_ITEM = "UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_NAME + " = ? WHERE " + COLUMN_ID + " = ?";
+    // Args: id
+    static final String SQL_DELETE_ITEM = "DELETE FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_ID + " = ?";
+    // Args: quantity, usage rate, usage updated at, id
+    static final String SQL_SET_QUANTITY_AND_USAGE = "UPDATE " + TABLE_INVENTORY + " SET " + COLUMN_QUANTITY + " = ?, " + COLUMN_USAGE_RATE + " = ?, "
+            + COLUMN_USAGE_UPDATED_AT + " = ? WHERE " + COLUMN_ID + " = ?";
+    // Args: item id, delta, changed at
+    static final String SQL_INSERT_HISTORY = "INSERT INTO " + TABLE_QUANTITY_HISTORY + " (" + COLUMN_ITEM_ID + ", " + COLUMN_DELTA + ", " + COLUMN_CHANGED_AT + ") VALUES (?, ?, ?)";
+
+    // Args: user email, user email, default threshold
+    static final String SQL_LOW_STOCK_ITEMS = "SELECT " + ITEM_COLUMNS + " FROM " + TABLE_INVENTORY + " WHERE " + LOW_STOCK_WITH_THRESHOLD
+            + " UNION ALL SELECT " + ITEM_COLUMNS + " FROM " + TABLE_INVENTORY + " WHERE " + LOW_STOCK_WITHOUT_THRESHOLD
+            + " ORDER BY " + COLUMN_QUANTITY + ", " + COLUMN_ID;
+    // Args: user email, user email, default threshold
+    static final String SQL_COUNT_LOW_STOCK = "SELECT (SELECT COUNT(*) FROM " + TABLE_INVENTORY + " WHERE " + LOW_STOCK_WITH_THRESHOLD
+            + ") + (SELECT COUNT(*) FROM " + TABLE_INVENTORY + " WHERE " + LOW_STOCK_WITHOUT_THRESHOLD + ")";
+
+    // Args: user email - returns item count, total units, out of stock count, low stock count
+    static final String SQL_SUMMARY = "SELECT " + COLUMN_ITEM_COUNT + ", " + COLUMN_TOTAL_UNITS + ", " + COLUMN_OUT_OF_STOCK_COUNT + ", " + COLUMN_LOW_STOCK_COUNT
+            + " FROM " + TABLE_INVENTORY_SUMMARY + " WHERE " + FOR_USER;
+    static final String SQL_DEFAULT_THRESHOLD = "SELECT " + DEFAULT_THRESHOLD_VALUE;
+    // Args: default threshold
+    static final String SQL_SET_DEFAULT_THRESHOLD = "UPDATE " + TABLE_APP_SETTINGS + " SET " + COLUMN_VALUE + " = ? WHERE " + COLUMN_SETTING + " = '" + SETTING_DEFAULT_THRESHOLD + "'";
+    static final String SQL_APPLIED_QUANTITY_BATCH = "SELECT " + COLUMN_VALUE + " FROM " + TABLE_APP_SETTINGS + " WHERE " + COLUMN_SETTING + " = '" + SETTING_APPLIED_QUANTITY_BATCH + "'";
+    // Args: batch sequence
+    static final String SQL_SET_APPLIED_QUANTITY_BATCH = "INSERT OR REPLACE INTO " + TABLE_APP_SETTINGS + " (" + COLUMN_SETTING + ", " + COLUMN_VALUE + ") VALUES ('"
+            + SETTING_APPLIED_QUANTITY_BATCH + "', ?)";
+    // Args: default threshold - recounts every user with the same two index ranges as SQL_COUNT_LOW_STOCK
+    static final String SQL_RECOUNT_LOW_STOCK = "UPDATE " + TABLE_INVENTORY_SUMMARY + " SET " + COLUMN_LOW_STOCK_COUNT + " = (SELECT COUNT(*) FROM " + TABLE_INVENTORY
+            + " WHERE " + COLUMN_USER_ID + " = " + TABLE_INVENTORY_SUMMARY + "." + COLUMN_USER_ID + " AND " + COLUMN_QUANTITY + " - " + COLUMN_REORDER_THRESHOLD + " <= 0)"
+            + " + (SELECT COUNT(*) FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_USER_ID + " = " + TABLE_INVENTORY_SUMMARY + "." + COLUMN_USER_ID
+            + " AND " + COLUMN_REORDER_THRESHOLD + " IS NULL AND " + COLUMN_QUANTITY + " <= ?)";
+
+    private InventoryContract() {}
+
+    /**
+     * Every item for a user - args: user email
+     */
+    static String itemsForUserSql(InventorySort sort) {
+        return "SELECT " + ITEM_COLUMNS + " FROM " + TABLE_INVENTORY + " WHERE " + FOR_USER + " ORDER BY " + orderBy(sort);
+    }
+
+    /**
+     * Current quantity and usage of several items - args: one id per placeholder
+     * Returns id, quantity, usage rate (nullable), usage updated at (nullable)
+     * @param count number of ids
+     */
+    static String quantityAndUsageSql(int count) {
+        StringBuilder sql = new StringBuilder("SELECT " + COLUMN_ID + ", " + COLUMN_QUANTITY + ", " + COLUMN_USAGE_RATE + ", " + COLUMN_USAGE_UPDATED_AT
+                + " FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_ID + " IN (");
+        for (int i = 0; i < count; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * Items matching a full-text query - args: FtsQuery MATCH expression, user email
+     */
+    static String searchSql(InventorySort sort) {
+        return "SELECT " + ITEM_COLUMNS + " FROM " + TABLE_INVENTORY
+                + " WHERE " + COLUMN_ID + " IN (SELECT docid FROM " + TABLE_INVENTORY_FTS + " WHERE " + TABLE_INVENTORY_FTS + " MATCH ?)"
+                + " AND " + FOR_USER + " ORDER BY " + orderBy(sort) + " LIMIT " + SEARCH_LIMIT;
+    }
+
+    /**
+     * One keyset page of a user's inventory - args from pageArgs
+     * Uses the last item of the previous page as a keyset so each page is an index range scan
+     * no matter how deep the user has scrolled
+     * @param sort order of the list
+     * @param hasAfter "true" for every page after the first
+     * @param limit maximum number of items to return
+     */
+    static String pageSql(InventorySort sort, boolean hasAfter, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + ITEM_COLUMNS + " FROM " + TABLE_INVENTORY + " WHERE " + FOR_USER);
+        if (hasAfter) {
+            // The >= bound is what SQLite seeks on - an OR across the whole keyset scans from the start of the user's rows
+            if (sort == InventorySort.QUANTITY) {
+                sql.append(" AND " + COLUMN_QUANTITY + " >= ? AND (" + COLUMN_QUANTITY + " > ? OR " + COLUMN_ID + " > ?)");
+            } else {
+                sql.append(" AND " + COLUMN_NAME + " >= ? COLLATE NOCASE AND (" + COLUMN_NAME + " > ? COLLATE NOCASE OR " + COLUMN_ID + " > ?)");
+            }
+        }
+        return sql.append(" ORDER BY ").append(orderBy(sort)).append(" LIMIT ").append(limit).toString();
+    }
+
+    /**
+     * Arguments for pageSql
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @param after last item of the previous page, null for the first page
+     */
+    static String[] pageArgs(String userEmail, InventorySort sort, @Nullable InventoryItem after) {
+        List<String> args = new ArrayList<>(4);
+        args.add(userEmail);
+        if (after != null) {
+            String key = sort == InventorySort.QUANTITY ? String.valueOf(after.getQuantity()) : after.getName();
+            args.add(key);
+            args.add(key);
+            args.add(String.valueOf(after.getId()));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    /**
+     * ORDER BY clause for a sort - must match the indexes created in DatabaseMigrations and InventorySort's comparators
+     */
+    static String orderBy(InventorySort sort) {
+        if (sort == InventorySort.QUANTITY) {
+            return COLUMN_QUANTITY + ", " + COLUMN_ID;
+        }
+        return COLUMN_NAME + " COLLATE NOCASE, " + COLUMN_ID;
+    }
+    //endregion
+}
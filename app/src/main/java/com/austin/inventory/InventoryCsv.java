@@ -0,0 +1,418 @@
+/**
+ * InventoryCsv.java
+ *
+ * This class imports and exports a user's inventory as CSV. Rows are streamed one at a time in both
+ * directions, so memory use depends on the chunk size and not on the size of the file.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Format: an optional header row "name,quantity,reorder_threshold", then one item per row. Fields
+ * follow RFC 4180 - fields containing commas, quotes or line breaks are wrapped in double quotes
+ * with inner quotes doubled. A blank reorder threshold means the item uses the global minimum.
+ * Documentation: https://www.rfc-editor.org/rfc/rfc4180
+ *
+ * Imports are handed to a Sink a chunk at a time and each chunk is written in its own transaction,
+ * so a failure part way through a large file keeps the chunks already written.
+ */
+
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class InventoryCsv {
+
+    static final String HEADER = "name,quantity,reorder_threshold";
+
+    // Rows written per transaction during an import
+    static final int CHUNK_SIZE = 2_000;
+
+    // Only the first bad rows are kept so a broken file cannot fill memory with errors
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    /**
+     * Destination for imported rows - must write each chunk in a single transaction
+     */
+    public interface Sink {
+        /**
+         * @return row id of each item in chunk order, -1 for rows that failed
+         */
+        long[] insert(List<InventoryItem> chunk);
+    }
+
+    /**
+     * Pages of items to export, in a stable order
+     */
+    public interface Source {
+        /**
+         * @param after last item of the previous page, null for the first page
+         * @param limit maximum number of items to return
+         * @return next page, shorter than limit once the end is reached
+         */
+        List<InventoryItem> page(@Nullable InventoryItem after, int limit);
+    }
+
+    /**
+     * Told how many data rows have been read after each chunk is written
+     */
+    public interface Progress {
+        void onProgress(int rowsRead);
+    }
+
+    /**
+     * A row that could not be imported
+     */
+    public static final class RowError {
+        // Line the row starts on, counting from 1
+        public final int line;
+        public final String message;
+
+        RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static final class ImportResult {
+        public final int imported;
+        public final int failed;
+        // The first MAX_REPORTED_ERRORS failures, in file order
+        public final List<RowError> errors;
+
+        ImportResult(int imported, int failed, List<RowError> errors) {
+            this.imported = imported;
+            this.failed = failed;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+    }
+
+    private InventoryCsv() {}
+
+    /**
+     * Read items from CSV and write them to the sink a chunk at a time
+     * @param reader CSV text - read to the end but not closed
+     * @param sink receives each chunk of valid items
+     * @param chunkSize number of items per chunk
+     * @param progress told the number of rows read after each chunk, may be null
+     * @return number of items imported and the rows that were skipped
+     * @throws IOException if the reader fails - chunks already written are kept
+     */
+    public static ImportResult importFrom(Reader reader, Sink sink, int chunkSize, @Nullable Progress progress) throws IOException {
+        RecordReader records = new RecordReader(reader);
+        List<InventoryItem> chunk = new ArrayList<>(chunkSize);
+        int[] chunkLines = new int[chunkSize];
+        List<RowError> errors = new ArrayList<>();
+        int imported = 0;
+        int failed = 0;
+        int rowsRead = 0;
+        boolean first = true;
+
+        List<String> fields;
+        while ((fields = records.next()) != null) {
+            int line = records.recordLine();
+            if (first) {
+                first = false;
+                if (!fields.isEmpty() && fields.get(0).trim().equalsIgnoreCase("name")) {
+                    continue;
+                }
+            }
+            rowsRead++;
+
+            InventoryItem item;
+            try {
+                item = parseItem(fields);
+            } catch (IllegalArgumentException e) {
+                failed++;
+                addError(errors, line, e.getMessage());
+                continue;
+            }
+
+            chunkLines[chunk.size()] = line;
+            chunk.add(item);
+            if (chunk.size() == chunkSize) {
+                int written = writeChunk(sink, chunk, chunkLines, errors);
+                imported += written;
+                failed += chunk.size() - written;
+                chunk.clear();
+                if (progress != null) {
+                    progress.onProgress(rowsRead);
+                }
+            }
+        }
+
+        if (!chunk.isEmpty()) {
+            int written = writeChunk(sink, chunk, chunkLines, errors);
+            imported += written;
+            failed += chunk.size() - written;
+        }
+        if (progress != null) {
+            progress.onProgress(rowsRead);
+        }
+        return new ImportResult(imported, failed, errors);
+    }
+
+    /**
+     * Write every item from the source as CSV, one page at a time
+     * @param writer destination - flushed but not closed
+     * @param source pages of items in a stable order
+     * @param pageSize number of items read per page
+     * @return number of items written
+     * @throws IOException if the writer fails
+     */
+    public static int exportTo(Writer writer, Source source, int pageSize) throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+
+        int written = 0;
+        InventoryItem after = null;
+        List<InventoryItem> page;
+        do {
+            page = source.page(after, pageSize);
+            for (int i = 0; i < page.size(); i++) {
+                InventoryItem item = page.get(i);
+                writeField(writer, item.getName());
+                writer.write(',');
+                writer.write(Integer.toString(item.getQuantity()));
+                writer.write(',');
+                if (item.getReorderThreshold() != InventoryItem.NO_THRESHOLD) {
+                    writer.write(Integer.toString(item.getReorderThreshold()));
+                }
+                writer.write("\r\n");
+            }
+            written += page.size();
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == pageSize);
+
+        writer.flush();
+        return written;
+    }
+
+    /**
+     * Build an item from one row - throws IllegalArgumentException with a message fit for the user
+     */
+    private static InventoryItem parseItem(List<String> fields) {
+        if (fields.size() < 2) {
+            throw new IllegalArgumentException("Expected a name and a quantity");
+        }
+        // Spaces are part of a field in RFC 4180, only the numbers are trimmed
+        String name = fields.get(0);
+        int quantity;
+        try {
+            quantity = Integer.parseInt(fields.get(1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quantity \"" + fields.get(1) + "\"");
+        }
+        int threshold = InventoryItem.NO_THRESHOLD;
+        if (fields.size() > 2 && !InventoryItem.isBlank(fields.get(2))) {
+            try {
+                threshold = Integer.parseInt(fields.get(2).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid reorder threshold \"" + fields.get(2) + "\"");
+            }
+        }
+        return new InventoryItem(0, name, quantity, threshold);
+    }
+
+    /**
+     * Hand a chunk to the sink and record the rows it rejected
+     * @return number of rows written
+     */
+    private static int writeChunk(Sink sink, List<InventoryItem> chunk, int[] chunkLines, List<RowError> errors) {
+        long[] ids = sink.insert(chunk);
+        int written = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == -1) {
+                addError(errors, chunkLines[i], "Could not be saved");
+            } else {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    private static void addError(List<RowError> errors, int line, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    /**
+     * Quote a field only when it needs it, so plain names stay readable in a text editor
+     */
+    private static void writeField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /**
+     * Splits CSV text into records with its own buffer - fields may be quoted and span lines
+     * Not thread-safe, the field list is reused between records
+     */
+    static final class RecordReader {
+        private final Reader reader;
+        private final char[] buffer = new char[8192];
+        private int position;
+        private int limit;
+
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private int line = 1;
+        private int recordLine;
+        private boolean started;
+
+        RecordReader(Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Line the last record returned by next() starts on
+         */
+        int recordLine() {
+            return recordLine;
+        }
+
+        /**
+         * Read the next record, skipping blank lines
+         * @return fields of the record - reused by the next call, null at the end of the input
+         */
+        @Nullable
+        List<String> next() throws IOException {
+            while (true) {
+                int c = read();
+                if (!started) {
+                    started = true;
+                    // Spreadsheet apps often start UTF-8 files with a byte order mark
+                    if (c == '\uFEFF') {
+                        c = read();
+                    }
+                }
+                if (c == -1) {
+                    return null;
+                }
+                if (c == '\n' || c == '\r') {
+                    endOfLine(c);
+                    continue;
+                }
+                recordLine = line;
+                fields.clear();
+                readRecord(c);
+                return fields;
+            }
+        }
+
+        private void readRecord(int c) throws IOException {
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        // Unclosed quote - keep what was read
+                        fields.add(field.toString());
+                        return;
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c == '"') {
+                            field.append('"');
+                            c = read();
+                        } else {
+                            quoted = false;
+                        }
+                        continue;
+                    }
+                    if (c == '\n' || c == '\r') {
+                        field.append((char) c);
+                        if (c == '\n' || peek() != '\n') {
+                            line++;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                    c = read();
+                    continue;
+                }
+
+                if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    fields.add(field.toString());
+                    if (c != -1) {
+                        endOfLine(c);
+                    }
+                    return;
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        /**
+         * Count a line break, treating \r\n as one
+         */
+        private void endOfLine(int c) throws IOException {
+            if (c == '\r' && peek() == '\n') {
+                read();
+            }
+            line++;
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int count = reader.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = count;
+            return true;
+        }
+    }
+}
@@ -9,21 +9,21 @@
  * Utilizes executor service for Asynchronous tasks
  * Documentation: https://developer.android.com/reference/java/util/concurrent/ExecutorService
  *
- * Utilizes smsManager for sending SMS - Update to Twilio in future
- * Documentation: https://developer.android.com/reference/android/telephony/SmsManager
+ * Low stock SMS alerts are batched into digests by AlertDispatcher
+ *
+ * The list binds straight from a columnar InventorySnapshot - no InventoryItem is created per row
  */
 
 package com.austin.inventory;
 
-import android.annotation.SuppressLint;
 import android.app.AlertDialog;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.net.Uri;
 import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.os.Handler;
 import android.os.Looper;
-import android.telephony.SmsManager;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
@@ -32,9 +32,13 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.WindowManager;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.appcompat.widget.SearchView;
 import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -45,57 +49,165 @@ import com.austin.inventory.databinding.FragmentInventoryBinding;
 import com.austin.inventory.databinding.ItemDataBinding;
 import com.google.android.material.snackbar.Snackbar;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class InventoryFragment extends Fragment {
 
-    private ExecutorService executorService;
-    private Handler handler;
-    private DatabaseHelper databaseHelper;
+    private InventoryRepository inventoryRepository;
+    private AppExecutors executors;
     private FragmentInventoryBinding binding;
     private InventoryItemAdapter adapter;
     private String currentUserEmail;
+    private InventorySort currentSort;
+    // Bumped on every refresh so pages from an older load are dropped
+    private int listGeneration;
+    // Where the next page starts - the last row the database returned, not the last row shown,
+    // which may hold taps that have not been written yet
+    @Nullable
+    private InventoryItem nextPageCursor;
+    // System.nanoTime() when the refresh being timed started, 0 when none is in flight
+    private long refreshStartNanos;
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
     SharedPreferences preferences;
+    private SettingsStore settingsStore;
+
+    // Showing only items at or below their reorder threshold
+    private boolean lowStockOnly;
+    private MenuItem lowStockMenuItem;
+
+    // Totals for the header and the low stock count on the menu
+    private InventorySummary summary = InventorySummary.EMPTY;
+    // Bumped on every summary request, and on every tap that changes summary locally
+    private int summaryRequest;
+    private int summaryEdits;
+
+    // Text in the search box, null when not searching
+    private String searchQuery;
+    private CancellationSignal searchCancellation;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::refreshItemList;
+
+    // Document pickers for CSV import and export
+    private ActivityResultLauncher<String[]> importCsvLauncher;
+    private ActivityResultLauncher<String> exportCsvLauncher;
+
+    // Start loading the next page when the user is this many rows from the end
+    private static final int PREFETCH_DISTANCE = 20;
+    // Wait this long after the last keystroke before searching
+    private static final long SEARCH_DEBOUNCE_MS = 250;
 
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         binding = FragmentInventoryBinding.inflate(inflater, container, false);
-        databaseHelper = new DatabaseHelper(getContext());
 
         // Retrieve the email of the currently logged-in user
-        currentUserEmail = preferences.getString("logged_in_user_email", null);
+        currentUserEmail = settingsStore.get().loggedInUserEmail;
+
+        // Restore the last sort order chosen
+        currentSort = readSavedSort();
 
         // Set title in navbar
         requireActivity().setTitle(getString(R.string.inventory_title));
 
         setupRecyclerView();
 
-        refreshItemList();
-
+        // The list is loaded in onResume
         return binding.getRoot();
     }
 
     @Override
     public void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        executorService = Executors.newSingleThreadExecutor();
-        handler = new Handler(Looper.getMainLooper());
         setHasOptionsMenu(true);
         preferences = requireActivity().getSharedPreferences("user_prefs", Context.MODE_PRIVATE);
+        settingsStore = SettingsStore.getInstance(requireContext());
+        inventoryRepository = InventoryRepository.getInstance(requireContext());
+        executors = AppExecutors.getInstance();
+        importCsvLauncher = registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importCsv);
+        exportCsvLauncher = registerForActivityResult(new ActivityResultContracts.CreateDocument("text/csv"), this::exportCsv);
+    }
+
+    /**
+     * Read the sort order saved by applySort
+     * @return saved sort, name order if none has been chosen
+     */
+    private InventorySort readSavedSort() {
+        String saved = preferences.getString("inventory_sort", InventorySort.NAME.name());
+        try {
+            return InventorySort.valueOf(saved);
+        } catch (IllegalArgumentException e) {
+            return InventorySort.NAME;
+        }
     }
 
     @Override
     public void onCreateOptionsMenu(@NonNull Menu menu, MenuInflater inflater) {
         inflater.inflate(R.menu.menu_sort, menu);
+        setupSearchView(menu.findItem(R.id.action_search));
+        lowStockMenuItem = menu.findItem(R.id.action_low_stock);
+        updateLowStockMenuItem();
         super.onCreateOptionsMenu(menu, inflater);
     }
 
+    /**
+     * Search as the user types - queries run once typing pauses and a newer query cancels the one in flight
+     * @param searchItem search action in the options menu
+     */
+    private void setupSearchView(MenuItem searchItem) {
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+
+        if (searchQuery != null) {
+            searchItem.expandActionView();
+            searchView.setQuery(searchQuery, false);
+        }
+
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                setSearchQuery(query, 0);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                setSearchQuery(newText, SEARCH_DEBOUNCE_MS);
+                return true;
+            }
+        });
+
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(@NonNull MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(@NonNull MenuItem item) {
+                setSearchQuery(null, 0);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Change the search text and reload the list after a delay
+     * @param query text to search for, null or blank to show the full list
+     * @param delayMs how long to wait for more typing
+     */
+    private void setSearchQuery(@Nullable String query, long delayMs) {
+        String trimmed = query == null ? null : query.trim();
+        String newQuery = trimmed == null || trimmed.isEmpty() ? null : trimmed;
+        if (Objects.equals(newQuery, searchQuery)) {
+            return;
+        }
+        searchQuery = newQuery;
+        searchHandler.removeCallbacks(searchRunnable);
+        searchHandler.postDelayed(searchRunnable, delayMs);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         int id = item.getItemId();
@@ -105,18 +217,106 @@ public class InventoryFragment extends Fragment {
             return true;
         }
 
+        if (id == R.id.action_low_stock) {
+            lowStockOnly = !lowStockOnly;
+            updateLowStockMenuItem();
+            refreshItemList();
+            return true;
+        }
+
+        if (id == R.id.action_import_csv) {
+            // Some file providers label CSV files as plain text
+            importCsvLauncher.launch(new String[]{"text/csv", "text/comma-separated-values", "text/plain"});
+            return true;
+        }
+
+        if (id == R.id.action_export_csv) {
+            exportCsvLauncher.launch(getString(R.string.csv_export_file_name));
+            return true;
+        }
+
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Import the CSV file the user picked, showing rows read until the import finishes
+     * @param uri chosen document, null if the picker was cancelled
+     */
+    private void importCsv(@Nullable Uri uri) {
+        if (uri == null || currentUserEmail == null) {
+            return;
+        }
+        Snackbar progress = Snackbar.make(binding.getRoot(), getString(R.string.csv_import_started), Snackbar.LENGTH_INDEFINITE);
+        progress.show();
+        inventoryRepository.importCsv(requireContext().getContentResolver(), uri, currentUserEmail, rows -> {
+            if (isAdded()) {
+                progress.setText(getString(R.string.csv_import_progress, rows));
+            }
+        }, ResultCallback.of(result -> {
+            progress.dismiss();
+            if (!isAdded()) {
+                return;
+            }
+            if (result == null) {
+                showSnackbar(getString(R.string.csv_import_failed));
+                return;
+            }
+            String message = getString(R.string.csv_import_done, result.imported, result.failed);
+            if (!result.errors.isEmpty()) {
+                // The first bad row is usually enough to see what is wrong with the file
+                message += "\n" + result.errors.get(0);
+            }
+            Snackbar.make(binding.getRoot(), message, Snackbar.LENGTH_LONG).show();
+            refreshItemList();
+        }, e -> {
+            progress.dismiss();
+            if (isAdded()) {
+                showSnackbar(getString(R.string.csv_import_failed));
+                // Chunks written before the failure are already in the database
+                refreshItemList();
+            }
+        }));
+    }
+
+    /**
+     * Write the inventory to the CSV file the user created
+     * @param uri chosen document, null if the picker was cancelled
+     */
+    private void exportCsv(@Nullable Uri uri) {
+        if (uri == null || currentUserEmail == null) {
+            return;
+        }
+        inventoryRepository.exportCsv(requireContext().getContentResolver(), uri, currentUserEmail, ResultCallback.of(count -> {
+            if (isAdded()) {
+                showSnackbar(count == -1 ? getString(R.string.csv_export_failed) : getString(R.string.csv_export_done, count));
+            }
+        }, e -> {
+            if (isAdded()) {
+                showSnackbar(getString(R.string.csv_export_failed));
+            }
+        }));
+    }
+
     /**
      * Set up recycler view and add divider between items
      * Handles fab button clicks as well
      */
     private void setupRecyclerView() {
-        binding.itemsList.setLayoutManager(new LinearLayoutManager(getContext()));
-        adapter = new InventoryItemAdapter(new ArrayList<>());
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        binding.itemsList.setLayoutManager(layoutManager);
+        adapter = new InventoryItemAdapter();
         binding.itemsList.setAdapter(adapter);
 
+        // Load more items as the user nears the end of what has been loaded
+        binding.itemsList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
         DividerItemDecoration divider = new DividerItemDecoration(binding.itemsList.getContext(), DividerItemDecoration.VERTICAL);
         binding.itemsList.addItemDecoration(divider);
 
@@ -130,72 +330,294 @@ public class InventoryFragment extends Fragment {
     }
 
     @Override
-    public void onDestroy() {
-        super.onDestroy();
-        executorService.shutdown();
+    public void onPause() {
+        super.onPause();
+        // Write buffered taps now rather than waiting for the quiet period
+        inventoryRepository.flushPendingChanges();
+        searchHandler.removeCallbacks(searchRunnable);
+        cancelSearch();
     }
 
     /**
-     * Refresh item list in recycler view
+     * Refresh item list in recycler view - reloads from the first page, or reruns the search if one is active
      */
     private void refreshItemList() {
+        cancelSearch();
+        refreshSummary();
         if (currentUserEmail != null) {
-            executorService.execute(() -> {
-                List<InventoryItem> items = databaseHelper.getInventoryItemsForUser(currentUserEmail);
-                handler.post(() -> {
-                    adapter.updateItems(items);
-                    // Display empty message if items is empty
-                    binding.emptyMessage.setVisibility(items.isEmpty() ? View.VISIBLE : View.GONE);
-                });
-            });
+            // Timed until the new rows are on screen - see InventoryItemAdapter.submit
+            refreshStartNanos = System.nanoTime();
+        }
+        if (searchQuery != null) {
+            runSearch(searchQuery);
+        } else if (lowStockOnly) {
+            loadLowStock();
+        } else if (currentUserEmail != null) {
+            int generation = ++listGeneration;
+            InventorySort sort = currentSort;
+            adapter.loading = true;
+            inventoryRepository.loadFirstPage(currentUserEmail, sort, whileViewExists(page -> {
+                if (generation != listGeneration) {
+                    return;
+                }
+                adapter.updateItems(page.items);
+                adapter.endReached = page.last;
+                nextPageCursor = page.cursor;
+                adapter.loading = false;
+                // Display empty message if items is empty
+                binding.emptyMessage.setVisibility(page.items.isEmpty() ? View.VISIBLE : View.GONE);
+            }, stopLoading(generation)));
+        }
+    }
+
+    /**
+     * Drop a result that arrives after the view is destroyed - reads still queued for it are skipped
+     * A failure is shown to the user instead of the result
+     */
+    private <T> ResultCallback<T> whileViewExists(ResultCallback<T> callback) {
+        return whileViewExists(callback, () -> {});
+    }
+
+    /**
+     * Same as whileViewExists, with cleanup to run when the operation fails
+     * @param onError undoes what was set up for the result, e.g. so the list can load again
+     */
+    private <T> ResultCallback<T> whileViewExists(ResultCallback<T> callback, Runnable onError) {
+        return LifecycleBoundCallback.bind(getViewLifecycleOwner(), ResultCallback.of(callback, e -> {
+            onError.run();
+            showSnackbar(getString(R.string.database_error));
+        }));
+    }
+
+    /**
+     * @param generation list generation the failed load was for
+     * @return cleanup letting the list load again, unless a newer load has started since
+     */
+    private Runnable stopLoading(int generation) {
+        return () -> {
+            if (generation == listGeneration) {
+                adapter.loading = false;
+            }
+        };
+    }
+
+    /**
+     * Show the items matching a search - results come back in one piece, so paging is switched off
+     * @param query text typed by the user
+     */
+    private void runSearch(String query) {
+        if (currentUserEmail == null) {
+            return;
+        }
+
+        int generation = ++listGeneration;
+        CancellationSignal cancellationSignal = new CancellationSignal();
+        searchCancellation = cancellationSignal;
+        adapter.loading = true;
+        inventoryRepository.search(currentUserEmail, query, currentSort, cancellationSignal, whileViewExists(items -> {
+            if (generation != listGeneration) {
+                return;
+            }
+            adapter.updateItems(items);
+            adapter.endReached = true;
+            adapter.loading = false;
+        }, stopLoading(generation)));
+    }
+
+    /**
+     * Show only the items that need reordering - a single indexed query, so paging is switched off
+     */
+    private void loadLowStock() {
+        if (currentUserEmail == null) {
+            return;
+        }
+
+        int generation = ++listGeneration;
+        adapter.loading = true;
+        inventoryRepository.loadLowStock(currentUserEmail, getMinimumInventory(), whileViewExists(items -> {
+            if (generation != listGeneration) {
+                return;
+            }
+            adapter.updateItems(items);
+            adapter.endReached = true;
+            adapter.loading = false;
+        }, stopLoading(generation)));
+    }
+
+    /**
+     * Reload the header totals and low stock count - a single-row lookup however large the inventory
+     */
+    private void refreshSummary() {
+        if (currentUserEmail == null) {
+            return;
+        }
+
+        int request = ++summaryRequest;
+        int edits = summaryEdits;
+        inventoryRepository.loadSummary(currentUserEmail, getMinimumInventory(), whileViewExists(loaded -> {
+            if (request != summaryRequest) {
+                return;
+            }
+            if (edits != summaryEdits) {
+                // Taps made while reading may be missing from the result - read again
+                refreshSummary();
+                return;
+            }
+            summary = loaded;
+            updateSummary();
+        }));
+    }
+
+    /**
+     * Keep the totals in step with a quantity change without querying the database
+     * @param before item before the change
+     * @param after item after the change
+     */
+    private void onQuantityChanged(InventoryItem before, InventoryItem after) {
+        int minimum = getMinimumInventory();
+        if (before.isLowStock(minimum) && !after.isLowStock(minimum)) {
+            // Restocked before the digest went out
+            inventoryRepository.cancelLowStockAlert(after.getId());
+        }
+        summaryEdits++;
+        summary = summary.withChange(before, after, minimum);
+        updateSummary();
+    }
+
+    /**
+     * Show the totals in the header and the low stock count on the menu item
+     */
+    private void updateSummary() {
+        binding.summaryHeader.setVisibility(summary.itemCount == 0 ? View.GONE : View.VISIBLE);
+        binding.summaryHeader.setText(getString(R.string.inventory_summary,
+                summary.itemCount, summary.totalUnits, summary.outOfStockCount, summary.lowStockCount));
+        updateLowStockMenuItem();
+    }
+
+    /**
+     * Show the low stock count on the menu item and tick it while the filter is on
+     */
+    private void updateLowStockMenuItem() {
+        if (lowStockMenuItem != null) {
+            lowStockMenuItem.setTitle(getString(R.string.low_stock_count, summary.lowStockCount));
+            lowStockMenuItem.setChecked(lowStockOnly);
+        }
+    }
+
+    /**
+     * Global minimum inventory setting - used for items without their own reorder threshold
+     */
+    private int getMinimumInventory() {
+        return settingsStore.get().minimumInventory;
+    }
+
+    /**
+     * Stop the search query that is running, if any
+     */
+    private void cancelSearch() {
+        if (searchCancellation != null) {
+            searchCancellation.cancel();
+            searchCancellation = null;
         }
     }
 
     /**
-     * Check if SMS is enabled and if item is at the minimum - send SMS if true
+     * Load the page after the last loaded item and append it to the list
+     */
+    private void loadNextPage() {
+        if (currentUserEmail == null || adapter.loading || adapter.endReached || nextPageCursor == null) {
+            return;
+        }
+
+        int generation = listGeneration;
+        InventorySort sort = currentSort;
+        adapter.loading = true;
+        inventoryRepository.loadNextPage(currentUserEmail, sort, nextPageCursor, whileViewExists(page -> {
+            if (generation != listGeneration) {
+                return;
+            }
+            adapter.appendItems(page.items);
+            adapter.endReached = page.last;
+            nextPageCursor = page.cursor;
+            adapter.loading = false;
+        }, stopLoading(generation)));
+    }
+
+    /**
+     * Check if SMS is enabled and if item is at or below the minimum - queue an SMS alert if true
      * @param item item being checked
      */
     private void checkAndSendSmsNotification(InventoryItem item) {
-        boolean isSmsEnabled = preferences.getBoolean("sms_notifications_enabled", false);
-        int minInventoryValue = preferences.getInt("minimum_inventory_value", 2);
-        boolean notifyWhenZero = preferences.getBoolean("notify_inventory_zero", false);
-
-        if ((isSmsEnabled && item.getQuantity() == minInventoryValue) ||
-                (notifyWhenZero && isSmsEnabled && item.getQuantity() == 0)) {
-            executorService.execute(() -> {
-                String phoneNumber = databaseHelper.getUserPhoneNumber(currentUserEmail);
-                String message = item.getQuantity() == 0 ?
-                        "Streamline Inventory: Out of inventory for " + item.getName() :
-                        "Streamline Inventory: Low inventory alert - " + item.getName() + " is down to " + minInventoryValue;
-                sendSmsNotification(phoneNumber, message);
-            });
+        Settings settings = settingsStore.get();
+        if (!settings.smsEnabled) {
+            return;
+        }
+        // Below the minimum counts too, so an item that skips past it still alerts - the
+        // dispatcher does not resend a quantity it already sent
+        if (item.isLowStock(settings.minimumInventory) || (settings.notifyWhenZero && item.getQuantity() == 0)) {
+            inventoryRepository.reportLowStock(currentUserEmail, item);
         }
     }
 
     /**
-     * Send SMS notification using smsManager
-     * @param phoneNumber phone number SMS is being sent to
-     * @param message message for sSMS
+     * Compares two snapshots row by row - item identity is the database id, contents are the fields shown in a row
      */
-    private void sendSmsNotification(String phoneNumber, String message) {
-        try {
-            SmsManager smsManager = SmsManager.getDefault();
-            smsManager.sendTextMessage(phoneNumber, null, message, null, null);
-            Log.d("InventoryFragment", "SMS sent: " + message);
-        } catch (Exception e) {
-            Log.e("InventoryFragment", "SMS failed to send", e);
+    private static final class SnapshotDiff extends DiffUtil.Callback {
+        private final InventorySnapshot oldItems;
+        private final InventorySnapshot newItems;
+
+        SnapshotDiff(InventorySnapshot oldItems, InventorySnapshot newItems) {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+            return oldItems.getId(oldPosition) == newItems.getId(newPosition);
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return oldItems.getQuantity(oldPosition) == newItems.getQuantity(newPosition)
+                    && oldItems.getReorderThreshold(oldPosition) == newItems.getReorderThreshold(newPosition)
+                    && oldItems.getDaysUntilStockout(oldPosition) == newItems.getDaysUntilStockout(newPosition)
+                    && oldItems.getName(oldPosition).equals(newItems.getName(newPosition));
         }
     }
 
     /**
      * Adapter for inventory items - used by recycler view
+     * Rows are bound from the snapshot's columns by position. Replacing the whole list is diffed on a
+     * background thread so only the changed rows are rebound; single-row edits are notified directly.
+     * Documentation: https://developer.android.com/reference/androidx/recyclerview/widget/DiffUtil
      */
     private class InventoryItemAdapter extends RecyclerView.Adapter<InventoryItemAdapter.ItemHolder> {
 
-        private final List<InventoryItem> mItems;
-
-        InventoryItemAdapter(List<InventoryItem> items) {
-            this.mItems = new ArrayList<>(items);
+        // Rows currently shown
+        private InventorySnapshot items = InventorySnapshot.EMPTY;
+        // Rows a diff is being calculated for, null when the list is up to date
+        @Nullable
+        private InventorySnapshot pending;
+        // Bumped on every diff so only the newest one is applied
+        private int diffGeneration;
+        private boolean loading;
+        private boolean endReached;
+
+        /**
+         * Latest rows handed to the adapter - ahead of what is shown while a diff is running
+         */
+        InventorySnapshot latest() {
+            return pending != null ? pending : items;
         }
 
         @NonNull
@@ -207,22 +629,95 @@ public class InventoryFragment extends Fragment {
         }
 
         @Override
-        public void onBindViewHolder(ItemHolder holder, int position) {
-            InventoryItem item = mItems.get(position);
-            holder.bind(item);
+        public void onBindViewHolder(@NonNull ItemHolder holder, int position) {
+            long start = System.nanoTime();
+            holder.bind(position);
+            metrics.recordSince("ui.bindItem", start);
         }
 
         @Override
         public int getItemCount() {
-            return mItems.size();
+            return items.size();
         }
 
-        @SuppressLint("NotifyDataSetChanged")
-        void updateItems(List<InventoryItem> newItems) {
-            mItems.clear();
-            mItems.addAll(newItems);
-            notifyDataSetChanged();
-            binding.emptyMessage.setVisibility(mItems.isEmpty() ? View.VISIBLE : View.GONE);
+        void updateItems(InventorySnapshot newItems) {
+            submit(newItems);
+            binding.emptyMessage.setVisibility(newItems.isEmpty() ? View.VISIBLE : View.GONE);
+        }
+
+        /**
+         * Add a page at the end - a row already shown (tapped past the end of what was loaded before
+         * its change was written) stays where it is
+         */
+        void appendItems(InventorySnapshot page) {
+            if (pending != null) {
+                submit(pending.appendMissing(page));
+                return;
+            }
+            int start = items.size();
+            items = items.appendMissing(page);
+            notifyItemRangeInserted(start, items.size() - start);
+        }
+
+        /**
+         * Show a new quantity for an item, matched on id - only the quantity column is copied
+         * @param id id of item
+         * @param quantity new quantity
+         */
+        void replaceQuantity(int id, int quantity) {
+            InventorySnapshot current = latest();
+            int index = current.indexOf(id);
+            if (index == -1) {
+                return;
+            }
+            InventorySnapshot updated = current.withQuantity(index, quantity);
+            if (pending != null) {
+                submit(updated);
+            } else {
+                items = updated;
+                notifyItemChanged(index);
+            }
+        }
+
+        /**
+         * Remove an item from the list, matched on id
+         * @param id id of item being removed
+         */
+        void removeItem(int id) {
+            InventorySnapshot current = latest();
+            int index = current.indexOf(id);
+            if (index == -1) {
+                return;
+            }
+            InventorySnapshot updated = current.without(index);
+            if (pending != null) {
+                submit(updated);
+            } else {
+                items = updated;
+                notifyItemRemoved(index);
+            }
+        }
+
+        /**
+         * Diff the shown rows against new ones off the main thread, then apply only the changes
+         * Rows shown do not change while a diff is pending - edits made meanwhile start a new diff
+         */
+        private void submit(InventorySnapshot newItems) {
+            InventorySnapshot oldItems = items;
+            int generation = ++diffGeneration;
+            pending = newItems;
+            executors.runComputation(() -> DiffUtil.calculateDiff(new SnapshotDiff(oldItems, newItems)), result -> {
+                if (generation != diffGeneration) {
+                    return;
+                }
+                pending = null;
+                items = newItems;
+                result.dispatchUpdatesTo(this);
+                if (refreshStartNanos != 0) {
+                    metrics.recordSince("ui.refreshItemList", refreshStartNanos);
+                    refreshStartNanos = 0;
+                }
+            });
         }
 
         class ItemHolder extends RecyclerView.ViewHolder {
@@ -232,57 +727,101 @@ public class InventoryFragment extends Fragment {
             ItemHolder(ItemDataBinding binding) {
                 super(binding.getRoot());
                 this.binding = binding;
+                setupListeners();
+            }
+
+            void bind(int position) {
+                binding.itemName.setText(items.getName(position));
+                binding.itemQuantity.setText(String.valueOf(items.getQuantity(position)));
+                int days = items.getDaysUntilStockout(position);
+                if (days == -1) {
+                    binding.itemStockout.setVisibility(View.GONE);
+                } else {
+                    binding.itemStockout.setText(getResources().getQuantityString(R.plurals.days_until_stockout, days, days));
+                    binding.itemStockout.setVisibility(View.VISIBLE);
+                }
             }
 
-            void bind(InventoryItem item) {
-                binding.itemName.setText(item.getName());
-                binding.itemQuantity.setText(String.valueOf(item.getQuantity()));
-                setupListeners(item);
+            /**
+             * Item shown in this row when it is clicked, with any edits still waiting on a diff
+             * @return new item with the row's latest values, null if the row is being removed
+             */
+            @Nullable
+            private InventoryItem currentItem() {
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) {
+                    return null;
+                }
+                // The position is in the rows shown, which lag behind latest() while a diff runs
+                InventorySnapshot current = latest();
+                int index = current.indexOf(items.getItem(position).getId());
+                return index == -1 ? null : current.getItem(index);
             }
 
             /**
-             * Setup listeners for clicks on each item
-             * @param item being clicked on
+             * Setup listeners for clicks on the row - set once per view holder, the item is read at click time
              */
-            private void setupListeners(InventoryItem item) {
+            private void setupListeners() {
                 // Delete button - Shows dialog if user selects
-                binding.deleteButton.setOnClickListener(v -> new AlertDialog.Builder(requireContext())
-                        .setTitle("Delete Item")
-                        .setMessage("This will delete this item from inventory completely. Are you sure?")
-                        .setPositiveButton("Yes", (dialog, which) -> {
-                            boolean deleteResult = databaseHelper.deleteInventoryItem(item.getId());
-                            if (deleteResult) {
-                                mItems.remove(getAdapterPosition());
-                                adapter.notifyItemRemoved(getAdapterPosition());
-                                showSnackbar("Item deleted successfully");
-                            } else {
-                                showSnackbar("Failed to delete item");
-                            }
-                        })
-                        .setNegativeButton("No", (dialog, which) -> dialog.dismiss())
-                        .show());
+                binding.deleteButton.setOnClickListener(v -> {
+                    InventoryItem item = currentItem();
+                    if (item == null) {
+                        return;
+                    }
+                    new AlertDialog.Builder(requireContext())
+                            .setTitle("Delete Item")
+                            .setMessage("This will delete this item from inventory completely. Are you sure?")
+                            .setPositiveButton("Yes", (dialog, which) -> inventoryRepository.deleteItem(item.getId(), whileViewExists(deleteResult -> {
+                                if (deleteResult) {
+                                    removeItem(item.getId());
+                                    refreshSummary();
+                                    showSnackbar("Item deleted successfully");
+                                } else {
+                                    showSnackbar("Failed to delete item");
+                                }
+                            })))
+                            .setNegativeButton("No", (dialog, which) -> dialog.dismiss())
+                            .show();
+                });
 
 
                 // Plus button - Add 1 to current item
                 binding.incrementButton.setOnClickListener(v -> {
-                    databaseHelper.incrementItemQuantity(item.getId());
-                    item.setQuantity(item.getQuantity() + 1);
-                    binding.itemQuantity.setText(String.valueOf(item.getQuantity()));
+                    InventoryItem item = currentItem();
+                    if (item == null) {
+                        return;
+                    }
+                    inventoryRepository.adjustQuantity(item.getId(), 1);
+                    InventoryItem updated = item.withQuantity(item.getQuantity() + 1);
+                    replaceQuantity(updated.getId(), updated.getQuantity());
+                    onQuantityChanged(item, updated);
                 });
 
                 // Minus button - Subtract 1 from current item
                 binding.reduceButton.setOnClickListener(v -> {
+                    InventoryItem item = currentItem();
+                    if (item == null) {
+                        return;
+                    }
                     // Does not allow going below 0
                     if (item.getQuantity() > 0) {
-                        databaseHelper.decrementItemQuantity(item.getId());
-                        item.setQuantity(item.getQuantity() - 1);
-                        binding.itemQuantity.setText(String.valueOf(item.getQuantity()));
+                        inventoryRepository.adjustQuantity(item.getId(), -1);
+                        InventoryItem updated = item.withQuantity(item.getQuantity() - 1);
+                        replaceQuantity(updated.getId(), updated.getQuantity());
+                        onQuantityChanged(item, updated);
+                        checkAndSendSmsNotification(updated);
+                    } else {
+                        checkAndSendSmsNotification(item);
                     }
-                    checkAndSendSmsNotification(item);
                 });
 
                 // Edit button - Shows dialog for editing item
-                binding.editButton.setOnClickListener(v -> showEditItemDialog(item));
+                binding.editButton.setOnClickListener(v -> {
+                    InventoryItem item = currentItem();
+                    if (item != null) {
+                        showEditItemDialog(item);
+                    }
+                });
             }
         }
     }
@@ -301,6 +840,9 @@ public class InventoryFragment extends Fragment {
         // Set the item name and quantity in the dialog
         dialogBinding.editItemName.setText(item.getName());
         dialogBinding.editItemQuantity.setText(String.valueOf(item.getQuantity()));
+        if (item.getReorderThreshold() != InventoryItem.NO_THRESHOLD) {
+            dialogBinding.editItemThreshold.setText(String.valueOf(item.getReorderThreshold()));
+        }
 
         // Set the listeners for update and cancel buttons
         dialogBinding.buttonUpdate.setOnClickListener(v -> handleUpdateButtonClick(item, dialogBinding, dialog));
@@ -325,15 +867,19 @@ public class InventoryFragment extends Fragment {
     private void handleUpdateButtonClick(InventoryItem item, DialogEditItemBinding dialogBinding, AlertDialog dialog) {
         String newName = dialogBinding.editItemName.getText().toString();
         String quantityStr = dialogBinding.editItemQuantity.getText().toString();
+        String thresholdStr = dialogBinding.editItemThreshold.getText().toString().trim();
         try {
             int newQuantity = Integer.parseInt(quantityStr);
-            boolean updateResult = databaseHelper.updateInventoryItem(item.getId(), newName, newQuantity);
-            if (updateResult) {
-                showSnackbar("Item updated successfully");
-                refreshItemList();
-            } else {
-                showSnackbar("Failed to update item");
-            }
+            // Blank means the item follows the global minimum inventory setting
+            int newThreshold = thresholdStr.isEmpty() ? InventoryItem.NO_THRESHOLD : Integer.parseInt(thresholdStr);
+            inventoryRepository.updateItem(item.getId(), newName, newQuantity, newThreshold, whileViewExists(updateResult -> {
+                if (updateResult) {
+                    showSnackbar("Item updated successfully");
+                    refreshItemList();
+                } else {
+                    showSnackbar("Failed to update item");
+                }
+            }));
         } catch (NumberFormatException e) {
             showSnackbar("Invalid Quantity");
         }
@@ -355,13 +901,14 @@ public class InventoryFragment extends Fragment {
             if (!itemName.isEmpty() && !quantityStr.isEmpty() && currentUserEmail != null) {
                 try {
                     int quantity = Integer.parseInt(quantityStr);
-                    boolean insertResult = databaseHelper.insertInventoryItem(itemName, quantity, currentUserEmail);
-                    if (insertResult) {
-                        showSnackbar("Item added successfully");
-                        refreshItemList();
-                    } else {
-                        showSnackbar("Failed to add item");
-                    }
+                    inventoryRepository.insertItem(itemName, quantity, currentUserEmail, whileViewExists(insertResult -> {
+                        if (insertResult) {
+                            showSnackbar("Item added successfully");
+                            refreshItemList();
+                        } else {
+                            showSnackbar("Failed to add item");
+                        }
+                    }));
                 } catch (NumberFormatException e) {
                     showSnackbar("Invalid quantity");
                 }
@@ -380,40 +927,34 @@ public class InventoryFragment extends Fragment {
      */
     private void showSortOptionsDialog() {
         AlertDialog.Builder builder = new AlertDialog.Builder(getContext());
+        int checked = currentSort == InventorySort.QUANTITY ? 0 : 1;
         builder.setTitle("Sort by")
-                .setItems(new String[]{"Quantity", "Name"}, (dialog, which) -> {
+                .setSingleChoiceItems(new String[]{"Quantity", "Name"}, checked, (dialog, which) -> {
                     switch (which) {
                         case 0: // Sort by Quantity
-                            sortInventoryByQuantity();
+                            applySort(InventorySort.QUANTITY);
                             break;
                         case 1: // Sort by Name
-                            sortInventoryByName();
+                            applySort(InventorySort.NAME);
                             break;
                     }
+                    dialog.dismiss();
                 });
         builder.show();
     }
 
 
     /**
-     * Sort the list by quantity in ascending order
-     */
-    @SuppressLint("NotifyDataSetChanged")
-    private void sortInventoryByQuantity() {
-        adapter.mItems.sort(Comparator.comparingInt(InventoryItem::getQuantity));
-
-        adapter.notifyDataSetChanged();
-    }
-
-
-    /**
-     * Sort the list by name in alphabetical order
+     * Save the chosen order and reload the list - sorting is done by the database query
+     * @param sort order selected by the user
      */
-    @SuppressLint("NotifyDataSetChanged")
-    private void sortInventoryByName() {
-        adapter.mItems.sort((o1, o2) -> o1.getName().compareToIgnoreCase(o2.getName()));
-
-        adapter.notifyDataSetChanged();
+    private void applySort(InventorySort sort) {
+        if (sort == currentSort) {
+            return;
+        }
+        currentSort = sort;
+        preferences.edit().putString("inventory_sort", sort.name()).apply();
+        refreshItemList();
     }
 
 
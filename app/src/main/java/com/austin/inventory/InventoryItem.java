@@ -1,22 +1,41 @@
 package com.austin.inventory;
 
 public class InventoryItem {
+    // Reorder threshold of an item that uses the global minimum inventory setting
+    public static final int NO_THRESHOLD = -1;
+
     private int id;
     private String name;
     private int quantity;
+    private int reorderThreshold = NO_THRESHOLD;
+    // Units used per day when the item was read, see UsageForecast
+    private double usageRate = UsageForecast.NO_USAGE;
 
     public InventoryItem() {}
 
     public InventoryItem(int id, String name, int quantity) {
-        if (name == null || name.trim().isEmpty()) {
+        this(id, name, quantity, NO_THRESHOLD);
+    }
+
+    public InventoryItem(int id, String name, int quantity, int reorderThreshold) {
+        this(id, name, quantity, reorderThreshold, UsageForecast.NO_USAGE);
+    }
+
+    public InventoryItem(int id, String name, int quantity, int reorderThreshold, double usageRate) {
+        if (isBlank(name)) {
             throw new IllegalArgumentException("Name cannot be null or empty");
         }
         if (quantity < 0) {
             throw new IllegalArgumentException("Quantity cannot be negative");
         }
+        if (reorderThreshold < NO_THRESHOLD) {
+            throw new IllegalArgumentException("Reorder threshold cannot be negative");
+        }
         this.id = id;
         this.name = name;
         this.quantity = quantity;
+        this.reorderThreshold = reorderThreshold;
+        this.usageRate = Math.max(usageRate, UsageForecast.NO_USAGE);
     }
 
     public int getId() {
@@ -32,7 +51,7 @@ public class InventoryItem {
     }
 
     public void setName(String name) {
-        if (name == null || name.trim().isEmpty()) {
+        if (isBlank(name)) {
             throw new IllegalArgumentException("Name cannot be null or empty");
         }
         this.name = name;
@@ -49,12 +68,72 @@ public class InventoryItem {
         this.quantity = quantity;
     }
 
+    public int getReorderThreshold() {
+        return reorderThreshold;
+    }
+
+    public void setReorderThreshold(int reorderThreshold) {
+        if (reorderThreshold < NO_THRESHOLD) {
+            throw new IllegalArgumentException("Reorder threshold cannot be negative");
+        }
+        this.reorderThreshold = reorderThreshold;
+    }
+
+    public double getUsageRate() {
+        return usageRate;
+    }
+
+    /**
+     * Forecast how long the stock lasts at the item's usage rate
+     * @return whole days until the quantity reaches zero, -1 if there is no forecast
+     */
+    public int getDaysUntilStockout() {
+        return UsageForecast.daysUntilStockout(quantity, usageRate);
+    }
+
+    /**
+     * Check if the item should be reordered
+     * @param defaultThreshold global minimum inventory, used when the item has no threshold of its own
+     * @return "true" if the quantity is at or below the threshold
+     */
+    public boolean isLowStock(int defaultThreshold) {
+        return quantity <= (reorderThreshold == NO_THRESHOLD ? defaultThreshold : reorderThreshold);
+    }
+
+    /**
+     * Copy of this item with a different quantity
+     * @param quantity new quantity
+     * @return new item, this item is not changed
+     */
+    public InventoryItem withQuantity(int quantity) {
+        return new InventoryItem(id, name, quantity, reorderThreshold, usageRate);
+    }
+
+    /**
+     * Same result as name.trim().isEmpty() without allocating a trimmed copy - runs for every row loaded
+     * @param name name being checked
+     * @return "true" if the name is null or only whitespace and control characters
+     */
+    static boolean isBlank(String name) {
+        if (name == null) {
+            return true;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public String toString() {
         return "InventoryItem{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", quantity=" + quantity +
+                ", reorderThreshold=" + reorderThreshold +
+                ", usageRate=" + usageRate +
                 '}';
     }
 }
@@ -0,0 +1,21 @@
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+/**
+ * A run of inventory items loaded for the list, and whether it reaches the end of the inventory
+ */
+public final class InventoryPage {
+    public final InventorySnapshot items;
+    public final boolean last;
+    // Last row as the database returned it, before pending taps were applied - the next page starts
+    // after it. Rows shown may have moved or changed since, so they cannot be used as the keyset
+    @Nullable
+    public final InventoryItem cursor;
+
+    public InventoryPage(InventorySnapshot items, boolean last, @Nullable InventoryItem cursor) {
+        this.items = items;
+        this.last = last;
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,431 @@
+/**
+ * InventoryRepository.java
+ *
+ * This class is the entry point for all inventory data used by the UI. Reads run on the shared read
+ * pool and every change on the single database writer, with results delivered on the main thread,
+ * so screens never touch SQLite directly.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Loaded rows are kept in a process-wide InventoryCache that is updated write-through on every
+ * change, so returning to the inventory screen does not hit the database. Lists are handed to the
+ * UI as columnar InventorySnapshots.
+ */
+
+package com.austin.inventory;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public class InventoryRepository {
+
+    // +/- taps are written after this long without another tap
+    private static final long QUANTITY_QUIET_PERIOD_MS = 750;
+    private static final int QUANTITY_MAX_PENDING_ITEMS = 50;
+
+    private static volatile InventoryRepository instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final AppExecutors executors;
+    private final QuantityWriteBuffer writeBuffer;
+    private final InventoryCache cache = new InventoryCache();
+    private final AlertDispatcher alertDispatcher;
+    // Global minimum last copied to the database for the summary triggers, -1 until the first sync
+    private volatile int syncedThreshold = -1;
+
+    public static InventoryRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (InventoryRepository.class) {
+                if (instance == null) {
+                    instance = new InventoryRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private InventoryRepository(Context context) {
+        databaseHelper = DatabaseHelper.getInstance(context);
+        executors = AppExecutors.getInstance();
+        SharedPreferences preferences = context.getSharedPreferences("user_prefs", Context.MODE_PRIVATE);
+        writeBuffer = new QuantityWriteBuffer(databaseHelper,
+                new PreferencesQuantityJournal(preferences),
+                executors.databaseWriter(),
+                QUANTITY_QUIET_PERIOD_MS,
+                QUANTITY_MAX_PENDING_ITEMS);
+        SettingsStore settingsStore = SettingsStore.getInstance(context);
+        // Digests are timed on their own scheduler, so an import never holds them up, and the
+        // recipient lookup runs on the read pool
+        alertDispatcher = new AlertDispatcher(new SmsManagerTransport(),
+                databaseHelper::getUserPhoneNumber,
+                executors.timers(),
+                executors.databaseReader(),
+                () -> TimeUnit.MINUTES.toMillis(settingsStore.get().digestMinutes));
+    }
+
+    /**
+     * Load the start of a user's inventory - served straight from memory (on the calling thread)
+     * when it has already been loaded in this order
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @param callback receives every cached row, or the first page from the database
+     */
+    public void loadFirstPage(String userEmail, InventorySort sort, ResultCallback<InventoryPage> callback) {
+        InventoryPage cached = cache.get(userEmail, sort);
+        if (cached != null) {
+            callback.onResult(cached);
+            return;
+        }
+
+        readAfterFlush(DatabaseScheduler.Priority.USER_VISIBLE, () -> writeBuffer.read(() -> {
+            List<InventoryItem> rows = readPage(userEmail, sort, null);
+            boolean last = rows.size() < InventoryContract.PAGE_SIZE;
+            InventoryItem cursor = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            InventorySnapshot items;
+            synchronized (cache) {
+                items = withPendingChanges(rows);
+                cache.putFirstPage(userEmail, sort, items, last, cursor);
+            }
+            return new InventoryPage(items, last, cursor);
+        }), callback);
+    }
+
+    /**
+     * Load the page after the last row the database returned - rows it brings that are already
+     * loaded (moved there by a tap) replace the cached copy
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @param after cursor of the previous page, never a row as shown
+     * @param callback receives the page
+     */
+    public void loadNextPage(String userEmail, InventorySort sort, InventoryItem after, ResultCallback<InventoryPage> callback) {
+        readAfterFlush(DatabaseScheduler.Priority.USER_VISIBLE, () -> writeBuffer.read(() -> {
+            List<InventoryItem> rows = readPage(userEmail, sort, after);
+            boolean last = rows.size() < InventoryContract.PAGE_SIZE;
+            InventoryItem cursor = rows.isEmpty() ? after : rows.get(rows.size() - 1);
+            InventorySnapshot items;
+            synchronized (cache) {
+                items = withPendingChanges(rows);
+                cache.appendPage(userEmail, sort, items, last, cursor);
+            }
+            return new InventoryPage(items, last, cursor);
+        }), callback);
+    }
+
+    /**
+     * Search a user's items by name - nothing is cached, every call reads the full-text index
+     * @param userEmail email of user
+     * @param query text typed by the user
+     * @param sort order of the results
+     * @param cancellationSignal cancelled when a newer query replaces this one
+     * @param callback receives the matching items, not called if the search was cancelled
+     */
+    public void search(String userEmail, String query, InventorySort sort, CancellationSignal cancellationSignal, ResultCallback<InventorySnapshot> callback) {
+        readAfterFlush(DatabaseScheduler.Priority.USER_VISIBLE, () -> writeBuffer.read(() -> {
+            try {
+                List<InventoryItem> items = databaseHelper.searchInventory(userEmail, query, sort, cancellationSignal);
+                synchronized (cache) {
+                    return withPendingChanges(items);
+                }
+            } catch (OperationCanceledException e) {
+                return null;
+            }
+        }), new ResultCallback<InventorySnapshot>() {
+            @Override
+            public void onResult(InventorySnapshot items) {
+                if (items != null) {
+                    callback.onResult(items);
+                }
+            }
+
+            @Override
+            public void onError(RuntimeException e) {
+                callback.onError(e);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                // A search replaced before it starts is skipped altogether
+                return cancellationSignal.isCanceled() || callback.isCancelled();
+            }
+        });
+    }
+
+    /**
+     * Load every item at or below its reorder threshold - read from the database each time, not cached
+     * @param userEmail email of user
+     * @param defaultThreshold global minimum inventory setting
+     * @param callback receives the low stock items, lowest quantity first
+     */
+    public void loadLowStock(String userEmail, int defaultThreshold, ResultCallback<InventorySnapshot> callback) {
+        readAfterFlush(DatabaseScheduler.Priority.USER_VISIBLE, () -> writeBuffer.read(() -> {
+            List<InventoryItem> items = databaseHelper.getLowStockItems(userEmail, defaultThreshold);
+            synchronized (cache) {
+                return withPendingChanges(items);
+            }
+        }), callback);
+    }
+
+    /**
+     * Load a user's totals for the summary header - a single-row lookup however large the inventory
+     * When the global minimum has changed, the copy the triggers count against is updated on the
+     * writer first
+     * @param userEmail email of user
+     * @param defaultThreshold global minimum inventory setting
+     * @param callback receives the item count, total units, out of stock and low stock counts
+     */
+    public void loadSummary(String userEmail, int defaultThreshold, ResultCallback<InventorySummary> callback) {
+        Runnable sync = defaultThreshold == syncedThreshold ? null : () -> {
+            databaseHelper.syncDefaultThreshold(defaultThreshold);
+            syncedThreshold = defaultThreshold;
+        };
+        readAfterFlush(DatabaseScheduler.Priority.USER_VISIBLE, sync, () -> databaseHelper.getInventorySummary(userEmail), callback);
+    }
+
+    /**
+     * Add an item to a user's inventory
+     * @param callback receives "true" if successful, "false" if failed
+     */
+    public void insertItem(String name, int quantity, String userEmail, @Nullable ResultCallback<Boolean> callback) {
+        executors.runWrite(() -> {
+            InventoryItem item;
+            try {
+                item = new InventoryItem(0, name, quantity);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            long id = databaseHelper.insertInventoryItems(Collections.singletonList(item), userEmail)[0];
+            if (id == -1) {
+                return false;
+            }
+            cache.itemInserted(userEmail, new InventoryItem((int) id, name, quantity));
+            return true;
+        }, callback);
+    }
+
+    /**
+     * Replace the name, quantity and reorder threshold of an item
+     * @param reorderThreshold InventoryItem.NO_THRESHOLD to use the global minimum
+     * @param callback receives "true" if successful, "false" if failed
+     */
+    public void updateItem(int id, String name, int quantity, int reorderThreshold, @Nullable ResultCallback<Boolean> callback) {
+        executors.runWrite(() -> {
+            InventoryItem item;
+            try {
+                item = new InventoryItem(id, name, quantity, reorderThreshold);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            // Buffered taps would otherwise be added on top of the new quantity
+            writeBuffer.flush();
+            boolean updated = databaseHelper.updateInventoryItem(id, name, quantity, reorderThreshold);
+            if (updated) {
+                cache.itemUpdated(item);
+            }
+            return updated;
+        }, callback);
+    }
+
+    /**
+     * Delete an item
+     * @param callback receives "true" if successful, "false" if failed
+     */
+    public void deleteItem(int id, @Nullable ResultCallback<Boolean> callback) {
+        executors.runWrite(() -> {
+            boolean deleted = databaseHelper.deleteInventoryItem(id);
+            if (deleted) {
+                cache.itemDeleted(id);
+            }
+            return deleted;
+        }, callback);
+    }
+
+    /**
+     * Change an item's quantity - buffered and written in the background, safe to call on every tap
+     * @param id id of item
+     * @param delta amount added (negative to remove)
+     */
+    public void adjustQuantity(int id, int delta) {
+        synchronized (cache) {
+            writeBuffer.add(id, delta);
+            cache.quantityChanged(id, delta);
+        }
+    }
+
+    /**
+     * Queue a low stock SMS for an item - alerts are batched into at most one text per digest window
+     * @param userEmail email of user the item belongs to
+     * @param item item at or below its threshold
+     */
+    public void reportLowStock(String userEmail, InventoryItem item) {
+        alertDispatcher.report(userEmail, item.getId(), item.getName(), item.getQuantity());
+    }
+
+    /**
+     * Drop a queued low stock SMS for an item that has been restocked
+     * @param id id of item
+     */
+    public void cancelLowStockAlert(int id) {
+        alertDispatcher.cancel(id);
+    }
+
+    /**
+     * Send the next low stock SMS for a user to their current phone number - call when the number or
+     * the SMS setting changes
+     * @param userEmail email of user
+     */
+    public void alertRecipientChanged(String userEmail) {
+        alertDispatcher.forgetRecipient(userEmail);
+    }
+
+    /**
+     * Add every row of a CSV file to a user's inventory - the file is streamed and written
+     * InventoryCsv.CHUNK_SIZE rows per transaction, so chunks before a failure are kept
+     * @param resolver resolver that can open the document
+     * @param uri document chosen by the user
+     * @param userEmail email of user the items belong to
+     * @param progress receives the number of rows read after each chunk, may be null
+     * @param callback receives the imported count and skipped rows, null if the file could not be read
+     */
+    public void importCsv(ContentResolver resolver, Uri uri, String userEmail, @Nullable ResultCallback<Integer> progress,
+                          ResultCallback<InventoryCsv.ImportResult> callback) {
+        executors.runWrite(() -> {
+            InventoryCsv.Progress onProgress = progress == null ? null
+                    : rows -> executors.mainThread().execute(() -> progress.onResult(rows));
+            try (InputStream input = resolver.openInputStream(uri)) {
+                if (input == null) {
+                    return null;
+                }
+                // InventoryCsv buffers internally, so the stream is not wrapped in a BufferedReader
+                Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+                return InventoryCsv.importFrom(reader,
+                        chunk -> databaseHelper.insertInventoryItems(chunk, userEmail),
+                        InventoryCsv.CHUNK_SIZE, onProgress);
+            } catch (IOException | SecurityException e) {
+                Log.e("InventoryRepository", "Failed to import " + uri, e);
+                return null;
+            } finally {
+                // Imported rows are not in the cached pages, even when the import stopped part way
+                cache.invalidate(userEmail);
+            }
+        }, callback);
+    }
+
+    /**
+     * Write a user's whole inventory to a CSV file, sorted by name - read a page at a time so the
+     * inventory is never held in memory at once
+     * @param resolver resolver that can open the document
+     * @param uri document chosen by the user, replaced if it already has content
+     * @param userEmail email of user
+     * @param callback receives the number of items written, -1 if the file could not be written
+     */
+    public void exportCsv(ContentResolver resolver, Uri uri, String userEmail, ResultCallback<Integer> callback) {
+        readAfterFlush(DatabaseScheduler.Priority.BACKGROUND, () -> {
+            try (OutputStream output = resolver.openOutputStream(uri, "wt")) {
+                if (output == null) {
+                    return -1;
+                }
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                return InventoryCsv.exportTo(writer,
+                        (after, limit) -> databaseHelper.getInventoryPage(userEmail, InventorySort.NAME, after, limit),
+                        InventoryCsv.CHUNK_SIZE);
+            } catch (IOException | SecurityException e) {
+                Log.e("InventoryRepository", "Failed to export " + uri, e);
+                return -1;
+            }
+        }, callback);
+    }
+
+    /**
+     * Write any buffered quantity changes now rather than waiting for the quiet period
+     */
+    public void flushPendingChanges() {
+        writeBuffer.flushAsync();
+    }
+
+    /**
+     * Run a read once buffered taps are in the database - the flush goes to the writer first, so
+     * reads stay read-only, and the read is queued straight away when nothing is buffered
+     * @param work read to run - skipped if the callback has been cancelled by the time it starts
+     */
+    private <T> void readAfterFlush(DatabaseScheduler.Priority priority, Supplier<T> work, ResultCallback<T> callback) {
+        readAfterFlush(priority, null, work, callback);
+    }
+
+    /**
+     * Same as readAfterFlush, with another write the read must see run on the writer after the flush
+     * @param write write to run before the read, null if none
+     */
+    private <T> void readAfterFlush(DatabaseScheduler.Priority priority, @Nullable Runnable write, Supplier<T> work, ResultCallback<T> callback) {
+        if (write == null && !writeBuffer.hasPendingChanges()) {
+            executors.runRead(priority, work, callback);
+            return;
+        }
+        executors.runWrite(() -> {
+            writeBuffer.flush();
+            if (write != null) {
+                write.run();
+            }
+            return null;
+        }, new ResultCallback<Void>() {
+            @Override
+            public void onResult(Void result) {
+                executors.runRead(priority, work, callback);
+            }
+
+            @Override
+            public void onError(RuntimeException e) {
+                // The read would not see the write it was waiting for
+                callback.onError(e);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return callback.isCancelled();
+            }
+        });
+    }
+
+    /**
+     * Read a page from the database - runs on the read pool
+     */
+    private List<InventoryItem> readPage(String userEmail, InventorySort sort, @Nullable InventoryItem after) {
+        return databaseHelper.getInventoryPage(userEmail, sort, after, InventoryContract.PAGE_SIZE);
+    }
+
+    /**
+     * Copy rows into a snapshot, applying taps made after they were read so they match what the user has seen
+     * Must be called inside writeBuffer.read(), together with the read, while holding the cache lock
+     */
+    private InventorySnapshot withPendingChanges(List<InventoryItem> items) {
+        InventorySnapshot.Builder result = new InventorySnapshot.Builder(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            InventoryItem item = items.get(i);
+            int delta = writeBuffer.getPendingDelta(item.getId());
+            result.add(item.getId(), item.getName(), Math.max(0, item.getQuantity() + delta), item.getReorderThreshold(), item.getUsageRate());
+        }
+        return result.build();
+    }
+}
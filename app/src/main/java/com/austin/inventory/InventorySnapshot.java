@@ -0,0 +1,492 @@
+/**
+ * InventorySnapshot.java
+ *
+ * This class is an immutable, column-oriented copy of an inventory list. Ids, quantities and
+ * thresholds are kept in parallel int arrays, usage rates in a double array and names in a String
+ * array, so a list of any size costs five array objects instead of one InventoryItem per row.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Rows are read by index. InventoryItem objects are only created on request (getItem), e.g. for
+ * the edit dialog. Sorting is done by permuting an int array of row indexes, so nothing is boxed.
+ * Builder is the mutable form, used where rows are edited in place such as InventoryCache.
+ */
+
+package com.austin.inventory;
+
+import java.util.Arrays;
+import java.util.List;
+
+public final class InventorySnapshot {
+
+    public static final InventorySnapshot EMPTY = new Builder(0).build();
+
+    private final int[] ids;
+    private final String[] names;
+    private final int[] quantities;
+    private final int[] thresholds;
+    private final double[] usageRates;
+    private final int size;
+
+    private InventorySnapshot(int[] ids, String[] names, int[] quantities, int[] thresholds, double[] usageRates, int size) {
+        this.ids = ids;
+        this.names = names;
+        this.quantities = quantities;
+        this.thresholds = thresholds;
+        this.usageRates = usageRates;
+        this.size = size;
+    }
+
+    /**
+     * Copy a list of items into columns
+     * @param items items in display order
+     * @return snapshot of the items
+     */
+    public static InventorySnapshot of(List<InventoryItem> items) {
+        Builder builder = new Builder(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            builder.add(items.get(i));
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getId(int index) {
+        return ids[checkIndex(index)];
+    }
+
+    public String getName(int index) {
+        return names[checkIndex(index)];
+    }
+
+    public int getQuantity(int index) {
+        return quantities[checkIndex(index)];
+    }
+
+    public int getReorderThreshold(int index) {
+        return thresholds[checkIndex(index)];
+    }
+
+    public double getUsageRate(int index) {
+        return usageRates[checkIndex(index)];
+    }
+
+    /**
+     * Same forecast as InventoryItem.getDaysUntilStockout, read from the columns
+     * @param index row
+     * @return whole days until the quantity reaches zero, -1 if there is no forecast
+     */
+    public int getDaysUntilStockout(int index) {
+        return UsageForecast.daysUntilStockout(quantities[checkIndex(index)], usageRates[index]);
+    }
+
+    /**
+     * Same rule as InventoryItem.isLowStock, read from the columns
+     * @param index row
+     * @param defaultThreshold global minimum inventory, used when the row has no threshold of its own
+     * @return "true" if the quantity is at or below the threshold
+     */
+    public boolean isLowStock(int index, int defaultThreshold) {
+        int threshold = thresholds[checkIndex(index)];
+        return quantities[index] <= (threshold == InventoryItem.NO_THRESHOLD ? defaultThreshold : threshold);
+    }
+
+    /**
+     * Create an InventoryItem for one row - for code that needs an object, not for binding rows
+     * @param index row
+     * @return new item with the row's values
+     */
+    public InventoryItem getItem(int index) {
+        checkIndex(index);
+        return new InventoryItem(ids[index], names[index], quantities[index], thresholds[index], usageRates[index]);
+    }
+
+    /**
+     * Find the row for an item id
+     * @param id item id
+     * @return row index, -1 if the item is not in the snapshot
+     */
+    public int indexOf(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy of this snapshot with one row's quantity changed - only the columns that change are copied
+     * Units removed count as use, as they do when the change is written, so the forecast follows +/- taps
+     * @param index row
+     * @param quantity new quantity
+     * @return new snapshot, this one is not changed
+     */
+    public InventorySnapshot withQuantity(int index, int quantity) {
+        checkIndex(index);
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative");
+        }
+        int[] newQuantities = Arrays.copyOf(quantities, size);
+        newQuantities[index] = quantity;
+        double[] newUsageRates = usageRates;
+        if (quantity < quantities[index]) {
+            newUsageRates = Arrays.copyOf(usageRates, size);
+            newUsageRates[index] = UsageForecast.afterUse(usageRates[index], quantities[index] - quantity);
+        }
+        return new InventorySnapshot(ids, names, newQuantities, thresholds, newUsageRates, size);
+    }
+
+    /**
+     * Copy of this snapshot without one row
+     * @param index row to leave out
+     * @return new snapshot, this one is not changed
+     */
+    public InventorySnapshot without(int index) {
+        checkIndex(index);
+        Builder builder = new Builder(this, size);
+        builder.remove(index);
+        return builder.build();
+    }
+
+    /**
+     * Copy of this snapshot followed by the rows of another
+     * @param more rows to add at the end
+     * @return new snapshot, neither input is changed
+     */
+    public InventorySnapshot append(InventorySnapshot more) {
+        if (more.size == 0) {
+            return this;
+        }
+        if (size == 0) {
+            return more;
+        }
+        Builder builder = new Builder(this, size + more.size);
+        builder.addAll(more);
+        return builder.build();
+    }
+
+    /**
+     * Copy of this snapshot followed by the rows of another it does not already have, matched on id
+     * @param more rows to add at the end
+     * @return new snapshot, neither input is changed
+     */
+    public InventorySnapshot appendMissing(InventorySnapshot more) {
+        // Sorted copy of the incoming ids, so each existing row is a binary search and nothing is boxed
+        int[] incoming = Arrays.copyOf(more.ids, more.size);
+        Arrays.sort(incoming);
+        boolean[] present = new boolean[more.size];
+        int found = 0;
+        for (int i = 0; i < size && found < more.size; i++) {
+            int at = Arrays.binarySearch(incoming, ids[i]);
+            if (at >= 0 && !present[at]) {
+                present[at] = true;
+                found++;
+            }
+        }
+        if (found == 0) {
+            return append(more);
+        }
+        Builder builder = new Builder(this, size + more.size - found);
+        for (int i = 0; i < more.size; i++) {
+            if (!present[Arrays.binarySearch(incoming, more.ids[i])]) {
+                builder.add(more.ids[i], more.names[i], more.quantities[i], more.thresholds[i], more.usageRates[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Row indexes in the given order, found by sorting an int permutation - the columns are not touched
+     * @param sort order to sort by
+     * @return array where element i is the row shown at position i
+     */
+    public int[] sortOrder(InventorySort sort) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        int[] scratch = new int[size];
+        mergeSort(order, scratch, 0, size, sort);
+        return order;
+    }
+
+    /**
+     * Copy of this snapshot with its rows in the given order
+     * @param sort order to sort by
+     * @return new snapshot, this one is not changed
+     */
+    public InventorySnapshot sorted(InventorySort sort) {
+        int[] order = sortOrder(sort);
+        Builder builder = new Builder(size);
+        for (int row : order) {
+            builder.add(ids[row], names[row], quantities[row], thresholds[row], usageRates[row]);
+        }
+        return builder.build();
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return index;
+    }
+
+    /**
+     * Compare two rows in the same way as InventorySort's comparator compares two items
+     */
+    private int compareRows(int a, int b, InventorySort sort) {
+        return compare(sort, ids[a], names[a], quantities[a], ids[b], names[b], quantities[b]);
+    }
+
+    private static int compare(InventorySort sort, int idA, String nameA, int quantityA, int idB, String nameB, int quantityB) {
+        int bySort = sort == InventorySort.QUANTITY ? Integer.compare(quantityA, quantityB) : InventorySort.compareNoCase(nameA, nameB);
+        return bySort != 0 ? bySort : Integer.compare(idA, idB);
+    }
+
+    /**
+     * Stable merge sort of row indexes in [from, to) - a primitive array sort with a row comparator,
+     * which Arrays.sort only offers for boxed Integers
+     */
+    private void mergeSort(int[] order, int[] scratch, int from, int to, InventorySort sort) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, scratch, from, middle, sort);
+        mergeSort(order, scratch, middle, to, sort);
+        if (compareRows(order[middle - 1], order[middle], sort) <= 0) {
+            // Already in order - common when pages arrive sorted
+            return;
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compareRows(scratch[left], scratch[right], sort) <= 0)) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    /**
+     * Growable, editable columns - build() turns them into an immutable snapshot
+     * Not thread-safe
+     */
+    public static final class Builder {
+        private int[] ids;
+        private String[] names;
+        private int[] quantities;
+        private int[] thresholds;
+        private double[] usageRates;
+        private int size;
+        // "true" once the arrays belong to a built snapshot - the next edit copies them first
+        private boolean shared;
+
+        /**
+         * @param capacity number of rows to make room for up front
+         */
+        public Builder(int capacity) {
+            ids = new int[capacity];
+            names = new String[capacity];
+            quantities = new int[capacity];
+            thresholds = new int[capacity];
+            usageRates = new double[capacity];
+        }
+
+        private Builder(InventorySnapshot snapshot, int capacity) {
+            ids = Arrays.copyOf(snapshot.ids, capacity);
+            names = Arrays.copyOf(snapshot.names, capacity);
+            quantities = Arrays.copyOf(snapshot.quantities, capacity);
+            thresholds = Arrays.copyOf(snapshot.thresholds, capacity);
+            usageRates = Arrays.copyOf(snapshot.usageRates, capacity);
+            size = snapshot.size;
+        }
+
+        /**
+         * Add a row - values are checked with the same rules as InventoryItem
+         * @return this builder
+         */
+        public Builder add(int id, String name, int quantity, int reorderThreshold) {
+            return insert(size, id, name, quantity, reorderThreshold, UsageForecast.NO_USAGE);
+        }
+
+        public Builder add(int id, String name, int quantity, int reorderThreshold, double usageRate) {
+            return insert(size, id, name, quantity, reorderThreshold, usageRate);
+        }
+
+        public Builder add(InventoryItem item) {
+            return add(item.getId(), item.getName(), item.getQuantity(), item.getReorderThreshold(), item.getUsageRate());
+        }
+
+        public Builder addAll(InventorySnapshot snapshot) {
+            ensureCapacity(size + snapshot.size);
+            unshare();
+            System.arraycopy(snapshot.ids, 0, ids, size, snapshot.size);
+            System.arraycopy(snapshot.names, 0, names, size, snapshot.size);
+            System.arraycopy(snapshot.quantities, 0, quantities, size, snapshot.size);
+            System.arraycopy(snapshot.thresholds, 0, thresholds, size, snapshot.size);
+            System.arraycopy(snapshot.usageRates, 0, usageRates, size, snapshot.size);
+            size += snapshot.size;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        int getId(int index) {
+            return ids[index];
+        }
+
+        int getQuantity(int index) {
+            return quantities[index];
+        }
+
+        double getUsageRate(int index) {
+            return usageRates[index];
+        }
+
+        InventoryItem getItem(int index) {
+            return new InventoryItem(ids[index], names[index], quantities[index], thresholds[index], usageRates[index]);
+        }
+
+        int indexOf(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Binary search for an item in rows that are already in the given order
+         * @return row of the item if found, otherwise (-(insertion point) - 1) as Collections.binarySearch does
+         */
+        int search(InventorySort sort, int id, String name, int quantity) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int cmp = compare(sort, ids[middle], names[middle], quantities[middle], id, name, quantity);
+                if (cmp < 0) {
+                    low = middle + 1;
+                } else if (cmp > 0) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        Builder insert(int index, int id, String name, int quantity, int reorderThreshold, double usageRate) {
+            if (InventoryItem.isBlank(name)) {
+                throw new IllegalArgumentException("Name cannot be null or empty");
+            }
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Quantity cannot be negative");
+            }
+            if (reorderThreshold < InventoryItem.NO_THRESHOLD) {
+                throw new IllegalArgumentException("Reorder threshold cannot be negative");
+            }
+            ensureCapacity(size + 1);
+            unshare();
+            int moved = size - index;
+            if (moved > 0) {
+                System.arraycopy(ids, index, ids, index + 1, moved);
+                System.arraycopy(names, index, names, index + 1, moved);
+                System.arraycopy(quantities, index, quantities, index + 1, moved);
+                System.arraycopy(thresholds, index, thresholds, index + 1, moved);
+                System.arraycopy(usageRates, index, usageRates, index + 1, moved);
+            }
+            ids[index] = id;
+            names[index] = name;
+            quantities[index] = quantity;
+            thresholds[index] = reorderThreshold;
+            usageRates[index] = Math.max(usageRate, UsageForecast.NO_USAGE);
+            size++;
+            return this;
+        }
+
+        void set(int index, InventoryItem item) {
+            unshare();
+            ids[index] = item.getId();
+            names[index] = item.getName();
+            quantities[index] = item.getQuantity();
+            thresholds[index] = item.getReorderThreshold();
+            usageRates[index] = item.getUsageRate();
+        }
+
+        void setQuantity(int index, int quantity) {
+            unshare();
+            quantities[index] = quantity;
+        }
+
+        void setUsageRate(int index, double usageRate) {
+            unshare();
+            usageRates[index] = usageRate;
+        }
+
+        void remove(int index) {
+            unshare();
+            int moved = size - index - 1;
+            if (moved > 0) {
+                System.arraycopy(ids, index + 1, ids, index, moved);
+                System.arraycopy(names, index + 1, names, index, moved);
+                System.arraycopy(quantities, index + 1, quantities, index, moved);
+                System.arraycopy(thresholds, index + 1, thresholds, index, moved);
+                System.arraycopy(usageRates, index + 1, usageRates, index, moved);
+            }
+            size--;
+            // Let the name be collected
+            names[size] = null;
+        }
+
+        /**
+         * Snapshot of the rows added so far - when the builder is exactly full its arrays are handed
+         * over instead of copied, so a builder sized up front allocates the columns only once
+         */
+        public InventorySnapshot build() {
+            if (size == ids.length) {
+                shared = true;
+                return new InventorySnapshot(ids, names, quantities, thresholds, usageRates, size);
+            }
+            return new InventorySnapshot(Arrays.copyOf(ids, size), Arrays.copyOf(names, size),
+                    Arrays.copyOf(quantities, size), Arrays.copyOf(thresholds, size), Arrays.copyOf(usageRates, size), size);
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= ids.length) {
+                return;
+            }
+            resize(Math.max(capacity, ids.length + (ids.length >> 1) + 8));
+        }
+
+        private void unshare() {
+            if (shared) {
+                resize(ids.length);
+            }
+        }
+
+        private void resize(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            thresholds = Arrays.copyOf(thresholds, capacity);
+            usageRates = Arrays.copyOf(usageRates, capacity);
+            shared = false;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.austin.inventory;
+
+import java.util.Comparator;
+
+/**
+ * Orders the inventory list can be shown in. Every order ends with the item id so it is total,
+ * which lets pages be fetched with a keyset (last seen sort value + id) instead of OFFSET.
+ * The comparators match the SQL ORDER BY for each order so in-memory lists stay in the same order
+ * as pages loaded from the database.
+ */
+public enum InventorySort {
+    NAME((a, b) -> {
+        int byName = compareNoCase(a.getName(), b.getName());
+        return byName != 0 ? byName : Integer.compare(a.getId(), b.getId());
+    }),
+    QUANTITY((a, b) -> {
+        int byQuantity = Integer.compare(a.getQuantity(), b.getQuantity());
+        return byQuantity != 0 ? byQuantity : Integer.compare(a.getId(), b.getId());
+    });
+
+    private final Comparator<InventoryItem> comparator;
+
+    InventorySort(Comparator<InventoryItem> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<InventoryItem> comparator() {
+        return comparator;
+    }
+
+    /**
+     * Same ordering as SQLite's NOCASE collation, which only folds ASCII letters
+     * (String.compareToIgnoreCase also folds other alphabets and would disagree with the database)
+     */
+    static int compareNoCase(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char x = a.charAt(i);
+            char y = b.charAt(i);
+            if (x >= 'A' && x <= 'Z') x += 'a' - 'A';
+            if (y >= 'A' && y <= 'Z') y += 'a' - 'A';
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return a.length() - b.length();
+    }
+}
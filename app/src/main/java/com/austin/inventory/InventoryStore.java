@@ -0,0 +1,151 @@
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inventory storage - implemented by DatabaseHelper on Android and by a JDBC store for off-device benchmarks
+ * Every method blocks on the database and must not be called on the main thread
+ */
+public interface InventoryStore extends QuantityWriteBuffer.Sink {
+
+    /**
+     * Add inventory item to table
+     * @param name name of item
+     * @param quantity quantity of item
+     * @param userEmail email of user item belongs to
+     * @return "true" if successful, "false" if failed
+     */
+    boolean insertInventoryItem(String name, int quantity, String userEmail);
+
+    /**
+     * Find all inventory items for a user, ordered by name
+     * @param userEmail email of user
+     * @return list of inventory items
+     */
+    List<InventoryItem> getInventoryItemsForUser(String userEmail);
+
+    /**
+     * Find all inventory items for a user - ordering is done by the database using the per-sort indexes
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @return list of inventory items
+     */
+    List<InventoryItem> getInventoryItemsForUser(String userEmail, InventorySort sort);
+
+    /**
+     * Same rows as getInventoryItemsForUser, read straight into columns without an InventoryItem per row
+     * @param userEmail email of user
+     * @param sort order of the rows
+     * @return snapshot of every item the user owns
+     */
+    InventorySnapshot getInventorySnapshot(String userEmail, InventorySort sort);
+
+    /**
+     * Find a user's items whose name has words starting with each word typed
+     * @param userEmail email of user
+     * @param query text typed by the user
+     * @param sort order of the results
+     * @return up to InventoryContract.SEARCH_LIMIT matching items, empty if the query has no searchable words
+     */
+    List<InventoryItem> searchInventory(String userEmail, String query, InventorySort sort);
+
+    /**
+     * Find every item at or below its reorder threshold, or the global minimum when it has none
+     * @param userEmail email of user
+     * @param defaultThreshold global minimum inventory setting
+     * @return low stock items, lowest quantity first
+     */
+    List<InventoryItem> getLowStockItems(String userEmail, int defaultThreshold);
+
+    /**
+     * Count the items getLowStockItems would return without reading them
+     * @param userEmail email of user
+     * @param defaultThreshold global minimum inventory setting
+     * @return number of low stock items
+     */
+    int countLowStockItems(String userEmail, int defaultThreshold);
+
+    /**
+     * Copy the global minimum inventory setting to the row the summary triggers read - a write
+     * Nothing is written if the copy is current, otherwise every user's low stock count is recounted
+     * in the same transaction
+     * @param defaultThreshold global minimum inventory setting
+     */
+    void syncDefaultThreshold(int defaultThreshold);
+
+    /**
+     * Read a user's totals from the trigger-maintained summary row - cost does not depend on inventory size
+     * Low stock is counted against the threshold last passed to syncDefaultThreshold
+     * @param userEmail email of user
+     * @return totals, InventorySummary.EMPTY if the user has never had an item
+     */
+    InventorySummary getInventorySummary(String userEmail);
+
+    /**
+     * Get one keyset page of a user's inventory in the given order
+     * @param userEmail email of user
+     * @param sort order of the list
+     * @param after last item of the previous page, null for the first page
+     * @param limit maximum number of items to return
+     * @return list of inventory items, shorter than limit once the end is reached
+     */
+    List<InventoryItem> getInventoryPage(String userEmail, InventorySort sort, @Nullable InventoryItem after, int limit);
+
+    /**
+     * Update inventory item details
+     * @param id id of item being updated
+     * @param name updated name of item
+     * @param quantity updated quantity of item
+     * @return "true" if successful, "false" if failed
+     */
+    boolean updateInventoryItem(int id, String name, int quantity);
+
+    /**
+     * Update inventory item details including its reorder threshold
+     * @param id id of item being updated
+     * @param name updated name of item
+     * @param quantity updated quantity of item
+     * @param reorderThreshold updated threshold, InventoryItem.NO_THRESHOLD to use the global minimum
+     * @return "true" if successful, "false" if failed
+     */
+    boolean updateInventoryItem(int id, String name, int quantity, int reorderThreshold);
+
+    /**
+     * Delete inventory item
+     * @param id id of item being deleted
+     * @return "true" if successful, "false" if failed
+     */
+    boolean deleteInventoryItem(int id);
+
+    /**
+     * Apply net quantity changes to many items in one transaction
+     * Quantities never drop below zero
+     * @param deltas amount to add to each item, keyed by item id
+     */
+    void applyQuantityDeltas(Map<Integer, Integer> deltas);
+
+    /**
+     * Add many inventory items in one transaction
+     * @param items items to add - ids are ignored
+     * @param userEmail email of user the items belong to
+     * @return row id of each inserted item in list order, -1 for rows that failed
+     */
+    long[] insertInventoryItems(List<InventoryItem> items, String userEmail);
+
+    /**
+     * Update name, quantity and reorder threshold of many inventory items in one transaction
+     * @param items items to update, matched on id
+     * @return "true" for each row that was updated in list order
+     */
+    boolean[] updateInventoryItems(List<InventoryItem> items);
+
+    /**
+     * Delete many inventory items in one transaction
+     * @param items items to delete, matched on id
+     * @return "true" for each row that was deleted in list order
+     */
+    boolean[] deleteInventoryItems(List<InventoryItem> items);
+}
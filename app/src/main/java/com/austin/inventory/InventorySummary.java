@@ -0,0 +1,72 @@
+package com.austin.inventory;
+
+/**
+ * Totals shown in the inventory screen header - read from the trigger-maintained inventory_summary
+ * row, then kept in step with +/- taps in memory until the next read
+ */
+public final class InventorySummary {
+
+    public static final InventorySummary EMPTY = new InventorySummary(0, 0, 0, 0);
+
+    public final int itemCount;
+    public final long totalUnits;
+    public final int outOfStockCount;
+    public final int lowStockCount;
+
+    public InventorySummary(int itemCount, long totalUnits, int outOfStockCount, int lowStockCount) {
+        this.itemCount = itemCount;
+        this.totalUnits = totalUnits;
+        this.outOfStockCount = outOfStockCount;
+        this.lowStockCount = lowStockCount;
+    }
+
+    /**
+     * Totals after one item's quantity changes - the same arithmetic the triggers do
+     * @param before item before the change
+     * @param after item after the change
+     * @param defaultThreshold global minimum inventory, used when the item has no threshold of its own
+     * @return new summary, this one is not changed
+     */
+    public InventorySummary withChange(InventoryItem before, InventoryItem after, int defaultThreshold) {
+        return new InventorySummary(itemCount,
+                totalUnits + after.getQuantity() - before.getQuantity(),
+                outOfStockCount + flag(after.getQuantity() == 0) - flag(before.getQuantity() == 0),
+                lowStockCount + flag(after.isLowStock(defaultThreshold)) - flag(before.isLowStock(defaultThreshold)));
+    }
+
+    private static int flag(boolean value) {
+        return value ? 1 : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InventorySummary)) {
+            return false;
+        }
+        InventorySummary other = (InventorySummary) o;
+        return itemCount == other.itemCount && totalUnits == other.totalUnits
+                && outOfStockCount == other.outOfStockCount && lowStockCount == other.lowStockCount;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = itemCount;
+        result = 31 * result + Long.hashCode(totalUnits);
+        result = 31 * result + outOfStockCount;
+        result = 31 * result + lowStockCount;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "InventorySummary{" +
+                "itemCount=" + itemCount +
+                ", totalUnits=" + totalUnits +
+                ", outOfStockCount=" + outOfStockCount +
+                ", lowStockCount=" + lowStockCount +
+                '}';
+    }
+}
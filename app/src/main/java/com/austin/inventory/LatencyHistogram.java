@@ -0,0 +1,138 @@
+/**
+ * LatencyHistogram.java
+ *
+ * This class counts how long an operation takes, in fixed log-linear buckets, so percentiles can be
+ * read at any time without keeping every sample.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Each power of two is split into 8 buckets, so a reported percentile is at most 12.5% above the
+ * true value. Recording is lock-free and allocates nothing - cheap enough to leave on in release.
+ */
+
+package com.austin.inventory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class LatencyHistogram {
+
+    // Buckets per power of two, as a number of bits
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Durations from 2^40ns (about 18 minutes) up all land in the last bucket
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Count one operation
+     * @param nanos how long it took, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketOf(value));
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Copy the counts so far - recording carries on while the copy is taken, so the total and max
+     * may be a few operations apart from the buckets
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = buckets.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), maxNanos.get());
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Largest duration that falls in a bucket
+     */
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Counts copied out of a histogram at one point in time
+     */
+    public static final class Snapshot {
+
+        private final long[] buckets;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+
+        Snapshot(long[] buckets, long count, long totalNanos, long maxNanos) {
+            this.buckets = buckets;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        /**
+         * Duration that at least the given share of operations took no longer than
+         * @param percentile 0 to 100, e.g. 99 for p99
+         * @return upper edge of the bucket holding that operation, never above the slowest one seen,
+         * 0 if nothing has been recorded
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        public long meanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+    }
+}
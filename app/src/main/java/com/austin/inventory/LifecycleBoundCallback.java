@@ -0,0 +1,64 @@
+package com.austin.inventory;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+/**
+ * A ResultCallback that is cancelled when a screen is destroyed - reads queued for it are skipped
+ * and results that arrive afterwards are dropped instead of touching a view that no longer exists
+ * Fragments should bind to getViewLifecycleOwner() so a recreated view never receives an old result
+ * @param <T> type of result
+ */
+public final class LifecycleBoundCallback<T> implements ResultCallback<T>, DefaultLifecycleObserver {
+
+    private final Lifecycle lifecycle;
+    private final ResultCallback<T> callback;
+    private volatile boolean cancelled;
+
+    /**
+     * @param owner lifecycle the result is only wanted during
+     * @param callback receives the result while the owner has not been destroyed
+     */
+    @MainThread
+    public static <T> ResultCallback<T> bind(@NonNull LifecycleOwner owner, @NonNull ResultCallback<T> callback) {
+        LifecycleBoundCallback<T> bound = new LifecycleBoundCallback<>(owner.getLifecycle(), callback);
+        if (bound.lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            bound.cancelled = true;
+        } else {
+            bound.lifecycle.addObserver(bound);
+        }
+        return bound;
+    }
+
+    private LifecycleBoundCallback(Lifecycle lifecycle, ResultCallback<T> callback) {
+        this.lifecycle = lifecycle;
+        this.callback = callback;
+    }
+
+    @Override
+    public void onResult(T result) {
+        // Delivered at most once, so the owner no longer needs to hold on to this
+        lifecycle.removeObserver(this);
+        callback.onResult(result);
+    }
+
+    @Override
+    public void onError(RuntimeException e) {
+        lifecycle.removeObserver(this);
+        callback.onError(e);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled || callback.isCancelled();
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        cancelled = true;
+        lifecycle.removeObserver(this);
+    }
+}
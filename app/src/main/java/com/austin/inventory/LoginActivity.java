@@ -6,8 +6,7 @@
  * Author: Austin Henley
  * Created on: 12/3/2023
  *
- * Utilizes executor service for Asynchronous tasks
- * Documentation: https://developer.android.com/reference/java/util/concurrent/ExecutorService
+ * Background work runs on the app-wide AppExecutors, results are bound to this activity's lifecycle
  *
  * Utilizes smsManager for sending SMS - Update to Twilio in future
  * Documentation: https://developer.android.com/reference/android/telephony/SmsManager
@@ -22,8 +21,6 @@ import android.app.AlertDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
 import android.telephony.SmsManager;
 import android.text.InputType;
 import android.util.Log;
@@ -37,16 +34,13 @@ import com.austin.inventory.databinding.ActivityLoginBinding;
 import com.google.android.material.snackbar.Snackbar;
 
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class LoginActivity extends AppCompatActivity {
 
-    DatabaseHelper databaseHelper;
+    UserRepository userRepository;
     ActivityLoginBinding binding;
     SharedPreferences preferences;
-    private ExecutorService executorService;
-    private Handler handler;
+    private AppExecutors executors;
     private boolean registerMode = false;
 
     @Override
@@ -57,12 +51,11 @@ public class LoginActivity extends AppCompatActivity {
         binding = ActivityLoginBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        executorService = Executors.newSingleThreadExecutor();
-        handler = new Handler(Looper.getMainLooper());
+        executors = AppExecutors.getInstance();
 
         preferences = getSharedPreferences("user_prefs", MODE_PRIVATE);
 
-        databaseHelper = new DatabaseHelper(this);
+        userRepository = UserRepository.getInstance(this);
 
         // Switch to register mode
         binding.registerButton.setOnClickListener(v -> toggleRegisterMode());
@@ -92,14 +85,6 @@ public class LoginActivity extends AppCompatActivity {
         });
     }
 
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        if (!executorService.isShutdown()) {
-            executorService.shutdown();
-        }
-    }
-
     /**
      * Checks each field to ensure valid data
      * @param email user entered email
@@ -142,16 +127,20 @@ public class LoginActivity extends AppCompatActivity {
      * @param phoneNumber phone number of user
      */
     private void handleRegistration(String email, String password, String phoneNumber) {
-        if (!databaseHelper.checkUserEmail(email)) {
-            if (databaseHelper.insertUser(email, password, phoneNumber)) {
-                showSnackbar("Signup successful");
-                resetToLoginMode();
-            } else {
-                showSnackbar("Signup failed");
+        userRepository.register(email, password, phoneNumber, LifecycleBoundCallback.bind(this, ResultCallback.of(result -> {
+            switch (result) {
+                case CREATED:
+                    showSnackbar("Signup successful");
+                    resetToLoginMode();
+                    break;
+                case ALREADY_EXISTS:
+                    showSnackbar("User already exists - Please log in");
+                    break;
+                default:
+                    showSnackbar("Signup failed");
+                    break;
             }
-        } else {
-            showSnackbar("User already exists - Please log in");
-        }
+        }, e -> showSnackbar("Signup failed"))));
     }
 
     /**
@@ -161,25 +150,20 @@ public class LoginActivity extends AppCompatActivity {
      */
     private void handleLogin(String email, String password) {
         // Check if SMS is enabled (For 2FA)
-        boolean isSmsEnabled = preferences.getBoolean("sms_notifications_enabled", false);
-
-        // Execute database operations asynchronously
-        executorService.execute(() -> {
-            if (databaseHelper.checkUserEmail(email) && databaseHelper.checkUserCredentials(email, password)) {
-                if (isSmsEnabled && databaseHelper.is2FAEnabled(email)) {
-                    String phoneNumber = databaseHelper.getUserPhoneNumber(email);
-                    String verificationCode = sendVerificationCode(phoneNumber);
-                    handler.post(() -> promptForVerificationCode(verificationCode, email));
-                } else {
-                    handler.post(() -> {
-                        saveLoggedInUser(email);
-                        navigateToMainActivity();
-                    });
-                }
+        boolean isSmsEnabled = SettingsStore.getInstance(this).get().smsEnabled;
+
+        // Database operations run on the repository's read pool
+        userRepository.login(email, password, isSmsEnabled, LifecycleBoundCallback.bind(this, ResultCallback.of(result -> {
+            if (!result.success) {
+                showSnackbar("Invalid email or password");
+            } else if (result.twoFactorPhone != null) {
+                executors.runComputation(() -> sendVerificationCode(result.twoFactorPhone),
+                        LifecycleBoundCallback.bind(this, verificationCode -> promptForVerificationCode(verificationCode, email)));
             } else {
-                handler.post(() -> showSnackbar("Invalid email or password"));
+                saveLoggedInUser(email);
+                navigateToMainActivity();
             }
-        });
+        }, e -> showSnackbar(getString(R.string.login_failed)))));
     }
 
 
@@ -0,0 +1,155 @@
+/**
+ * MainThreadIoGuard.java
+ *
+ * This class catches database calls made on the main thread. Depending on its mode it ignores them,
+ * counts and returns them for logging, or throws so the offending test fails.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Each violation is attributed to its call site - the first stack frame outside the guarded class -
+ * and counted, so report() lists every place that still needs moving to a repository. Debug builds
+ * run in LOG mode (see InventoryApplication) and release builds leave the guard OFF.
+ */
+
+package com.austin.inventory;
+
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+public final class MainThreadIoGuard {
+
+    public enum Mode {
+        // No checks at all - the default, and what release builds use
+        OFF,
+        // Count the violation and hand it back to the caller to log
+        LOG,
+        // Count the violation and throw it
+        THROW
+    }
+
+    /**
+     * A database call made on the main thread - its stack trace is the call's own
+     */
+    public static final class Violation extends IllegalStateException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String callSite;
+
+        Violation(String operation, String callSite) {
+            super(operation + " called on the main thread from " + callSite + " - use InventoryRepository or UserRepository");
+            this.callSite = callSite;
+        }
+
+        public String getCallSite() {
+            return callSite;
+        }
+    }
+
+    private static volatile MainThreadIoGuard instance;
+
+    private final BooleanSupplier onMainThread;
+    private final String guardedClass;
+    private volatile Mode mode = Mode.OFF;
+
+    // Violations per call site, e.g. "com.austin.inventory.SettingsFragment.lambda$onCreate$0(SettingsFragment.java:84)"
+    private final ConcurrentMap<String, LongAdder> violations = new ConcurrentHashMap<>();
+
+    public static MainThreadIoGuard getInstance() {
+        if (instance == null) {
+            synchronized (MainThreadIoGuard.class) {
+                if (instance == null) {
+                    instance = new MainThreadIoGuard(() -> Looper.getMainLooper().isCurrentThread(), DatabaseHelper.class.getName());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param onMainThread whether the calling thread is the main thread
+     * @param guardedClass class whose methods are checked - its frames, including lambdas and inner
+     * classes, are skipped when looking for the call site
+     */
+    MainThreadIoGuard(BooleanSupplier onMainThread, String guardedClass) {
+        this.onMainThread = onMainThread;
+        this.guardedClass = guardedClass;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Check a database call - costs one volatile read when the guard is off
+     * @param operation name of the call, e.g. "getInventoryPage"
+     * @return the violation to log in LOG mode, null if the call is allowed or the guard is off
+     * @throws Violation in THROW mode when called on the main thread
+     */
+    @Nullable
+    public Violation check(String operation) {
+        Mode current = mode;
+        if (current == Mode.OFF || !onMainThread.getAsBoolean()) {
+            return null;
+        }
+        Violation violation = new Violation(operation, callSite(new Throwable().getStackTrace()));
+        violations.computeIfAbsent(violation.getCallSite(), key -> new LongAdder()).increment();
+        if (current == Mode.THROW) {
+            throw violation;
+        }
+        return violation;
+    }
+
+    /**
+     * First frame outside this class and the guarded one
+     */
+    private String callSite(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (!className.equals(MainThreadIoGuard.class.getName()) && !className.startsWith(guardedClass)) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * Every call site seen so far, most violations first
+     * @return one line per call site as "count  call site", empty if there were none
+     */
+    public List<String> report() {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>();
+        for (Map.Entry<String, LongAdder> entry : violations.entrySet()) {
+            counts.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue().sum()));
+        }
+        counts.sort((a, b) -> a.getValue().equals(b.getValue()) ? a.getKey().compareTo(b.getKey()) : Long.compare(b.getValue(), a.getValue()));
+
+        List<String> lines = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Long> entry : counts) {
+            lines.add(entry.getValue() + "  " + entry.getKey());
+        }
+        return lines;
+    }
+
+    /**
+     * Forget the violations counted so far
+     */
+    public void reset() {
+        violations.clear();
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * MetricsFragment.java
+ *
+ * This class is responsible for the hidden debug screen listing how long database calls, inventory
+ * list refreshes and row binds take (count, p50, p95, p99 and max), with export to a CSV file.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Reached by tapping the version in Settings several times. Timings come from MetricsRegistry and
+ * cover the current process only.
+ */
+
+package com.austin.inventory;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+
+import com.austin.inventory.databinding.FragmentMetricsBinding;
+import com.google.android.material.snackbar.Snackbar;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.SortedMap;
+
+public class MetricsFragment extends Fragment {
+
+    private final MetricsRegistry metrics = MetricsRegistry.getInstance();
+    private final MainThreadIoGuard mainThreadGuard = MainThreadIoGuard.getInstance();
+    private AppExecutors executors;
+    private FragmentMetricsBinding binding;
+    private ActivityResultLauncher<String> exportLauncher;
+
+    @Override
+    public void onCreate(@Nullable Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        executors = AppExecutors.getInstance();
+        exportLauncher = registerForActivityResult(new ActivityResultContracts.CreateDocument("text/csv"), this::export);
+    }
+
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
+        binding = FragmentMetricsBinding.inflate(inflater, container, false);
+        requireActivity().setTitle(getString(R.string.metrics_title));
+
+        binding.refreshButton.setOnClickListener(v -> showMetrics());
+        binding.resetButton.setOnClickListener(v -> {
+            metrics.reset();
+            mainThreadGuard.reset();
+            showMetrics();
+        });
+        binding.exportButton.setOnClickListener(v -> exportLauncher.launch(getString(R.string.metrics_export_file_name)));
+        return binding.getRoot();
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+
+    /**
+     * Show the timings recorded so far, followed by any database calls the MainThreadIoGuard caught
+     * on the main thread - copying the histograms is cheap enough for the main thread
+     */
+    private void showMetrics() {
+        SortedMap<String, LatencyHistogram.Snapshot> snapshots = metrics.snapshot();
+        StringBuilder text = new StringBuilder(snapshots.isEmpty() ? getString(R.string.metrics_empty) : MetricsRegistry.formatTable(snapshots));
+
+        List<String> violations = mainThreadGuard.report();
+        if (!violations.isEmpty()) {
+            text.append('\n').append(getString(R.string.metrics_main_thread_calls)).append('\n');
+            for (String violation : violations) {
+                text.append(violation).append('\n');
+            }
+        }
+        binding.metricsTable.setText(text);
+    }
+
+    /**
+     * Write the timings to the CSV file the user created
+     * @param uri chosen document, null if the picker was cancelled
+     */
+    private void export(@Nullable Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        ContentResolver resolver = requireContext().getContentResolver();
+        SortedMap<String, LatencyHistogram.Snapshot> snapshots = metrics.snapshot();
+        executors.runRead(DatabaseScheduler.Priority.BACKGROUND, () -> {
+            try (OutputStream output = resolver.openOutputStream(uri, "wt")) {
+                if (output == null) {
+                    return false;
+                }
+                MetricsRegistry.writeCsv(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)), snapshots);
+                return true;
+            } catch (IOException | SecurityException e) {
+                Log.e("MetricsFragment", "Failed to export " + uri, e);
+                return false;
+            }
+        }, ResultCallback.of(written -> {
+            if (isAdded()) {
+                Snackbar.make(requireView(), getString(written ? R.string.metrics_export_done : R.string.metrics_export_failed), Snackbar.LENGTH_SHORT).show();
+            }
+        }, e -> {
+            if (isAdded()) {
+                Snackbar.make(requireView(), getString(R.string.metrics_export_failed), Snackbar.LENGTH_SHORT).show();
+            }
+        }));
+    }
+}
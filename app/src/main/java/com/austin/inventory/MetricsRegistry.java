@@ -0,0 +1,124 @@
+/**
+ * MetricsRegistry.java
+ *
+ * This class holds a LatencyHistogram per named operation - every DatabaseHelper call, the inventory
+ * list refresh and row binds - for the debug metrics screen and its export.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Names are grouped by a prefix: "db." for database calls and "ui." for the inventory screen.
+ * Timings use System.nanoTime() and are kept in memory only, so they reset when the process dies.
+ */
+
+package com.austin.inventory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public final class MetricsRegistry {
+
+    static final String CSV_HEADER = "operation,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms";
+
+    private static volatile MetricsRegistry instance;
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getInstance() {
+        if (instance == null) {
+            synchronized (MetricsRegistry.class) {
+                if (instance == null) {
+                    instance = new MetricsRegistry();
+                }
+            }
+        }
+        return instance;
+    }
+
+    // Package-private so tests can use a registry of their own
+    MetricsRegistry() {}
+
+    /**
+     * Histogram for an operation, created the first time it is asked for
+     * @param name operation name, e.g. "db.getInventoryPage"
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * Count one operation that started at startNanos and has just finished
+     * @param name operation name
+     * @param startNanos System.nanoTime() when the operation started
+     */
+    public void recordSince(String name, long startNanos) {
+        histogram(name).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Copy every histogram, sorted by name
+     */
+    public SortedMap<String, LatencyHistogram.Snapshot> snapshot() {
+        SortedMap<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Forget everything recorded so far - operations keep their histograms
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Lay the snapshots out as a fixed-width table for the debug screen, in milliseconds
+     */
+    public static String formatTable(SortedMap<String, LatencyHistogram.Snapshot> snapshots) {
+        StringBuilder table = new StringBuilder(String.format(Locale.US, "%-28s %7s %8s %8s %8s %8s%n",
+                "operation", "count", "p50", "p95", "p99", "max"));
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            table.append(String.format(Locale.US, "%-28s %7d %8s %8s %8s %8s%n", entry.getKey(), snapshot.count,
+                    millis(snapshot.valueAtPercentile(50)), millis(snapshot.valueAtPercentile(95)),
+                    millis(snapshot.valueAtPercentile(99)), millis(snapshot.maxNanos)));
+        }
+        return table.toString();
+    }
+
+    /**
+     * Write the snapshots as CSV, one row per operation, durations in milliseconds
+     * @param writer destination, flushed but not closed
+     */
+    public static void writeCsv(Writer writer, SortedMap<String, LatencyHistogram.Snapshot> snapshots) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write("\r\n");
+        for (Map.Entry<String, LatencyHistogram.Snapshot> entry : snapshots.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = entry.getValue();
+            // Operation names are code identifiers and never need quoting
+            writer.write(entry.getKey() + "," + snapshot.count + "," + millis(snapshot.meanNanos()) + ","
+                    + millis(snapshot.valueAtPercentile(50)) + "," + millis(snapshot.valueAtPercentile(95)) + ","
+                    + millis(snapshot.valueAtPercentile(99)) + "," + millis(snapshot.maxNanos));
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1_000_000.0);
+    }
+}
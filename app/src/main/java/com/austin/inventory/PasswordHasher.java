@@ -0,0 +1,30 @@
+package com.austin.inventory;
+
+/**
+ * Turns passwords into stored hashes and checks login attempts against them
+ * Implementations are slow on purpose and must only be called off the main thread
+ */
+public interface PasswordHasher {
+
+    /**
+     * Hash a new password with a fresh salt
+     * @param password password being hashed
+     * @return encoded hash, including everything needed to verify it later
+     */
+    String hash(String password);
+
+    /**
+     * Check a password against a stored hash
+     * @param password password being checked
+     * @param encoded hash stored for the user
+     * @return "true" if the password matches, "false" if not
+     */
+    boolean verify(String password, String encoded);
+
+    /**
+     * Check if a stored hash is weaker than what hash() produces now
+     * @param encoded hash stored for the user
+     * @return "true" if the hash should be replaced after the next successful login
+     */
+    boolean needsRehash(String encoded);
+}
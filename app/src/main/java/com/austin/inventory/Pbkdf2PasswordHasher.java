@@ -0,0 +1,181 @@
+/**
+ * Pbkdf2PasswordHasher.java
+ *
+ * This class hashes passwords with PBKDF2-HMAC-SHA256 and a random per-user salt. The iteration
+ * count is stored with every hash, so it can be raised later without breaking existing accounts.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Stored format: pbkdf2$<iterations>$<salt hex>$<hash hex>
+ * Hashes written by earlier versions of the app (unsalted SHA-256 as 64 hex characters) still
+ * verify, and needsRehash() reports them so they are replaced at the next successful login.
+ * Documentation: https://developer.android.com/reference/javax/crypto/SecretKeyFactory
+ */
+
+package com.austin.inventory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+
+    // Never go below this, however slow the device is
+    public static final int MIN_ITERATIONS = 10_000;
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    // Iterations run while measuring the device in calibrate()
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+
+    private final int iterations;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param iterations PBKDF2 cost used for new hashes
+     */
+    public Pbkdf2PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Find the iteration count that takes about targetMs to hash on this device
+     * Must not be called on the main thread - it runs for roughly twice the target
+     * @param targetMs time one hash should take
+     * @return iteration count, at least MIN_ITERATIONS
+     */
+    public static int calibrate(long targetMs) {
+        byte[] salt = new byte[SALT_BYTES];
+        // First run warms up the provider so it is not counted
+        derive("calibration", salt, CALIBRATION_ITERATIONS);
+        long start = System.nanoTime();
+        derive("calibration", salt, CALIBRATION_ITERATIONS);
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+
+        long iterations = CALIBRATION_ITERATIONS * targetMs * 1_000_000L / elapsedNanos;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(Integer.MAX_VALUE, iterations));
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = derive(password, salt, iterations);
+        return PREFIX + "$" + iterations + "$" + toHex(salt) + "$" + toHex(hash);
+    }
+
+    @Override
+    public boolean verify(String password, String encoded) {
+        if (isLegacy(encoded)) {
+            return constantTimeEquals(sha256(password), fromHex(encoded));
+        }
+
+        String[] parts = encoded.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = fromHex(parts[2]);
+            byte[] expected = fromHex(parts[3]);
+            return constantTimeEquals(derive(password, salt, storedIterations), expected);
+        } catch (IllegalArgumentException e) {
+            // Corrupt hash - treat as a failed login rather than crashing
+            return false;
+        }
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        if (isLegacy(encoded)) {
+            return true;
+        }
+        String[] parts = encoded.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Check for a hash written by the old unsalted SHA-256 scheme
+     */
+    private static boolean isLegacy(String encoded) {
+        if (encoded.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < encoded.length(); i++) {
+            if (Character.digit(encoded.charAt(i), 16) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Available on every supported API level
+            throw new IllegalStateException(ALGORITHM + " unavailable", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private static byte[] sha256(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Compare without returning early, so timing does not reveal how much of a hash matched
+     */
+    private static boolean constantTimeEquals(byte[] a, byte[] b) {
+        return MessageDigest.isEqual(a, b);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd length hex string");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high == -1 || low == -1) {
+                throw new IllegalArgumentException("Invalid hex string");
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,76 @@
+package com.austin.inventory;
+
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Keeps unflushed quantity changes in shared preferences as "batch=id:delta,id:delta;batch=..."
+ * apply() writes to disk in the background, so recording changes never blocks the calling thread
+ */
+public class PreferencesQuantityJournal implements QuantityWriteBuffer.Journal {
+
+    private static final String KEY_BATCHES = "pending_quantity_batches";
+
+    private final SharedPreferences preferences;
+
+    public PreferencesQuantityJournal(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    @Override
+    public SortedMap<Long, Map<Integer, Integer>> load() {
+        SortedMap<Long, Map<Integer, Integer>> batches = new TreeMap<>();
+        String stored = preferences.getString(KEY_BATCHES, "");
+        if (!stored.isEmpty()) {
+            for (String batch : stored.split(";")) {
+                int separator = batch.indexOf('=');
+                try {
+                    batches.put(Long.parseLong(batch.substring(0, separator)), parseDeltas(batch.substring(separator + 1)));
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    Log.e("PreferencesQuantityJournal", "Skipping malformed journal batch " + batch, e);
+                }
+            }
+        }
+        return batches;
+    }
+
+    @Override
+    public void save(SortedMap<Long, Map<Integer, Integer>> batches) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<Long, Map<Integer, Integer>> batch : batches.entrySet()) {
+            if (builder.length() > 0) builder.append(';');
+            builder.append(batch.getKey()).append('=');
+            boolean first = true;
+            for (Map.Entry<Integer, Integer> entry : batch.getValue().entrySet()) {
+                if (!first) builder.append(',');
+                builder.append(entry.getKey()).append(':').append(entry.getValue());
+                first = false;
+            }
+        }
+        preferences.edit()
+                .putString(KEY_BATCHES, builder.toString())
+                .apply();
+    }
+
+    private static Map<Integer, Integer> parseDeltas(String stored) {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        if (stored.isEmpty()) {
+            return deltas;
+        }
+
+        for (String entry : stored.split(",")) {
+            String[] parts = entry.split(":");
+            try {
+                deltas.put(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                Log.e("PreferencesQuantityJournal", "Skipping malformed journal entry " + entry, e);
+            }
+        }
+        return deltas;
+    }
+}
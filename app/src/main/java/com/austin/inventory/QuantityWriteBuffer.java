@@ -0,0 +1,270 @@
+/**
+ * QuantityWriteBuffer.java
+ *
+ * This class collects rapid +/- taps as a net quantity change per item and writes them to the
+ * database together once the user stops tapping, instead of running one UPDATE per tap.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Pending changes are flushed after a short quiet period, when the buffer fills up, or when flush()
+ * is called (e.g. when the inventory screen pauses). Changes are also recorded in a Journal so that
+ * taps made just before the process is killed are replayed on the next start - the journal is
+ * rewritten at most once per JOURNAL_DELAY_MS while tapping rather than on every tap.
+ *
+ * Each flush writes its changes as a numbered batch and the Sink stores the number of the last batch
+ * in the same transaction. A batch replayed from the journal after the process died between the
+ * commit and the journal update is recognised and skipped instead of being counted twice. The
+ * journal is saved asynchronously, so the copy on disk can be older than the database - new batches
+ * are numbered after whichever of the two has seen more, never reusing a number the Sink would skip.
+ *
+ * Readers that add getPendingDelta() to rows they read from the Sink do both inside read(). A batch
+ * is committed and taken off the pending list as one step for those readers, so it is counted once -
+ * either in the rows or as pending - never in both and never in neither.
+ */
+
+package com.austin.inventory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+public class QuantityWriteBuffer {
+
+    /**
+     * Destination for buffered changes - must apply all deltas in a single transaction, together
+     * with the batch number, and ignore a batch numbered no higher than one it already applied
+     */
+    public interface Sink {
+        void applyQuantityDeltas(long batch, Map<Integer, Integer> deltas);
+
+        /**
+         * @return number of the last batch applied, 0 if none
+         */
+        long appliedQuantityBatch();
+    }
+
+    /**
+     * Durable copy of the changes that are not known to be written yet, by batch number
+     * The last batch is the one still collecting changes and is kept even when empty, so batch
+     * numbers keep increasing across restarts
+     */
+    public interface Journal {
+        SortedMap<Long, Map<Integer, Integer>> load();
+
+        void save(SortedMap<Long, Map<Integer, Integer>> batches);
+    }
+
+    // Longest a tap waits before it is recorded in the journal
+    static final long JOURNAL_DELAY_MS = 100;
+
+    private final Sink sink;
+    private final Journal journal;
+    private final ScheduledExecutorService scheduler;
+    private final long quietPeriodMs;
+    private final int maxPendingItems;
+
+    // Net change per item id still being collected, written as batch openBatch
+    private final Map<Integer, Integer> pending = new HashMap<>();
+    private long openBatch;
+    // Whether openBatch has been checked against the sink - until then nothing is numbered for good
+    private boolean batchesSeeded;
+    // Batches taken by a flush that have not been committed yet, oldest first
+    private final SortedMap<Long, Map<Integer, Integer>> unwritten = new TreeMap<>();
+    private final Object flushLock = new Object();
+    // Held shared by read() and exclusively from a batch's commit until it leaves unwritten
+    // Taps only take the monitor, so they never wait for a commit
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private ScheduledFuture<?> scheduledFlush;
+    private ScheduledFuture<?> scheduledJournal;
+
+    /**
+     * @param sink where flushed changes are written
+     * @param journal durable record of unflushed changes
+     * @param scheduler runs the delayed flush off the main thread
+     * @param quietPeriodMs how long after the last tap to wait before writing
+     * @param maxPendingItems number of distinct items that forces an immediate flush
+     */
+    public QuantityWriteBuffer(Sink sink, Journal journal, ScheduledExecutorService scheduler, long quietPeriodMs, int maxPendingItems) {
+        this.sink = sink;
+        this.journal = journal;
+        this.scheduler = scheduler;
+        this.quietPeriodMs = quietPeriodMs;
+        this.maxPendingItems = maxPendingItems;
+
+        // Replay anything left over from a previous process - batches it did commit are skipped by the sink
+        // The sink is not read here (this may be the main thread) but before anything is journaled or written
+        SortedMap<Long, Map<Integer, Integer>> recovered = journal.load();
+        boolean replay;
+        synchronized (this) {
+            openBatch = recovered.isEmpty() ? 1 : recovered.lastKey() + 1;
+            for (Map.Entry<Long, Map<Integer, Integer>> batch : recovered.entrySet()) {
+                if (!batch.getValue().isEmpty()) {
+                    unwritten.put(batch.getKey(), batch.getValue());
+                }
+            }
+            replay = !unwritten.isEmpty();
+        }
+        if (replay) {
+            scheduleFlush(0);
+        }
+    }
+
+    /**
+     * Record a quantity change for an item
+     * @param itemId id of item being changed
+     * @param delta amount added (negative to remove)
+     */
+    public void add(int itemId, int delta) {
+        boolean full;
+        synchronized (this) {
+            Integer current = pending.get(itemId);
+            int net = (current == null ? 0 : current) + delta;
+            if (net == 0) {
+                pending.remove(itemId);
+            } else {
+                pending.put(itemId, net);
+            }
+            full = pending.size() >= maxPendingItems;
+            if (scheduledJournal == null) {
+                scheduledJournal = scheduler.schedule(() -> {
+                    seedBatches();
+                    saveJournal();
+                }, JOURNAL_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+        scheduleFlush(full ? 0 : quietPeriodMs);
+    }
+
+    /**
+     * Net change for an item that has not been written yet
+     * @param itemId id of item
+     * @return pending delta, 0 if none
+     */
+    public synchronized int getPendingDelta(int itemId) {
+        Integer delta = pending.get(itemId);
+        int total = delta == null ? 0 : delta;
+        for (Map<Integer, Integer> batch : unwritten.values()) {
+            delta = batch.get(itemId);
+            total += delta == null ? 0 : delta;
+        }
+        return total;
+    }
+
+    /**
+     * Read from the sink and apply pending deltas without a batch being committed in between
+     * Must not be called on the main thread - it waits for a commit in progress to finish
+     * @param work reads rows from the sink, then adds getPendingDelta() to them
+     * @return result of work
+     */
+    public <T> T read(Supplier<T> work) {
+        commitLock.readLock().lock();
+        try {
+            return work.get();
+        } finally {
+            commitLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return "true" if there are changes that have not been committed yet
+     */
+    public synchronized boolean hasPendingChanges() {
+        return !pending.isEmpty() || !unwritten.isEmpty();
+    }
+
+    /**
+     * Schedule an immediate flush on the background scheduler
+     */
+    public void flushAsync() {
+        scheduleFlush(0);
+    }
+
+    /**
+     * Write all pending changes on the calling thread - must not be called on the main thread
+     * A batch that fails stays queued and is retried, ahead of newer changes, by the next flush
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            seedBatches();
+            SortedMap<Long, Map<Integer, Integer>> batches;
+            synchronized (this) {
+                if (!pending.isEmpty()) {
+                    unwritten.put(openBatch++, new HashMap<>(pending));
+                    pending.clear();
+                }
+                if (unwritten.isEmpty()) {
+                    return;
+                }
+                // Journal the batch under its number before writing it, so a replay can be recognised
+                saveJournal();
+                batches = new TreeMap<>(unwritten);
+            }
+
+            for (Map.Entry<Long, Map<Integer, Integer>> batch : batches.entrySet()) {
+                commitLock.writeLock().lock();
+                try {
+                    sink.applyQuantityDeltas(batch.getKey(), batch.getValue());
+                    synchronized (this) {
+                        unwritten.remove(batch.getKey());
+                    }
+                } finally {
+                    commitLock.writeLock().unlock();
+                }
+            }
+
+            saveJournal();
+        }
+    }
+
+    /**
+     * Number the open batch after the last one the sink applied, once - the journal may have been
+     * saved before a commit that reached the database. Recovered batches the sink already applied
+     * are dropped so they are no longer counted as pending
+     */
+    private void seedBatches() {
+        synchronized (this) {
+            if (batchesSeeded) {
+                return;
+            }
+        }
+        long applied = sink.appliedQuantityBatch();
+        synchronized (this) {
+            if (!batchesSeeded) {
+                openBatch = Math.max(openBatch, applied + 1);
+                unwritten.headMap(applied + 1).clear();
+                batchesSeeded = true;
+            }
+        }
+    }
+
+    /**
+     * Record everything not yet written, including the batch still being collected
+     */
+    private synchronized void saveJournal() {
+        if (scheduledJournal != null) {
+            scheduledJournal.cancel(false);
+            scheduledJournal = null;
+        }
+        SortedMap<Long, Map<Integer, Integer>> batches = new TreeMap<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> batch : unwritten.entrySet()) {
+            batches.put(batch.getKey(), new HashMap<>(batch.getValue()));
+        }
+        batches.put(openBatch, new HashMap<>(pending));
+        journal.save(batches);
+    }
+
+    private synchronized void scheduleFlush(long delayMs) {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = scheduler.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+    }
+}
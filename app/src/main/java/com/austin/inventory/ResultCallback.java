@@ -0,0 +1,51 @@
+package com.austin.inventory;
+
+import java.util.function.Consumer;
+
+/**
+ * Receives the result of a background operation on the main thread
+ * @param <T> type of result
+ */
+public interface ResultCallback<T> {
+    void onResult(T result);
+
+    /**
+     * Called on the main thread instead of onResult when the operation threw - it has already
+     * been logged, so callbacks that have nothing to show the user can ignore it
+     * @param e what the operation threw
+     */
+    default void onError(RuntimeException e) {
+    }
+
+    /**
+     * @return "true" once whoever asked for the result has gone away - reads not yet started for it
+     * are skipped and the result is dropped
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+
+    /**
+     * @param onResult receives the result
+     * @param onError receives a failure instead, e.g. to tell the user
+     * @return callback passing results and failures to the two
+     */
+    static <T> ResultCallback<T> of(ResultCallback<T> onResult, Consumer<RuntimeException> onError) {
+        return new ResultCallback<T>() {
+            @Override
+            public void onResult(T result) {
+                onResult.onResult(result);
+            }
+
+            @Override
+            public void onError(RuntimeException e) {
+                onError.accept(e);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return onResult.isCancelled();
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the user_prefs values read on hot paths - held by SettingsStore and
+ * replaced whenever a preference changes, so callers read plain fields instead of SharedPreferences
+ */
+public final class Settings {
+
+    // Keys shared by preferences.xml and the code that writes user_prefs directly
+    static final String KEY_LOGGED_IN_USER_EMAIL = "logged_in_user_email";
+    static final String KEY_SMS_ENABLED = "sms_notifications_enabled";
+    static final String KEY_MINIMUM_INVENTORY = "minimum_inventory";
+    static final String KEY_NOTIFY_ZERO = "notify_inventory_zero";
+    static final String KEY_DIGEST_WINDOW = "sms_digest_window";
+
+    // Integer copy written by earlier versions of SettingsFragment - read only as a fallback
+    private static final String LEGACY_KEY_MINIMUM_INVENTORY = "minimum_inventory_value";
+
+    static final int DEFAULT_MINIMUM_INVENTORY = 2;
+    static final int DEFAULT_DIGEST_MINUTES = 5;
+
+    @Nullable
+    public final String loggedInUserEmail;
+    public final boolean smsEnabled;
+    public final int minimumInventory;
+    public final boolean notifyWhenZero;
+    public final int digestMinutes;
+
+    Settings(@Nullable String loggedInUserEmail, boolean smsEnabled, int minimumInventory, boolean notifyWhenZero, int digestMinutes) {
+        this.loggedInUserEmail = loggedInUserEmail;
+        this.smsEnabled = smsEnabled;
+        this.minimumInventory = minimumInventory;
+        this.notifyWhenZero = notifyWhenZero;
+        this.digestMinutes = digestMinutes;
+    }
+
+    /**
+     * Build a snapshot from the contents of user_prefs
+     * @param values result of SharedPreferences.getAll()
+     * @return settings, with defaults for anything missing or unreadable
+     */
+    static Settings from(Map<String, ?> values) {
+        Object email = values.get(KEY_LOGGED_IN_USER_EMAIL);
+        return new Settings(
+                email instanceof String ? (String) email : null,
+                readBoolean(values, KEY_SMS_ENABLED),
+                readInt(values, KEY_MINIMUM_INVENTORY, LEGACY_KEY_MINIMUM_INVENTORY, DEFAULT_MINIMUM_INVENTORY, 0),
+                readBoolean(values, KEY_NOTIFY_ZERO),
+                readInt(values, KEY_DIGEST_WINDOW, null, DEFAULT_DIGEST_MINUTES, 1));
+    }
+
+    /**
+     * Check if a changed preference affects the snapshot
+     * @param key key that changed
+     * @return "true" if the snapshot must be rebuilt
+     */
+    static boolean isSettingsKey(String key) {
+        switch (key) {
+            case KEY_LOGGED_IN_USER_EMAIL:
+            case KEY_SMS_ENABLED:
+            case KEY_MINIMUM_INVENTORY:
+            case KEY_NOTIFY_ZERO:
+            case KEY_DIGEST_WINDOW:
+            case LEGACY_KEY_MINIMUM_INVENTORY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean readBoolean(Map<String, ?> values, String key) {
+        Object value = values.get(key);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    /**
+     * EditTextPreference stores numbers as strings - parse them, falling back to the old integer copy
+     * @param legacyKey key of the old integer copy, null if there never was one
+     */
+    private static int readInt(Map<String, ?> values, String key, @Nullable String legacyKey, int defaultValue, int minimum) {
+        Object value = values.get(key);
+        if (value instanceof String) {
+            try {
+                int parsed = Integer.parseInt(((String) value).trim());
+                if (parsed >= minimum) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // Fall through to the legacy value or default
+            }
+        }
+        Object legacy = legacyKey == null ? null : values.get(legacyKey);
+        if (legacy instanceof Integer && (Integer) legacy >= minimum) {
+            return (Integer) legacy;
+        }
+        return defaultValue;
+    }
+}
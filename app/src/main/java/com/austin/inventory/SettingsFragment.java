@@ -5,41 +5,54 @@
  *
  * Author: Austin Henley
  * Created on: 12/5/2023
+ *
+ * The preference widgets read and write user_prefs directly, so the values the rest of the app
+ * reads through SettingsStore are the ones shown here.
  */
 
 package com.austin.inventory;
 
 import android.Manifest;
 import android.app.AlertDialog;
-import android.content.Context;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.navigation.fragment.NavHostFragment;
 import androidx.preference.EditTextPreference;
+import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
 import androidx.preference.SwitchPreferenceCompat;
 
 import com.google.android.material.snackbar.Snackbar;
 
 public class SettingsFragment extends PreferenceFragmentCompat {
-    DatabaseHelper databaseHelper;
+
+    // Tapping the version this many times opens the debug metrics screen
+    private static final int METRICS_TAPS = 7;
+
+    UserRepository userRepository;
+    InventoryRepository inventoryRepository;
     private ActivityResultLauncher<String> requestPermissionLauncher;
     private SharedPreferences preferences;
     private String currentUserEmail;
+    private int versionTaps;
 
     @Override
     public void onCreatePreferences(Bundle savedInstanceState, String rootKey) {
+        // Must be set before the preferences are inflated so they bind to user_prefs
+        getPreferenceManager().setSharedPreferencesName(SettingsStore.PREFERENCES_NAME);
         setPreferencesFromResource(R.xml.preferences, rootKey);
-        preferences = requireActivity().getSharedPreferences("user_prefs", Context.MODE_PRIVATE);
-        currentUserEmail = preferences.getString("logged_in_user_email", null);
+        preferences = getPreferenceManager().getSharedPreferences();
+        currentUserEmail = SettingsStore.getInstance(requireContext()).get().loggedInUserEmail;
 
-        databaseHelper = new DatabaseHelper(getContext());
+        userRepository = UserRepository.getInstance(requireContext());
+        inventoryRepository = InventoryRepository.getInstance(requireContext());
 
-        SwitchPreferenceCompat smsPreference = findPreference("notifications");
+        SwitchPreferenceCompat smsPreference = findPreference(Settings.KEY_SMS_ENABLED);
         SwitchPreferenceCompat enable2FAPref = findPreference("enable_2fa");
-        SwitchPreferenceCompat notifyInventoryZeroPref = findPreference("notify_inventory_zero");
+        SwitchPreferenceCompat notifyInventoryZeroPref = findPreference(Settings.KEY_NOTIFY_ZERO);
 
         requestPermissionLauncher = registerForActivityResult(new ActivityResultContracts.RequestPermission(), isGranted -> {
             if (isGranted) {
@@ -53,10 +66,11 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         if (smsPreference != null) {
             smsPreference.setOnPreferenceChangeListener((preference, newValue) -> {
                 if ((Boolean) newValue) {
+                    // Stays off until permission is granted - updateSmsPreference turns it on
                     showSmsExplanationDialog();
-                } else {
-                    resetSmsPreference();
+                    return false;
                 }
+                resetSmsPreference();
                 return true;
             });
         }
@@ -69,17 +83,43 @@ public class SettingsFragment extends PreferenceFragmentCompat {
                     showSnackbar("2FA cannot be enabled as SMS notifications are disabled.");
                     return false;
                 } else {
-                    databaseHelper.updateUser2FASetting(currentUserEmail, is2FAEnabled);
+                    userRepository.updateTwoFactorSetting(currentUserEmail, is2FAEnabled);
                     return true;
                 }
             });
         }
 
-        EditTextPreference minimumInventoryPref = findPreference("minimum_inventory");
+        // Numbers are saved as strings by EditTextPreference and parsed by Settings - only validate here
+        EditTextPreference minimumInventoryPref = findPreference(Settings.KEY_MINIMUM_INVENTORY);
         if (minimumInventoryPref != null) {
             minimumInventoryPref.setOnPreferenceChangeListener((preference, newValue) -> {
-                int minInventory = Integer.parseInt((String) newValue);
-                preferences.edit().putInt("minimum_inventory_value", minInventory).apply();
+                if (parseNumber(newValue) < 0) {
+                    showSnackbar("Invalid minimum inventory");
+                    return false;
+                }
+                return true;
+            });
+        }
+
+        EditTextPreference digestWindowPref = findPreference(Settings.KEY_DIGEST_WINDOW);
+        if (digestWindowPref != null) {
+            digestWindowPref.setOnPreferenceChangeListener((preference, newValue) -> {
+                if (parseNumber(newValue) < 1) {
+                    showSnackbar("Digest window must be at least 1 minute");
+                    return false;
+                }
+                return true;
+            });
+        }
+
+        Preference versionPref = findPreference("app_version");
+        if (versionPref != null) {
+            versionPref.setSummary(BuildConfig.VERSION_NAME);
+            versionPref.setOnPreferenceClickListener(preference -> {
+                if (++versionTaps >= METRICS_TAPS) {
+                    versionTaps = 0;
+                    NavHostFragment.findNavController(this).navigate(R.id.action_settings_to_metrics);
+                }
                 return true;
             });
         }
@@ -91,13 +131,25 @@ public class SettingsFragment extends PreferenceFragmentCompat {
                     showSnackbar("Inventory zero notifications require SMS to be enabled.");
                     return false;
                 } else {
-                    preferences.edit().putBoolean("notify_inventory_zero", notifyWhenZero).apply();
                     return true;
                 }
             });
         }
     }
 
+    /**
+     * Parse a number typed into an EditTextPreference
+     * @param value new value of the preference
+     * @return the number, -1 if it is not a number
+     */
+    private static int parseNumber(Object value) {
+        try {
+            return Integer.parseInt(((String) value).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     /**
      * Show SMS preference explanation
      */
@@ -117,7 +169,16 @@ public class SettingsFragment extends PreferenceFragmentCompat {
      * @param enabled bool indicating SMS preference
      */
     private void updateSmsPreference(boolean enabled) {
-        preferences.edit().putBoolean("sms_notifications_enabled", enabled).apply();
+        SwitchPreferenceCompat smsPreference = findPreference(Settings.KEY_SMS_ENABLED);
+        if (smsPreference != null) {
+            // Saves to user_prefs as well as updating the switch
+            smsPreference.setChecked(enabled);
+        } else {
+            preferences.edit().putBoolean(Settings.KEY_SMS_ENABLED, enabled).apply();
+        }
+        if (currentUserEmail != null) {
+            inventoryRepository.alertRecipientChanged(currentUserEmail);
+        }
         String message = enabled ? "SMS notifications enabled" : "SMS notifications disabled";
         showSnackbar(message);
     }
@@ -139,18 +200,13 @@ public class SettingsFragment extends PreferenceFragmentCompat {
 
         // Automatically turn off 2FA if SMS is turned off
         if (currentUserEmail != null) {
-            databaseHelper.updateUser2FASetting(currentUserEmail, false);
+            userRepository.updateTwoFactorSetting(currentUserEmail, false);
             SwitchPreferenceCompat enable2FAPref = findPreference("enable_2fa");
             if (enable2FAPref != null) {
                 enable2FAPref.setChecked(false);
                 showSnackbar("2FA has been disabled as SMS notifications are turned off");
             }
         }
-
-        SwitchPreferenceCompat smsPreference = findPreference("notifications");
-        if (smsPreference != null) {
-            smsPreference.setChecked(false);
-        }
     }
 
 
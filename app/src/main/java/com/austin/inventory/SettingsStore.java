@@ -0,0 +1,63 @@
+/**
+ * SettingsStore.java
+ *
+ * This class holds the current Settings snapshot for the whole app. The snapshot is rebuilt by an
+ * OnSharedPreferenceChangeListener whenever user_prefs changes - including changes made through
+ * SettingsFragment, which edits user_prefs directly.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Documentation: https://developer.android.com/reference/android/content/SharedPreferences.OnSharedPreferenceChangeListener
+ */
+
+package com.austin.inventory;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+public class SettingsStore {
+
+    static final String PREFERENCES_NAME = "user_prefs";
+
+    private static volatile SettingsStore instance;
+
+    private final SharedPreferences preferences;
+    private volatile Settings settings;
+    // SharedPreferences only keeps a weak reference to its listeners, so this one must be held here
+    private final SharedPreferences.OnSharedPreferenceChangeListener listener = (sharedPreferences, key) -> {
+        // user_prefs also holds the quantity journal, which changes on every tap
+        if (key == null || Settings.isSettingsKey(key)) {
+            refresh();
+        }
+    };
+
+    public static SettingsStore getInstance(Context context) {
+        if (instance == null) {
+            synchronized (SettingsStore.class) {
+                if (instance == null) {
+                    instance = new SettingsStore(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private SettingsStore(Context context) {
+        preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        preferences.registerOnSharedPreferenceChangeListener(listener);
+        refresh();
+    }
+
+    /**
+     * Current settings - a plain field read, safe to call on every tap and from any thread
+     * @return latest snapshot
+     */
+    public Settings get() {
+        return settings;
+    }
+
+    private void refresh() {
+        settings = Settings.from(preferences.getAll());
+    }
+}
@@ -0,0 +1,34 @@
+/**
+ * SmsManagerTransport.java
+ *
+ * This class sends alert digests as text messages through the platform SmsManager. Digests longer
+ * than one SMS are split into parts and sent as a multipart message.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * Utilizes smsManager for sending SMS - Update to Twilio in future
+ * Documentation: https://developer.android.com/reference/android/telephony/SmsManager
+ */
+
+package com.austin.inventory;
+
+import android.telephony.SmsManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+public class SmsManagerTransport implements AlertDispatcher.SmsTransport {
+
+    @Override
+    public void send(String phoneNumber, String message) {
+        try {
+            SmsManager smsManager = SmsManager.getDefault();
+            ArrayList<String> parts = smsManager.divideMessage(message);
+            smsManager.sendMultipartTextMessage(phoneNumber, null, parts, null, null);
+            Log.d("SmsManagerTransport", "SMS sent: " + message);
+        } catch (Exception e) {
+            Log.e("SmsManagerTransport", "SMS failed to send", e);
+        }
+    }
+}
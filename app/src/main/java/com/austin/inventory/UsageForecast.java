@@ -0,0 +1,86 @@
+/**
+ * UsageForecast.java
+ *
+ * This class estimates how fast an item is being used and how long its stock will last. The
+ * estimate is updated incrementally from each quantity change, so neither writing a change nor
+ * showing a forecast ever reads an item's history.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * The usage rate is an exponentially weighted sum of the units used: each use adds
+ * units / TIME_CONSTANT_DAYS and the rate decays by e^(-elapsed / TIME_CONSTANT_DAYS) in between.
+ * Steady use of n units a day settles at n per day whatever the size of each use, and an item that
+ * stops being used drifts towards no forecast instead of keeping its old rate forever.
+ * Documentation: https://en.wikipedia.org/wiki/Exponential_smoothing#Time_constant
+ */
+
+package com.austin.inventory;
+
+import java.util.concurrent.TimeUnit;
+
+final class UsageForecast {
+
+    // Roughly how many days of history the rate reflects
+    static final double TIME_CONSTANT_DAYS = 7;
+
+    // Rate of an item with no recorded use
+    static final double NO_USAGE = 0;
+
+    // Forecasts further out than this are not worth showing
+    static final int MAX_FORECAST_DAYS = 365;
+
+    private static final double MS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private UsageForecast() {}
+
+    /**
+     * Usage rate at a later time, with no use in between
+     * @param rate units per day as of updatedAt
+     * @param updatedAt time the rate was last changed, in epoch milliseconds
+     * @param now time to decay the rate to, in epoch milliseconds
+     * @return units per day as of now
+     */
+    static double rateAt(double rate, long updatedAt, long now) {
+        if (rate <= NO_USAGE || now <= updatedAt) {
+            return Math.max(rate, NO_USAGE);
+        }
+        return rate * Math.exp(-(now - updatedAt) / MS_PER_DAY / TIME_CONSTANT_DAYS);
+    }
+
+    /**
+     * Usage rate after some units are used
+     * @param rate units per day as of updatedAt
+     * @param updatedAt time the rate was last changed, in epoch milliseconds
+     * @param used number of units taken out of stock
+     * @param now time of the use, in epoch milliseconds
+     * @return units per day as of now
+     */
+    static double afterUse(double rate, long updatedAt, int used, long now) {
+        return afterUse(rateAt(rate, updatedAt, now), used);
+    }
+
+    /**
+     * Usage rate after some units are used, for a rate that is already current
+     * @param rate units per day as of the use
+     * @param used number of units taken out of stock
+     * @return units per day
+     */
+    static double afterUse(double rate, int used) {
+        return Math.max(rate, NO_USAGE) + used / TIME_CONSTANT_DAYS;
+    }
+
+    /**
+     * Days until an item runs out at its current usage rate
+     * @param quantity units in stock
+     * @param rate units per day
+     * @return whole days left, -1 if there is too little usage to forecast within MAX_FORECAST_DAYS
+     */
+    static int daysUntilStockout(int quantity, double rate) {
+        if (rate <= NO_USAGE) {
+            return -1;
+        }
+        double days = quantity / rate;
+        return days > MAX_FORECAST_DAYS ? -1 : (int) days;
+    }
+}
@@ -0,0 +1,22 @@
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Everything the login path needs about a user, read in one query - credentials are checked in memory
+ */
+public final class UserRecord {
+    public final String email;
+    // Encoded hash from a PasswordHasher
+    public final String passwordHash;
+    @Nullable
+    public final String phone;
+    public final boolean twoFactorEnabled;
+
+    public UserRecord(String email, String passwordHash, @Nullable String phone, boolean twoFactorEnabled) {
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.phone = phone;
+        this.twoFactorEnabled = twoFactorEnabled;
+    }
+}
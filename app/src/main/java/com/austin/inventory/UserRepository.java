@@ -0,0 +1,154 @@
+/**
+ * UserRepository.java
+ *
+ * This class is the entry point for all user account data used by the UI. Lookups and password
+ * checks run on the shared read pool, account changes on the single database writer, and results
+ * are delivered on the main thread. New passwords are hashed on the computation executor.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * The password hashing cost is measured on the device the first time it is needed and saved, so
+ * one hash takes about TARGET_HASH_MS however fast or slow the phone is.
+ */
+
+package com.austin.inventory;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+public class UserRepository {
+
+    /**
+     * Outcome of a registration attempt
+     */
+    public enum RegistrationResult {
+        CREATED,
+        ALREADY_EXISTS,
+        FAILED
+    }
+
+    /**
+     * Outcome of a login attempt
+     */
+    public static final class LoginResult {
+        public final boolean success;
+        // Phone number to send a verification code to, null when 2FA is not required
+        @Nullable
+        public final String twoFactorPhone;
+
+        LoginResult(boolean success, @Nullable String twoFactorPhone) {
+            this.success = success;
+            this.twoFactorPhone = twoFactorPhone;
+        }
+    }
+
+    // Time one password hash should take on this device
+    private static final long TARGET_HASH_MS = 250;
+    private static final String PREF_HASH_ITERATIONS = "password_hash_iterations";
+
+    private static volatile UserRepository instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final AppExecutors executors;
+    private final SharedPreferences preferences;
+    // Created on first use by getPasswordHasher - calibration is too slow for the main thread
+    private PasswordHasher passwordHasher;
+
+    public static UserRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (UserRepository.class) {
+                if (instance == null) {
+                    instance = new UserRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private UserRepository(Context context) {
+        databaseHelper = DatabaseHelper.getInstance(context);
+        executors = AppExecutors.getInstance();
+        preferences = context.getSharedPreferences("user_prefs", Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Get the hasher, calibrating its cost the first time the app ever needs it - called on the
+     * computation executor when registering and on the read pool when logging in, never on the writer
+     */
+    private synchronized PasswordHasher getPasswordHasher() {
+        if (passwordHasher == null) {
+            int iterations = preferences.getInt(PREF_HASH_ITERATIONS, 0);
+            if (iterations < Pbkdf2PasswordHasher.MIN_ITERATIONS) {
+                iterations = Pbkdf2PasswordHasher.calibrate(TARGET_HASH_MS);
+                preferences.edit().putInt(PREF_HASH_ITERATIONS, iterations).apply();
+                Log.i("UserRepository", "Calibrated password hashing to " + iterations + " iterations");
+            }
+            passwordHasher = new Pbkdf2PasswordHasher(iterations);
+        }
+        return passwordHasher;
+    }
+
+    /**
+     * Create a new account unless the email is already registered
+     * @param callback receives the outcome
+     */
+    public void register(String email, String password, String phone, ResultCallback<RegistrationResult> callback) {
+        // Hashing takes about TARGET_HASH_MS, so it is done before the writer is involved and other
+        // writes never queue behind it
+        executors.runComputation(() -> getPasswordHasher().hash(password), passwordHash ->
+                // On the writer so two sign-ups for the same email cannot both pass the check
+                executors.runWrite(() -> {
+                    if (databaseHelper.checkUserEmail(email)) {
+                        return RegistrationResult.ALREADY_EXISTS;
+                    }
+                    return databaseHelper.insertUser(email, passwordHash, phone) ? RegistrationResult.CREATED : RegistrationResult.FAILED;
+                }, callback));
+    }
+
+    /**
+     * Check credentials and whether a verification code is needed
+     * The user is read with a single query and everything else is decided in memory
+     * Hashes from older versions of the app are replaced with the current scheme once the password is known to match
+     * @param checkTwoFactor "true" if 2FA should be honoured (SMS is enabled on this device)
+     * @param callback receives the outcome
+     */
+    public void login(String email, String password, boolean checkTwoFactor, ResultCallback<LoginResult> callback) {
+        executors.runRead(DatabaseScheduler.Priority.USER_VISIBLE, () -> {
+            PasswordHasher hasher = getPasswordHasher();
+            UserRecord user = databaseHelper.getUserRecord(email);
+            if (user == null || user.passwordHash == null || !hasher.verify(password, user.passwordHash)) {
+                return new LoginResult(false, null);
+            }
+            if (hasher.needsRehash(user.passwordHash)) {
+                String passwordHash = hasher.hash(password);
+                executors.runWrite(() -> databaseHelper.updatePasswordHash(email, passwordHash), null);
+            }
+            if (checkTwoFactor && user.twoFactorEnabled) {
+                return new LoginResult(true, user.phone);
+            }
+            return new LoginResult(true, null);
+        }, callback);
+    }
+
+    /**
+     * Look up the phone number for a user
+     * @param callback receives the phone number, null if unknown
+     */
+    public void getPhoneNumber(String email, ResultCallback<String> callback) {
+        executors.runRead(DatabaseScheduler.Priority.USER_VISIBLE, () -> databaseHelper.getUserPhoneNumber(email), callback);
+    }
+
+    /**
+     * Turn 2FA on or off for a user
+     */
+    public void updateTwoFactorSetting(String email, boolean enabled) {
+        executors.runWrite(() -> {
+            databaseHelper.updateUser2FASetting(email, enabled);
+            return null;
+        }, null);
+    }
+}
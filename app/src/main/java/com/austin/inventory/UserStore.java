@@ -0,0 +1,63 @@
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+/**
+ * User account storage - implemented by DatabaseHelper on Android and by a JDBC store for off-device benchmarks
+ * Every method blocks on the database and must not be called on the main thread
+ */
+public interface UserStore {
+
+    /**
+     * Insert user into table
+     * @param email email of user being inserted
+     * @param passwordHash encoded hash from a PasswordHasher - never the plain password
+     * @param phone phone number of user being inserted
+     * @return "true" if successful, "false" if failed
+     */
+    boolean insertUser(String email, String passwordHash, String phone);
+
+    /**
+     * Check if a user with this email is registered
+     * @param email email being checked
+     * @return "true" if the user exists, "false" if not
+     */
+    boolean checkUserEmail(String email);
+
+    /**
+     * Retrieve everything needed to log a user in with one primary key lookup
+     * @param email user email
+     * @return user record, null if the user does not exist
+     */
+    @Nullable
+    UserRecord getUserRecord(String email);
+
+    /**
+     * Replace a user's password hash - used to upgrade older hashes after a successful login
+     * @param email user email
+     * @param passwordHash new encoded hash
+     * @return "true" if successful, "false" if failed
+     */
+    boolean updatePasswordHash(String email, String passwordHash);
+
+    /**
+     * Retrieve user phone number from table
+     * @param email email of user being retrieved
+     * @return Phone number as string
+     */
+    String getUserPhoneNumber(String email);
+
+    /**
+     * Update 2FA settings in users table
+     * @param email email of user being updated
+     * @param is2FAEnabled boolean 2FA is being updated to
+     */
+    void updateUser2FASetting(String email, boolean is2FAEnabled);
+
+    /**
+     * Check to see if user has 2FA enabled
+     * @param email email of logged in user
+     * @return "true" if user has 2FA enabled, "false" if they do not
+     */
+    boolean is2FAEnabled(String email);
+}
@@ -0,0 +1,146 @@
+package com.austin.inventory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AlertDispatcherTest {
+
+    private static final String USER = "alerts@test.com";
+    private static final String PHONE = "5555555555";
+    private static final long WINDOW_MS = 200;
+
+    private ScheduledExecutorService scheduler;
+    private FakeTransport transport;
+    private int lookups;
+    private volatile String phone = PHONE;
+    private AlertDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        transport = new FakeTransport();
+        dispatcher = new AlertDispatcher(transport, email -> {
+            lookups++;
+            return phone;
+        }, scheduler, Runnable::run, () -> WINDOW_MS);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void firstAlert_isSentImmediatelyWithOldWording() throws Exception {
+        dispatcher.report(USER, 1, "Bolts", 0);
+        Thread.sleep(WINDOW_MS / 4);
+
+        assertEquals(1, transport.messages.size());
+        assertEquals(PHONE, transport.numbers.get(0));
+        assertEquals("Streamline Inventory: Out of inventory for Bolts", transport.messages.get(0));
+    }
+
+    @Test
+    public void burstInsideWindow_becomesOneDigestWithLatestQuantities() throws Exception {
+        dispatcher.report(USER, 1, "Bolts", 2);
+        Thread.sleep(WINDOW_MS / 4);
+
+        for (int quantity = 2; quantity >= 0; quantity--) {
+            dispatcher.report(USER, 2, "Nuts", quantity);
+            dispatcher.report(USER, 3, "Washers", quantity + 1);
+        }
+        dispatcher.report(USER, 4, "Screws", 2);
+        Thread.sleep(WINDOW_MS / 4);
+        assertEquals("Digest sent before the window ended", 1, transport.messages.size());
+
+        awaitQuiet();
+
+        assertEquals(2, transport.messages.size());
+        assertEquals("Streamline Inventory: 3 items need restocking. Out: Nuts. Low: Washers (1), Screws (2).", transport.messages.get(1));
+        assertEquals(1, lookups);
+    }
+
+    @Test
+    public void repeatedAlert_isNotResentUntilCancelled() throws Exception {
+        dispatcher.report(USER, 1, "Bolts", 0);
+        Thread.sleep(WINDOW_MS / 4);
+        dispatcher.report(USER, 1, "Bolts", 0);
+        Thread.sleep(WINDOW_MS * 2);
+        assertEquals(1, transport.messages.size());
+
+        dispatcher.cancel(1);
+        dispatcher.report(USER, 1, "Bolts", 0);
+        awaitQuiet();
+
+        assertEquals(2, transport.messages.size());
+    }
+
+    @Test
+    public void cancelledAlert_isDroppedFromDigest() throws Exception {
+        dispatcher.report(USER, 1, "Bolts", 2);
+        Thread.sleep(WINDOW_MS / 4);
+        dispatcher.report(USER, 2, "Nuts", 1);
+        dispatcher.cancel(2);
+        awaitQuiet();
+
+        assertEquals(1, transport.messages.size());
+        assertTrue(transport.messages.get(0).contains("Bolts"));
+    }
+
+    @Test
+    public void missingNumber_isLookedUpAgainForNextDigest() throws Exception {
+        phone = null;
+        dispatcher.report(USER, 1, "Bolts", 0);
+        Thread.sleep(WINDOW_MS / 4);
+        assertEquals(0, transport.messages.size());
+
+        phone = PHONE;
+        dispatcher.report(USER, 2, "Nuts", 0);
+        awaitQuiet();
+
+        assertEquals(1, transport.messages.size());
+        assertEquals(2, lookups);
+    }
+
+    @Test
+    public void forgottenRecipient_isLookedUpAgain() throws Exception {
+        dispatcher.report(USER, 1, "Bolts", 0);
+        Thread.sleep(WINDOW_MS / 4);
+
+        phone = "5556667777";
+        dispatcher.forgetRecipient(USER);
+        dispatcher.report(USER, 2, "Nuts", 0);
+        awaitQuiet();
+
+        assertEquals(2, transport.messages.size());
+        assertEquals("5556667777", transport.numbers.get(1));
+        assertEquals(2, lookups);
+    }
+
+    private void awaitQuiet() throws InterruptedException {
+        Thread.sleep(WINDOW_MS * 2);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static class FakeTransport implements AlertDispatcher.SmsTransport {
+        final List<String> numbers = new ArrayList<>();
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        public synchronized void send(String phoneNumber, String message) {
+            numbers.add(phoneNumber);
+            messages.add(message);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.austin.inventory;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DatabaseSchedulerTest {
+
+    private DatabaseScheduler scheduler;
+
+    @After
+    public void tearDown() throws Exception {
+        assertTrue(scheduler.shutdown(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readsProceedWhileLongWriteRuns() throws Exception {
+        scheduler = new DatabaseScheduler(DatabaseScheduler.READ_THREADS);
+        CountDownLatch writeStarted = new CountDownLatch(1);
+        CountDownLatch finishWrite = new CountDownLatch(1);
+        scheduler.write(() -> {
+            writeStarted.countDown();
+            await(finishWrite);
+        });
+        assertTrue(writeStarted.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch readsDone = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE, readsDone::countDown);
+        }
+
+        assertTrue("Reads waited for the write", readsDone.await(5, TimeUnit.SECONDS));
+        assertEquals(1, finishWrite.getCount());
+        finishWrite.countDown();
+    }
+
+    @Test
+    public void writesRunOneAtATimeInSubmissionOrder() throws Exception {
+        scheduler = new DatabaseScheduler(DatabaseScheduler.READ_THREADS);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int write = i;
+            writes.add(scheduler.write(() -> order.add(write)));
+        }
+        for (Future<?> write : writes) {
+            write.get(5, TimeUnit.SECONDS);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void userVisibleReadsRunBeforeQueuedBackgroundReads() throws Exception {
+        scheduler = new DatabaseScheduler(1);
+        CountDownLatch busy = new CountDownLatch(1);
+        scheduler.read(DatabaseScheduler.Priority.BACKGROUND, () -> await(busy));
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        scheduler.read(DatabaseScheduler.Priority.BACKGROUND, () -> order.add("export 1"));
+        scheduler.read(DatabaseScheduler.Priority.BACKGROUND, () -> order.add("export 2"));
+        scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE, () -> order.add("page 1"));
+        Future<?> last = scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE, () -> order.add("page 2"));
+        busy.countDown();
+        last.get(5, TimeUnit.SECONDS);
+        assertTrue(scheduler.shutdown(5, TimeUnit.SECONDS));
+
+        assertEquals(4, order.size());
+        assertEquals("page 1", order.get(0));
+        assertEquals("page 2", order.get(1));
+        assertEquals("export 1", order.get(2));
+        assertEquals("export 2", order.get(3));
+    }
+
+    @Test
+    public void cancelledReadNeverRuns() throws Exception {
+        scheduler = new DatabaseScheduler(1);
+        CountDownLatch busy = new CountDownLatch(1);
+        scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE, () -> await(busy));
+
+        boolean[] ran = new boolean[1];
+        Future<?> read = scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE, () -> ran[0] = true);
+        assertTrue(read.cancel(false));
+        busy.countDown();
+        assertTrue(scheduler.shutdown(5, TimeUnit.SECONDS));
+
+        assertFalse(ran[0]);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
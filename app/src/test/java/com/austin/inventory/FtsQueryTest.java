@@ -0,0 +1,27 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FtsQueryTest {
+
+    @Test
+    public void words_becomePrefixTerms() {
+        assertEquals("red* bol*", FtsQuery.prefixMatch("red bol"));
+        assertEquals("m8* x* 40*", FtsQuery.prefixMatch("  M8 x 40 "));
+    }
+
+    @Test
+    public void operatorsAndQuotes_areDropped() {
+        assertEquals("nuts* or* bolts*", FtsQuery.prefixMatch("\"nuts\" OR-bolts*"));
+        assertEquals("", FtsQuery.prefixMatch(" *\"-( "));
+    }
+
+    @Test
+    public void accentedWords_foldAndSplitLikeTheSimpleTokenizer() {
+        // Only ASCII is lower cased, and non-ASCII characters - even punctuation - never split a word
+        assertEquals("cr\u00c8me* br\u00fbl\u00e9e*", FtsQuery.prefixMatch("CR\u00c8ME Br\u00fbl\u00e9e"));
+        assertEquals("jalape\u00f1o\u2013hot*", FtsQuery.prefixMatch("Jalape\u00f1o\u2013hot"));
+    }
+}
@@ -0,0 +1,208 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InventoryCacheTest {
+
+    private static final String USER = "cache@test.com";
+    private static final int PAGE_SIZE = 3;
+
+    @Test
+    public void get_onlyReturnsMatchingSort() {
+        InventoryCache cache = new InventoryCache();
+        cache.putFirstPage(USER, InventorySort.NAME, items(item(1, "Apple", 3)), true, null);
+
+        assertEquals(1, cache.get(USER, InventorySort.NAME).items.size());
+        assertNull(cache.get(USER, InventorySort.QUANTITY));
+        assertNull(cache.get("other@test.com", InventorySort.NAME));
+    }
+
+    @Test
+    public void writeThrough_keepsSortOrder() {
+        InventoryCache cache = new InventoryCache();
+        cache.putFirstPage(USER, InventorySort.NAME, items(item(1, "apple", 3), item(2, "Cherry", 1)), true, null);
+
+        cache.itemInserted(USER, item(3, "banana", 5));
+        cache.itemUpdated(item(1, "Date", 3));
+        cache.quantityChanged(2, 4);
+        cache.itemDeleted(3);
+
+        InventoryPage page = cache.get(USER, InventorySort.NAME);
+        assertEquals(2, page.items.size());
+        assertEquals("Cherry", page.items.getName(0));
+        assertEquals(5, page.items.getQuantity(0));
+        assertEquals("Date", page.items.getName(1));
+    }
+
+    @Test
+    public void insertPastLoadedRange_isLeftForLaterPage() {
+        InventoryCache cache = new InventoryCache();
+        cache.putFirstPage(USER, InventorySort.QUANTITY, items(item(1, "A", 1), item(2, "B", 2)), false, item(2, "B", 2));
+
+        cache.itemInserted(USER, item(3, "C", 100));
+        cache.itemInserted(USER, item(4, "D", 0));
+
+        InventorySnapshot cached = cache.get(USER, InventorySort.QUANTITY).items;
+        assertEquals(3, cached.size());
+        assertEquals(4, cached.getId(0));
+        assertEquals(-1, cached.indexOf(3));
+    }
+
+    @Test
+    public void quantityChange_neverGoesNegative() {
+        InventoryCache cache = new InventoryCache();
+        cache.putFirstPage(USER, InventorySort.NAME, items(item(1, "A", 1)), true, null);
+
+        cache.quantityChanged(1, -5);
+
+        assertEquals(0, cache.get(USER, InventorySort.NAME).items.getQuantity(0));
+    }
+
+    @Test
+    public void get_reusesSnapshotUntilChanged() {
+        InventoryCache cache = new InventoryCache();
+        cache.putFirstPage(USER, InventorySort.NAME, items(item(1, "A", 1), item(2, "B", 2)), true, null);
+
+        InventorySnapshot first = cache.get(USER, InventorySort.NAME).items;
+        assertSame(first, cache.get(USER, InventorySort.NAME).items);
+
+        cache.quantityChanged(2, 3);
+        InventorySnapshot changed = cache.get(USER, InventorySort.NAME).items;
+        assertNotSame(first, changed);
+        assertEquals(2, first.getQuantity(1));
+        assertEquals(5, changed.getQuantity(1));
+    }
+
+    @Test
+    public void usageRate_followsRemovalsAndSurvivesEdits() {
+        InventoryCache cache = new InventoryCache();
+        cache.putFirstPage(USER, InventorySort.QUANTITY, items(item(1, "A", 10), item(2, "B", 3)), true, null);
+
+        cache.quantityChanged(1, -7);
+        cache.quantityChanged(2, 5);
+        cache.itemUpdated(item(1, "Renamed", 3));
+
+        InventorySnapshot cached = cache.get(USER, InventorySort.QUANTITY).items;
+        int renamed = cached.indexOf(1);
+        assertEquals(UsageForecast.afterUse(UsageForecast.NO_USAGE, 7), cached.getUsageRate(renamed), 1e-9);
+        assertEquals(UsageForecast.NO_USAGE, cached.getUsageRate(cached.indexOf(2)), 0);
+    }
+
+    @Test
+    public void tapOnLastRowOfQuantityPage_nextPageHasNoGapsOrDuplicates() {
+        List<InventoryItem> database = new ArrayList<>();
+        for (int id = 1; id <= 6; id++) {
+            database.add(item(id, "Item " + id, id * 10));
+        }
+        InventoryCache cache = new InventoryCache();
+        List<InventoryItem> first = page(database, null);
+        cache.putFirstPage(USER, InventorySort.QUANTITY, InventorySnapshot.of(first), false, first.get(2));
+
+        // The last row moves past rows 4 and 5, which are not loaded yet, and is written before the next read
+        cache.quantityChanged(3, 25);
+        database.set(2, item(3, "Item 3", 55));
+
+        InventoryPage cached = cache.get(USER, InventorySort.QUANTITY);
+        assertEquals(3, cached.items.getId(2));
+        assertEquals(30, cached.cursor.getQuantity());
+        loadRemainingPages(cache, database, cached.cursor);
+
+        assertEquals(Arrays.asList(1, 2, 4, 5, 3, 6), ids(cache.get(USER, InventorySort.QUANTITY).items));
+    }
+
+    @Test
+    public void rowsMovedBeforeCursor_doNotHideRowsAfterThem() {
+        List<InventoryItem> database = new ArrayList<>();
+        for (int id = 1; id <= 6; id++) {
+            database.add(item(id, "Item " + id, id * 10));
+        }
+        InventoryCache cache = new InventoryCache();
+        List<InventoryItem> first = page(database, null);
+        cache.putFirstPage(USER, InventorySort.QUANTITY, InventorySnapshot.of(first), false, first.get(2));
+
+        // The last row moves to the top, so the last row shown sorts before the cursor - a tap not
+        // written before the next read, and an insert that lands between the two
+        cache.quantityChanged(3, -25);
+        cache.itemInserted(USER, item(7, "Item 7", 25));
+        database.add(item(7, "Item 7", 25));
+        loadRemainingPages(cache, database, cache.get(USER, InventorySort.QUANTITY).cursor);
+
+        assertEquals(Arrays.asList(3, 1, 2, 7, 4, 5, 6), ids(cache.get(USER, InventorySort.QUANTITY).items));
+    }
+
+    @Test
+    public void tapPastCursor_isKeptUntilItsPageArrives() {
+        List<InventoryItem> database = new ArrayList<>();
+        for (int id = 1; id <= 6; id++) {
+            database.add(item(id, "Item " + id, id * 10));
+        }
+        InventoryCache cache = new InventoryCache();
+        List<InventoryItem> first = page(database, null);
+        cache.putFirstPage(USER, InventorySort.QUANTITY, InventorySnapshot.of(first), false, first.get(2));
+
+        // Still pending when the next page is read, so the page does not bring it back
+        cache.quantityChanged(1, 35);
+        assertEquals(1, cache.get(USER, InventorySort.QUANTITY).items.getId(2));
+        loadRemainingPages(cache, database, cache.get(USER, InventorySort.QUANTITY).cursor);
+
+        InventorySnapshot cached = cache.get(USER, InventorySort.QUANTITY).items;
+        assertEquals(Arrays.asList(2, 3, 4, 1, 5, 6), ids(cached));
+        assertTrue(cache.get(USER, InventorySort.QUANTITY).last);
+    }
+
+    /**
+     * Append pages read from the fake database until the last one, as InventoryRepository does
+     */
+    private static void loadRemainingPages(InventoryCache cache, List<InventoryItem> database, InventoryItem cursor) {
+        while (true) {
+            List<InventoryItem> rows = page(database, cursor);
+            boolean last = rows.size() < PAGE_SIZE;
+            cursor = rows.isEmpty() ? cursor : rows.get(rows.size() - 1);
+            cache.appendPage(USER, InventorySort.QUANTITY, InventorySnapshot.of(rows), last, cursor);
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The keyset query InventoryContract.pageSql runs, over an in-memory table
+     */
+    private static List<InventoryItem> page(List<InventoryItem> database, InventoryItem after) {
+        List<InventoryItem> sorted = new ArrayList<>(database);
+        sorted.sort(InventorySort.QUANTITY.comparator());
+        List<InventoryItem> rows = new ArrayList<>();
+        for (InventoryItem item : sorted) {
+            if (rows.size() < PAGE_SIZE && (after == null || InventorySort.QUANTITY.comparator().compare(item, after) > 0)) {
+                rows.add(item);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Integer> ids(InventorySnapshot items) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            ids.add(items.getId(i));
+        }
+        return ids;
+    }
+
+    private static InventoryItem item(int id, String name, int quantity) {
+        return new InventoryItem(id, name, quantity);
+    }
+
+    private static InventorySnapshot items(InventoryItem... items) {
+        return InventorySnapshot.of(Arrays.asList(items));
+    }
+}
@@ -0,0 +1,191 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InventoryCsvTest {
+
+    @Test
+    public void export_thenImport_keepsAwkwardNames() throws IOException {
+        List<InventoryItem> items = Arrays.asList(
+                new InventoryItem(1, "Bolts, M8", 4, 2),
+                new InventoryItem(2, "6\" nails", 0),
+                new InventoryItem(3, "Two\nlines", 12, 0),
+                new InventoryItem(4, " padded ", 1));
+        StringWriter out = new StringWriter();
+
+        int written = InventoryCsv.exportTo(out, (after, limit) -> {
+            int from = after == null ? 0 : items.indexOf(after) + 1;
+            return items.subList(from, Math.min(items.size(), from + limit));
+        }, 3);
+
+        RecordingSink sink = new RecordingSink();
+        InventoryCsv.ImportResult result = InventoryCsv.importFrom(new StringReader(out.toString()), sink, 10, null);
+        assertEquals(4, written);
+        assertEquals(4, result.imported);
+        assertEquals(0, result.failed);
+        for (int i = 0; i < items.size(); i++) {
+            InventoryItem expected = items.get(i);
+            InventoryItem actual = sink.items.get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+            assertEquals(expected.getReorderThreshold(), actual.getReorderThreshold());
+        }
+    }
+
+    @Test
+    public void badRows_areReportedWithLineNumbers() throws IOException {
+        String csv = "\uFEFFName,Quantity,Reorder_Threshold\r\n"
+                + "Nuts,5,\r\n"
+                + "\r\n"
+                + "Washers,lots\r\n"
+                + "\"Split\nname\",-1\r\n"
+                + ",3\r\n"
+                + "Pins,7,x\r\n"
+                + "Rejected,1\r\n"
+                + "Screws\r\n";
+        RecordingSink sink = new RecordingSink();
+        sink.rejected = "Rejected";
+
+        InventoryCsv.ImportResult result = InventoryCsv.importFrom(new StringReader(csv), sink, 2, null);
+
+        assertEquals(1, result.imported);
+        assertEquals(6, result.failed);
+        List<Integer> lines = new ArrayList<>();
+        for (InventoryCsv.RowError error : result.errors) {
+            lines.add(error.line);
+        }
+        // Rows rejected by the sink are reported after the chunk they were in is written
+        assertEquals(Arrays.asList(4, 5, 7, 8, 9, 10), sortedCopy(lines));
+        assertEquals(InventoryItem.NO_THRESHOLD, sink.items.get(0).getReorderThreshold());
+    }
+
+    @Test
+    public void errors_areCapped() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            csv.append("Item ").append(i).append(",none\n");
+        }
+
+        InventoryCsv.ImportResult result = InventoryCsv.importFrom(new StringReader(csv.toString()), new RecordingSink(), 10, null);
+
+        assertEquals(1_000, result.failed);
+        assertEquals(InventoryCsv.MAX_REPORTED_ERRORS, result.errors.size());
+    }
+
+    @Test
+    public void millionRows_importInChunksWithBoundedMemory() throws IOException {
+        int rows = 1_000_000;
+        int chunkSize = InventoryCsv.CHUNK_SIZE;
+        long[] heap = new long[2];
+        int[] largestChunk = new int[1];
+        int[] chunks = new int[1];
+        List<Integer> progress = new ArrayList<>();
+
+        InventoryCsv.Sink sink = chunk -> {
+            chunks[0]++;
+            largestChunk[0] = Math.max(largestChunk[0], chunk.size());
+            // Measure once things have warmed up and again at the end - nothing read so far should be retained
+            if (chunks[0] == 10) {
+                heap[0] = usedHeapAfterGc();
+            } else if (chunks[0] == rows / chunkSize) {
+                heap[1] = usedHeapAfterGc();
+            }
+            long[] ids = new long[chunk.size()];
+            Arrays.fill(ids, chunks[0]);
+            return ids;
+        };
+
+        InventoryCsv.ImportResult result = InventoryCsv.importFrom(new GeneratedCsv(rows), sink, chunkSize, progress::add);
+
+        assertEquals(rows, result.imported);
+        assertEquals(0, result.failed);
+        assertEquals(chunkSize, largestChunk[0]);
+        assertEquals(rows / chunkSize, chunks[0]);
+        assertEquals(rows, (int) progress.get(progress.size() - 1));
+        // The file is roughly 20MB of text - holding it, or the items, would grow the heap far past this
+        long growth = heap[1] - heap[0];
+        assertTrue("Heap grew by " + growth + " bytes", growth < 4 * 1024 * 1024);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Integer> sortedCopy(List<Integer> values) {
+        List<Integer> sorted = new ArrayList<>(values);
+        sorted.sort(null);
+        return sorted;
+    }
+
+    private static class RecordingSink implements InventoryCsv.Sink {
+        final List<InventoryItem> items = new ArrayList<>();
+        String rejected;
+
+        @Override
+        public long[] insert(List<InventoryItem> chunk) {
+            long[] ids = new long[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                InventoryItem item = chunk.get(i);
+                if (item.getName().equals(rejected)) {
+                    ids[i] = -1;
+                } else {
+                    items.add(item);
+                    ids[i] = items.size();
+                }
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * CSV text produced on demand so the test never holds the whole file
+     */
+    private static class GeneratedCsv extends Reader {
+        private final int rows;
+        private int row = -1;
+        private String current = "";
+        private int offset;
+
+        GeneratedCsv(int rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public int read(char[] buffer, int start, int length) {
+            int count = 0;
+            while (count < length) {
+                if (offset == current.length()) {
+                    if (++row > rows) {
+                        break;
+                    }
+                    current = row == 0 ? InventoryCsv.HEADER + "\n"
+                            : "\"Item " + row + ", bulk\"," + (row % 100) + "," + (row % 3 == 0 ? "" : row % 20) + "\r\n";
+                    offset = 0;
+                }
+                int n = Math.min(length - count, current.length() - offset);
+                current.getChars(offset, offset + n, buffer, start + count);
+                offset += n;
+                count += n;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,112 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class InventorySnapshotTest {
+
+    @Test
+    public void sortOrder_matchesComparator() {
+        Random random = new Random(11);
+        List<InventoryItem> items = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            // Few distinct names and quantities so the id tie-break is exercised
+            items.add(new InventoryItem(random.nextInt(100_000), (random.nextBoolean() ? "Bolt " : "bolt ") + random.nextInt(20), random.nextInt(10)));
+        }
+        InventorySnapshot snapshot = InventorySnapshot.of(items);
+
+        for (InventorySort sort : InventorySort.values()) {
+            List<InventoryItem> expected = new ArrayList<>(items);
+            expected.sort(sort.comparator());
+            int[] order = snapshot.sortOrder(sort);
+            InventorySnapshot sorted = snapshot.sorted(sort);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), snapshot.getId(order[i]));
+                assertEquals(expected.get(i).getName(), sorted.getName(i));
+            }
+        }
+    }
+
+    @Test
+    public void edits_leaveOriginalUnchanged() {
+        InventorySnapshot snapshot = InventorySnapshot.of(Arrays.asList(
+                new InventoryItem(1, "Nuts", 4), new InventoryItem(2, "Pins", 0, 3)));
+
+        InventorySnapshot restocked = snapshot.withQuantity(snapshot.indexOf(2), 9);
+        InventorySnapshot removed = snapshot.without(0);
+        InventorySnapshot appended = snapshot.append(removed);
+
+        assertEquals(0, snapshot.getQuantity(1));
+        assertEquals(9, restocked.getQuantity(1));
+        assertEquals(1, removed.size());
+        assertEquals(2, removed.getId(0));
+        assertEquals(3, appended.size());
+        assertEquals(3, appended.getReorderThreshold(2));
+        assertEquals(-1, snapshot.indexOf(7));
+    }
+
+    @Test
+    public void appendMissing_skipsRowsAlreadyPresent() {
+        InventorySnapshot shown = InventorySnapshot.of(Arrays.asList(
+                new InventoryItem(1, "Nuts", 4), new InventoryItem(3, "Pins", 9)));
+        InventorySnapshot page = InventorySnapshot.of(Arrays.asList(
+                new InventoryItem(2, "Bolts", 5), new InventoryItem(3, "Pins", 9), new InventoryItem(4, "Tape", 12)));
+
+        InventorySnapshot appended = shown.appendMissing(page);
+
+        assertEquals(4, appended.size());
+        assertEquals(1, appended.indexOf(3));
+        assertEquals(2, appended.getId(2));
+        assertEquals(4, appended.getId(3));
+        assertEquals(5, shown.appendMissing(InventorySnapshot.of(Arrays.asList(new InventoryItem(5, "Wire", 1)))).getId(2));
+    }
+
+    @Test
+    public void isLowStock_matchesItemRule() {
+        List<InventoryItem> items = Arrays.asList(
+                new InventoryItem(1, "A", 2), new InventoryItem(2, "B", 5, 5), new InventoryItem(3, "C", 6, 5));
+        InventorySnapshot snapshot = InventorySnapshot.of(items);
+
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(items.get(i).isLowStock(2), snapshot.isLowStock(i, 2));
+            assertEquals(items.get(i).toString(), snapshot.getItem(i).toString());
+        }
+    }
+
+    @Test
+    public void builder_editsAfterBuildDoNotLeakIntoSnapshot() {
+        InventorySnapshot.Builder builder = new InventorySnapshot.Builder(2)
+                .add(1, "Nuts", 4, InventoryItem.NO_THRESHOLD)
+                .add(2, "Pins", 1, InventoryItem.NO_THRESHOLD);
+        // Exactly full, so the arrays are handed over rather than copied
+        InventorySnapshot built = builder.build();
+
+        builder.setQuantity(0, 40);
+        builder.remove(1);
+
+        assertEquals(4, built.getQuantity(0));
+        assertEquals(2, built.size());
+        assertEquals("Pins", built.getName(1));
+        assertEquals(40, builder.build().getQuantity(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_rejectsBlankNames() {
+        new InventorySnapshot.Builder(1).add(1, " \t", 1, InventoryItem.NO_THRESHOLD);
+    }
+
+    @Test
+    public void isBlank_matchesTrim() {
+        for (String name : new String[]{"", " ", "\t\n", "\u0000", " a ", "\u00a0", "x"}) {
+            assertEquals(name.trim().isEmpty(), InventoryItem.isBlank(name));
+        }
+        assertTrue(InventoryItem.isBlank(null));
+    }
+}
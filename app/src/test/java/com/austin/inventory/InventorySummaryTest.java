@@ -0,0 +1,40 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class InventorySummaryTest {
+
+    private static final int DEFAULT_THRESHOLD = 2;
+
+    @Test
+    public void sellingOut_movesItemIntoOutOfStockAndLowStock() {
+        InventorySummary summary = new InventorySummary(3, 12, 0, 1);
+
+        InventorySummary after = summary.withChange(new InventoryItem(1, "Tape", 3),
+                new InventoryItem(1, "Tape", 0), DEFAULT_THRESHOLD);
+
+        assertEquals(new InventorySummary(3, 9, 1, 2), after);
+    }
+
+    @Test
+    public void restocking_usesItemsOwnThreshold() {
+        InventorySummary summary = new InventorySummary(1, 4, 0, 1);
+
+        InventorySummary after = summary.withChange(new InventoryItem(1, "Gloves", 4, 5),
+                new InventoryItem(1, "Gloves", 6, 5), DEFAULT_THRESHOLD);
+
+        assertEquals(new InventorySummary(1, 6, 0, 0), after);
+    }
+
+    @Test
+    public void roundTrip_leavesSummaryUnchanged() {
+        InventorySummary summary = new InventorySummary(5, 20, 1, 2);
+        InventoryItem full = new InventoryItem(1, "Pins", 7);
+        InventoryItem empty = new InventoryItem(1, "Pins", 0);
+
+        assertEquals(summary, summary.withChange(full, empty, DEFAULT_THRESHOLD)
+                .withChange(empty, full, DEFAULT_THRESHOLD));
+    }
+}
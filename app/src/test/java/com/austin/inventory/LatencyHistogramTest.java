@@ -0,0 +1,82 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets_coverEveryDurationInOrder() {
+        assertEquals(0, LatencyHistogram.bucketOf(0));
+        assertEquals(7, LatencyHistogram.bucketOf(7));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+
+        for (long nanos = 0; nanos < 1 << 16; nanos++) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            assertTrue(nanos <= LatencyHistogram.highestValueIn(bucket));
+            assertTrue(bucket == 0 || nanos > LatencyHistogram.highestValueIn(bucket - 1));
+        }
+    }
+
+    @Test
+    public void percentiles_withinOneBucketOfExact() {
+        Random random = new Random(5);
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> samples = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            // Log-normal around 1ms, like query latencies
+            long nanos = (long) (1_000_000 * Math.exp(random.nextGaussian()));
+            samples.add(nanos);
+            histogram.record(nanos);
+        }
+        samples.sort(null);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(samples.size(), snapshot.count);
+        assertEquals((long) samples.get(samples.size() - 1), snapshot.maxNanos);
+        for (double percentile : new double[]{50, 95, 99}) {
+            long exact = samples.get((int) Math.ceil(percentile / 100 * samples.size()) - 1);
+            long reported = snapshot.valueAtPercentile(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported >= exact && reported <= exact * 1.125);
+        }
+    }
+
+    @Test
+    public void concurrentRecords_allCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 1; i <= 50_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(200_000, snapshot.count);
+        assertEquals(50_000, snapshot.maxNanos);
+        assertEquals(25_000, snapshot.meanNanos());
+    }
+
+    @Test
+    public void reset_forgetsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000);
+        histogram.reset();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(0, snapshot.count);
+        assertEquals(0, snapshot.valueAtPercentile(99));
+    }
+}
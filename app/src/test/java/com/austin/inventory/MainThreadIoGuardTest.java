@@ -0,0 +1,90 @@
+package com.austin.inventory;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MainThreadIoGuardTest {
+
+    private boolean onMainThread;
+    private MainThreadIoGuard guard;
+
+    /**
+     * Stands in for DatabaseHelper - its frames are skipped when finding the call site
+     */
+    private final class FakeStore {
+        void query() {
+            guard.check("query");
+        }
+    }
+
+    @Before
+    public void setUp() {
+        onMainThread = true;
+        guard = new MainThreadIoGuard(() -> onMainThread, FakeStore.class.getName());
+    }
+
+    @Test
+    public void off_allowsMainThreadCalls() {
+        assertNull(guard.check("query"));
+        assertTrue(guard.report().isEmpty());
+    }
+
+    @Test
+    public void log_returnsViolationWithCallSite() {
+        guard.setMode(MainThreadIoGuard.Mode.LOG);
+
+        MainThreadIoGuard.Violation violation = guard.check("query");
+
+        assertNotNull(violation);
+        assertTrue(violation.getCallSite(), violation.getCallSite().startsWith(MainThreadIoGuardTest.class.getName() + ".log_returnsViolationWithCallSite"));
+        assertTrue(violation.getMessage().startsWith("query called on the main thread"));
+    }
+
+    @Test
+    public void backgroundThread_isNeverAViolation() {
+        guard.setMode(MainThreadIoGuard.Mode.THROW);
+        onMainThread = false;
+
+        assertNull(guard.check("query"));
+        assertTrue(guard.report().isEmpty());
+    }
+
+    @Test
+    public void throwMode_failsAndNamesCallerOutsideGuardedClass() {
+        guard.setMode(MainThreadIoGuard.Mode.THROW);
+
+        try {
+            new FakeStore().query();
+            fail("Expected a violation");
+        } catch (MainThreadIoGuard.Violation violation) {
+            assertTrue(violation.getCallSite(), violation.getCallSite().startsWith(MainThreadIoGuardTest.class.getName() + ".throwMode_failsAndNamesCallerOutsideGuardedClass"));
+        }
+    }
+
+    @Test
+    public void report_countsCallSitesMostFirst() {
+        guard.setMode(MainThreadIoGuard.Mode.LOG);
+        FakeStore store = new FakeStore();
+
+        store.query();
+        for (int i = 0; i < 3; i++) {
+            store.query();
+        }
+
+        List<String> report = guard.report();
+        assertEquals(2, report.size());
+        assertTrue(report.get(0), report.get(0).startsWith("3  "));
+        assertTrue(report.get(1), report.get(1).startsWith("1  "));
+
+        guard.reset();
+        assertTrue(guard.report().isEmpty());
+    }
+}
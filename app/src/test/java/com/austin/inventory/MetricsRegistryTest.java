@@ -0,0 +1,40 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void csv_oneRowPerOperationSortedByName() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.histogram("ui.bindItem").record(40_000);
+        registry.histogram("db.getInventoryPage").record(2_000_000);
+        registry.histogram("db.getInventoryPage").record(2_000_000);
+
+        StringWriter csv = new StringWriter();
+        MetricsRegistry.writeCsv(csv, registry.snapshot());
+
+        String[] rows = csv.toString().split("\r\n");
+        assertEquals(MetricsRegistry.CSV_HEADER, rows[0]);
+        assertEquals("db.getInventoryPage,2,2.000,2.000,2.000,2.000,2.000", rows[1]);
+        assertEquals("ui.bindItem,1,0.040,0.040,0.040,0.040,0.040", rows[2]);
+        assertEquals(3, rows.length);
+    }
+
+    @Test
+    public void reset_keepsHistograms() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram histogram = registry.histogram("db.deleteInventoryItem");
+        histogram.record(10);
+        registry.reset();
+
+        assertSame(histogram, registry.histogram("db.deleteInventoryItem"));
+        assertEquals(0, registry.snapshot().get("db.deleteInventoryItem").count);
+    }
+}
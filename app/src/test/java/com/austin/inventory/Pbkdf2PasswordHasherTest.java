@@ -0,0 +1,52 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class Pbkdf2PasswordHasherTest {
+
+    // Low cost keeps the tests fast - the real count comes from calibrate()
+    private final Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(1_000);
+
+    @Test
+    public void hash_verifiesOnlyTheSamePassword() {
+        String encoded = hasher.hash("Password1!");
+
+        assertTrue(encoded.startsWith("pbkdf2$1000$"));
+        assertTrue(hasher.verify("Password1!", encoded));
+        assertFalse(hasher.verify("Password2!", encoded));
+        assertFalse(hasher.needsRehash(encoded));
+    }
+
+    @Test
+    public void hash_usesFreshSaltEachTime() {
+        assertNotEquals(hasher.hash("Password1!"), hasher.hash("Password1!"));
+    }
+
+    @Test
+    public void legacySha256Hash_verifiesAndNeedsRehash() {
+        // SHA-256 of "Password1!" as stored by earlier versions
+        String legacy = "1d707811988069ca760826861d6d63a10e8c3b7f171c4441a6472ea58c11711b";
+
+        assertTrue(hasher.verify("Password1!", legacy));
+        assertFalse(hasher.verify("password1!", legacy));
+        assertTrue(hasher.needsRehash(legacy));
+    }
+
+    @Test
+    public void lowerCostHash_needsRehash() {
+        String weaker = new Pbkdf2PasswordHasher(500).hash("Password1!");
+
+        assertTrue(hasher.verify("Password1!", weaker));
+        assertTrue(hasher.needsRehash(weaker));
+    }
+
+    @Test
+    public void corruptHash_failsVerification() {
+        assertFalse(hasher.verify("Password1!", "pbkdf2$1000$zz$00"));
+        assertFalse(hasher.verify("Password1!", "not a hash"));
+    }
+}
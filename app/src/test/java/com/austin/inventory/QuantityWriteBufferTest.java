@@ -0,0 +1,264 @@
+package com.austin.inventory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QuantityWriteBufferTest {
+
+    private static final long QUIET_PERIOD_MS = 50;
+
+    private ScheduledExecutorService scheduler;
+    private FakeStore store;
+    private FakeJournal journal;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        store = new FakeStore();
+        journal = new FakeJournal();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void rapidTaps_areWrittenOnceWithNetDelta() throws Exception {
+        store.quantities.put(1, 10);
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, QUIET_PERIOD_MS, 100);
+
+        for (int i = 0; i < 30; i++) {
+            buffer.add(1, 1);
+        }
+        for (int i = 0; i < 5; i++) {
+            buffer.add(1, -1);
+        }
+        awaitQuiet();
+
+        assertEquals(1, store.writes);
+        assertEquals(35, (int) store.quantities.get(1));
+        assertEquals(0, journal.pendingDelta(1));
+    }
+
+    @Test
+    public void fullBuffer_flushesWithoutWaitingForQuietPeriod() throws Exception {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 3);
+
+        buffer.add(1, 1);
+        buffer.add(2, 1);
+        buffer.add(3, 1);
+        awaitQuiet();
+
+        assertEquals(1, store.writes);
+        assertEquals(3, store.quantities.size());
+    }
+
+    @Test
+    public void explicitFlush_writesImmediately() {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 100);
+
+        buffer.add(7, 4);
+        assertEquals(4, buffer.getPendingDelta(7));
+        assertTrue(buffer.hasPendingChanges());
+        buffer.flush();
+
+        assertEquals(1, store.writes);
+        assertEquals(4, (int) store.quantities.get(7));
+        assertEquals(0, buffer.getPendingDelta(7));
+        assertFalse(buffer.hasPendingChanges());
+    }
+
+    @Test
+    public void journal_isReplayedAfterRestart() throws Exception {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 100);
+        buffer.add(5, 3);
+        Thread.sleep(QuantityWriteBuffer.JOURNAL_DELAY_MS * 4);
+        assertEquals(3, journal.pendingDelta(5));
+
+        // Simulate the process dying before the quiet period ends
+        scheduler.shutdownNow();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        new QuantityWriteBuffer(store, journal, scheduler, QUIET_PERIOD_MS, 100);
+        awaitQuiet();
+
+        assertEquals(1, store.writes);
+        assertEquals(3, (int) store.quantities.get(5));
+    }
+
+    @Test
+    public void rapidTaps_saveTheJournalOnce() throws Exception {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 100);
+
+        for (int i = 0; i < 30; i++) {
+            buffer.add(1, 1);
+        }
+        Thread.sleep(QuantityWriteBuffer.JOURNAL_DELAY_MS * 4);
+
+        assertEquals(1, journal.saves);
+        assertEquals(30, journal.pendingDelta(1));
+    }
+
+    @Test
+    public void batchCommittedBeforeJournalUpdate_isNotAppliedTwice() throws Exception {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 100);
+        buffer.add(5, 3);
+        buffer.flush();
+        assertEquals(3, (int) store.quantities.get(5));
+
+        // Simulate the process dying after the commit but before the journal was cleared
+        assertEquals(3, store.journalAtLastWrite.get(1L).get(5).intValue());
+        journal.saved = store.journalAtLastWrite;
+        scheduler.shutdownNow();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        QuantityWriteBuffer restarted = new QuantityWriteBuffer(store, journal, scheduler, QUIET_PERIOD_MS, 100);
+        restarted.add(5, 1);
+        awaitQuiet();
+
+        assertEquals(2, store.writes);
+        assertEquals(4, (int) store.quantities.get(5));
+        assertEquals(0, journal.pendingDelta(5));
+    }
+
+    @Test
+    public void journalBehindSink_doesNotReuseAppliedBatchNumbers() throws Exception {
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 100);
+        buffer.add(5, 3);
+        buffer.flush();
+        assertEquals(1, store.appliedBatch);
+
+        // Simulate the process dying before any journal save reached the disk
+        journal.saved = new TreeMap<>();
+        scheduler.shutdownNow();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        QuantityWriteBuffer restarted = new QuantityWriteBuffer(store, journal, scheduler, QUIET_PERIOD_MS, 100);
+        restarted.add(5, 1);
+        awaitQuiet();
+
+        assertEquals(2, store.writes);
+        assertEquals(4, (int) store.quantities.get(5));
+        assertEquals(0, journal.pendingDelta(5));
+    }
+
+    @Test
+    public void readDuringFlush_countsCommittedBatchOnce() throws Exception {
+        store.quantities.put(5, 10);
+        QuantityWriteBuffer buffer = new QuantityWriteBuffer(store, journal, scheduler, TimeUnit.MINUTES.toMillis(1), 100);
+        buffer.add(5, 3);
+
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        store.afterCommit = () -> {
+            committed.countDown();
+            try {
+                assertTrue(resume.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> flush = threads.submit(buffer::flush);
+            assertTrue(committed.await(5, TimeUnit.SECONDS));
+
+            // The batch is in the store but has not been taken off the pending list yet
+            Future<Integer> read = threads.submit(() -> buffer.read(() -> store.quantity(5) + buffer.getPendingDelta(5)));
+            Thread.sleep(QUIET_PERIOD_MS);
+            resume.countDown();
+            flush.get(5, TimeUnit.SECONDS);
+
+            assertEquals(13, (int) read.get(5, TimeUnit.SECONDS));
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    private void awaitQuiet() throws InterruptedException {
+        Thread.sleep(QUIET_PERIOD_MS * 4);
+        scheduler.shutdown();
+        assertTrue(scheduler.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private class FakeStore implements QuantityWriteBuffer.Sink {
+        final Map<Integer, Integer> quantities = new HashMap<>();
+        int writes;
+        long appliedBatch;
+        SortedMap<Long, Map<Integer, Integer>> journalAtLastWrite;
+        // Runs once a batch is committed, before applyQuantityDeltas returns
+        volatile Runnable afterCommit;
+
+        @Override
+        public void applyQuantityDeltas(long batch, Map<Integer, Integer> deltas) {
+            synchronized (this) {
+                if (batch <= appliedBatch) {
+                    return;
+                }
+                appliedBatch = batch;
+                writes++;
+                for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+                    Integer current = quantities.get(entry.getKey());
+                    quantities.put(entry.getKey(), Math.max(0, (current == null ? 0 : current) + entry.getValue()));
+                }
+                journalAtLastWrite = journal.load();
+            }
+            if (afterCommit != null) {
+                afterCommit.run();
+            }
+        }
+
+        synchronized int quantity(int itemId) {
+            Integer quantity = quantities.get(itemId);
+            return quantity == null ? 0 : quantity;
+        }
+
+        @Override
+        public synchronized long appliedQuantityBatch() {
+            return appliedBatch;
+        }
+    }
+
+    private static class FakeJournal implements QuantityWriteBuffer.Journal {
+        SortedMap<Long, Map<Integer, Integer>> saved = new TreeMap<>();
+        int saves;
+
+        @Override
+        public synchronized SortedMap<Long, Map<Integer, Integer>> load() {
+            SortedMap<Long, Map<Integer, Integer>> copy = new TreeMap<>();
+            for (Map.Entry<Long, Map<Integer, Integer>> batch : saved.entrySet()) {
+                copy.put(batch.getKey(), new HashMap<>(batch.getValue()));
+            }
+            return copy;
+        }
+
+        @Override
+        public synchronized void save(SortedMap<Long, Map<Integer, Integer>> batches) {
+            saved = batches;
+            saves++;
+        }
+
+        synchronized int pendingDelta(int itemId) {
+            int total = 0;
+            for (Map<Integer, Integer> batch : saved.values()) {
+                Integer delta = batch.get(itemId);
+                total += delta == null ? 0 : delta;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SettingsTest {
+
+    @Test
+    public void emptyPreferences_useDefaults() {
+        Settings settings = Settings.from(new HashMap<>());
+
+        assertNull(settings.loggedInUserEmail);
+        assertFalse(settings.smsEnabled);
+        assertFalse(settings.notifyWhenZero);
+        assertEquals(Settings.DEFAULT_MINIMUM_INVENTORY, settings.minimumInventory);
+        assertEquals(Settings.DEFAULT_DIGEST_MINUTES, settings.digestMinutes);
+    }
+
+    @Test
+    public void preferenceScreenValues_areParsed() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("logged_in_user_email", "settings@test.com");
+        values.put("sms_notifications_enabled", true);
+        values.put("notify_inventory_zero", true);
+        values.put("minimum_inventory", " 7 ");
+        values.put("sms_digest_window", "15");
+
+        Settings settings = Settings.from(values);
+
+        assertEquals("settings@test.com", settings.loggedInUserEmail);
+        assertTrue(settings.smsEnabled);
+        assertTrue(settings.notifyWhenZero);
+        assertEquals(7, settings.minimumInventory);
+        assertEquals(15, settings.digestMinutes);
+    }
+
+    @Test
+    public void invalidNumbers_fallBackToOldIntegerCopies() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("minimum_inventory", "");
+        values.put("minimum_inventory_value", 4);
+        values.put("sms_digest_window", "0");
+
+        Settings settings = Settings.from(values);
+
+        assertEquals(4, settings.minimumInventory);
+        assertEquals(Settings.DEFAULT_DIGEST_MINUTES, settings.digestMinutes);
+    }
+
+    @Test
+    public void journalKey_doesNotTriggerRefresh() {
+        assertTrue(Settings.isSettingsKey("minimum_inventory"));
+        assertFalse(Settings.isSettingsKey("pending_quantity_batches"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.austin.inventory;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UsageForecastTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Test
+    public void steadyUse_settlesAtDailyRate() {
+        double rate = UsageForecast.NO_USAGE;
+        long updatedAt = 0;
+        for (int day = 1; day <= 90; day++) {
+            rate = UsageForecast.afterUse(rate, updatedAt, 4, day * DAY);
+            updatedAt = day * DAY;
+        }
+
+        // Just after a use the rate is slightly high, just before the next slightly low
+        assertEquals(4, rate, 0.4);
+        assertEquals(4, UsageForecast.rateAt(rate, updatedAt, updatedAt + DAY), 0.4);
+    }
+
+    @Test
+    public void splittingAUse_givesTheSameRate() {
+        double once = UsageForecast.afterUse(2.5, 0, 6, DAY);
+        double split = UsageForecast.afterUse(UsageForecast.afterUse(2.5, 0, 2, DAY), DAY, 4, DAY);
+
+        assertEquals(once, split, 1e-12);
+    }
+
+    @Test
+    public void unusedItem_decaysTowardsNoForecast() {
+        double rate = UsageForecast.rateAt(10, 0, 30 * DAY);
+
+        assertEquals(10 * Math.exp(-30 / UsageForecast.TIME_CONSTANT_DAYS), rate, 1e-9);
+        assertEquals(10, UsageForecast.rateAt(10, DAY, 0), 0);
+        assertEquals(-1, UsageForecast.daysUntilStockout(500, rate));
+    }
+
+    @Test
+    public void daysUntilStockout_dividesQuantityByRate() {
+        assertEquals(12, UsageForecast.daysUntilStockout(50, 4));
+        assertEquals(0, UsageForecast.daysUntilStockout(0, 4));
+        assertEquals(-1, UsageForecast.daysUntilStockout(50, UsageForecast.NO_USAGE));
+        assertEquals(-1, UsageForecast.daysUntilStockout(UsageForecast.MAX_FORECAST_DAYS + 1, 1));
+    }
+
+    @Test
+    public void snapshotTap_updatesForecastWithoutTouchingOriginal() {
+        InventorySnapshot snapshot = new InventorySnapshot.Builder(1).add(1, "Gloves", 20, InventoryItem.NO_THRESHOLD, 2).build();
+
+        InventorySnapshot used = snapshot.withQuantity(0, 13);
+        InventorySnapshot restocked = snapshot.withQuantity(0, 40);
+
+        assertTrue(used.getUsageRate(0) > snapshot.getUsageRate(0));
+        assertEquals(UsageForecast.daysUntilStockout(13, 3), used.getDaysUntilStockout(0));
+        assertEquals(2, restocked.getUsageRate(0), 0);
+        assertEquals(10, snapshot.getDaysUntilStockout(0));
+    }
+}
@@ -0,0 +1,62 @@
+// JMH benchmarks for the parts of the app that do not depend on Android.
+// Run with: ./gradlew :benchmarks:jmh - results are written to build/results/jmh/results.json
+// Filter with: ./gradlew :benchmarks:jmh -Pjmh.includes=InventorySnapshotBenchmark
+plugins {
+    java
+    id("me.champeau.jmh")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+// Compile the app's plain Java classes directly rather than depending on the Android module.
+// Only add files here that import nothing from android.* or androidx.* other than androidx.annotation
+sourceSets {
+    main {
+        java {
+            setSrcDirs(listOf("../app/src/main/java", "src/main/java"))
+            include(
+                "com/austin/inventory/DatabaseMigrations.java",
+                "com/austin/inventory/DatabaseScheduler.java",
+                "com/austin/inventory/FtsQuery.java",
+                "com/austin/inventory/InventoryCsv.java",
+                "com/austin/inventory/InventoryContract.java",
+                "com/austin/inventory/InventoryItem.java",
+                "com/austin/inventory/InventorySnapshot.java",
+                "com/austin/inventory/InventorySort.java",
+                "com/austin/inventory/InventorySummary.java",
+                "com/austin/inventory/InventoryStore.java",
+                "com/austin/inventory/LatencyHistogram.java",
+                "com/austin/inventory/MetricsRegistry.java",
+                "com/austin/inventory/PasswordHasher.java",
+                "com/austin/inventory/Pbkdf2PasswordHasher.java",
+                "com/austin/inventory/QuantityWriteBuffer.java",
+                "com/austin/inventory/UsageForecast.java",
+                "com/austin/inventory/UserRecord.java",
+                "com/austin/inventory/UserStore.java",
+                // Desktop store used by the query benchmarks, lives in this module
+                "com/austin/inventory/JdbcInventoryStore.java",
+            )
+        }
+    }
+}
+
+dependencies {
+    implementation("androidx.annotation:annotation:1.7.0")
+    implementation("org.xerial:sqlite-jdbc:3.45.3.0")
+    testImplementation("junit:junit:4.13.2")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    // Keep a full run to a few minutes - override on the command line for release comparisons
+    fork.set(1)
+    // Report bytes allocated per operation (gc.alloc.rate.norm) alongside the timings
+    profilers.add("gc")
+    warmupIterations.set(2)
+    iterations.set(3)
+}
@@ -0,0 +1,27 @@
+package com.austin.inventory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic inventories shared by the benchmarks - the same seed gives the same list every run
+ */
+final class InventoryFixtures {
+
+    private static final String[] WORDS = {"Bolt", "nut", "Washer", "screw", "Bracket", "hinge", "Spring", "pin", "Rivet", "clamp"};
+
+    private InventoryFixtures() {}
+
+    static List<InventoryItem> items(int size, long seed) {
+        Random random = new Random(seed);
+        List<InventoryItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(size);
+            // About a third of items carry their own reorder threshold
+            int threshold = random.nextInt(3) == 0 ? random.nextInt(20) : InventoryItem.NO_THRESHOLD;
+            items.add(new InventoryItem(i + 1, name, random.nextInt(100), threshold));
+        }
+        return items;
+    }
+}
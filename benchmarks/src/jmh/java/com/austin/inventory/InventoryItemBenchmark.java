@@ -0,0 +1,69 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and validating InventoryItems, as done for every row read from the database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InventoryItemBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private String[] names;
+    private int[] quantities;
+    private List<InventoryItem> items;
+
+    @Setup
+    public void setUp() {
+        items = InventoryFixtures.items(size, 42);
+        names = new String[size];
+        quantities = new int[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = items.get(i).getName();
+            quantities[i] = items.get(i).getQuantity();
+        }
+    }
+
+    @Benchmark
+    public void construct(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(new InventoryItem(i, names[i], quantities[i]));
+        }
+    }
+
+    @Benchmark
+    public void withQuantity(Blackhole blackhole) {
+        for (InventoryItem item : items) {
+            blackhole.consume(item.withQuantity(item.getQuantity() + 1));
+        }
+    }
+
+    @Benchmark
+    public int rejectInvalid() {
+        // Validation failures throw - this is the cost of a bad row in a bulk insert
+        int rejected = 0;
+        for (int i = 0; i < size; i++) {
+            try {
+                new InventoryItem(i, " ", -1);
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+}
@@ -0,0 +1,119 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * List<InventoryItem> against the columnar InventorySnapshot for the work the inventory screen does
+ * Run with the gc profiler: both load benchmarks size their containers exactly and reuse the same name
+ * strings, so gc.alloc.rate.norm for load* is the heap each structure retains for the list
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InventorySnapshotBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    // Row values as a cursor would return them
+    private int[] ids;
+    private String[] names;
+    private int[] quantities;
+    private int[] thresholds;
+
+    private List<InventoryItem> list;
+    private InventorySnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        list = InventoryFixtures.items(size, 42);
+        snapshot = InventorySnapshot.of(list);
+        ids = new int[size];
+        names = new String[size];
+        quantities = new int[size];
+        thresholds = new int[size];
+        for (int i = 0; i < size; i++) {
+            InventoryItem item = list.get(i);
+            ids[i] = item.getId();
+            names[i] = item.getName();
+            quantities[i] = item.getQuantity();
+            thresholds[i] = item.getReorderThreshold();
+        }
+    }
+
+    @Benchmark
+    public List<InventoryItem> loadList() {
+        List<InventoryItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new InventoryItem(ids[i], names[i], quantities[i], thresholds[i]));
+        }
+        return items;
+    }
+
+    @Benchmark
+    public InventorySnapshot loadSnapshot() {
+        InventorySnapshot.Builder builder = new InventorySnapshot.Builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.add(ids[i], names[i], quantities[i], thresholds[i]);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public List<InventoryItem> sortList() {
+        List<InventoryItem> sorted = new ArrayList<>(list);
+        sorted.sort(InventorySort.NAME.comparator());
+        return sorted;
+    }
+
+    @Benchmark
+    public int[] sortSnapshot() {
+        return snapshot.sortOrder(InventorySort.NAME);
+    }
+
+    // One +/- tap as the adapter applies it
+    @Benchmark
+    public List<InventoryItem> tapList() {
+        List<InventoryItem> items = new ArrayList<>(list);
+        int index = size / 2;
+        items.set(index, items.get(index).withQuantity(items.get(index).getQuantity() + 1));
+        return items;
+    }
+
+    @Benchmark
+    public InventorySnapshot tapSnapshot() {
+        int index = size / 2;
+        return snapshot.withQuantity(index, snapshot.getQuantity(index) + 1);
+    }
+
+    // Reading every row as onBindViewHolder does
+    @Benchmark
+    public long bindList() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            InventoryItem item = list.get(i);
+            sum += item.getQuantity() + item.getName().length();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long bindSnapshot() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += snapshot.getQuantity(i) + snapshot.getName(i).length();
+        }
+        return sum;
+    }
+}
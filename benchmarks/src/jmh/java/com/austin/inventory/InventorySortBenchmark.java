@@ -0,0 +1,55 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting a list with the name and quantity comparators, and placing one item with a binary search
+ * as InventoryCache does on every write
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InventorySortBenchmark {
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"NAME", "QUANTITY"})
+    public InventorySort sort;
+
+    private List<InventoryItem> unsorted;
+    private List<InventoryItem> sorted;
+    private InventoryItem probe;
+
+    @Setup
+    public void setUp() {
+        unsorted = InventoryFixtures.items(size, 42);
+        sorted = new ArrayList<>(unsorted);
+        sorted.sort(sort.comparator());
+        probe = new InventoryItem(size + 1, "Hinge 50", 50);
+    }
+
+    @Benchmark
+    public List<InventoryItem> sortList() {
+        List<InventoryItem> copy = new ArrayList<>(unsorted);
+        copy.sort(sort.comparator());
+        return copy;
+    }
+
+    @Benchmark
+    public int binarySearch() {
+        return Collections.binarySearch(sorted, probe, sort.comparator());
+    }
+}
@@ -0,0 +1,57 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluating the low stock rule in memory - the baseline the indexed database query replaces
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LowStockBenchmark {
+
+    private static final int DEFAULT_THRESHOLD = 2;
+
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<InventoryItem> items;
+
+    @Setup
+    public void setUp() {
+        items = InventoryFixtures.items(size, 42);
+    }
+
+    @Benchmark
+    public int countLowStock() {
+        int count = 0;
+        for (InventoryItem item : items) {
+            if (item.isLowStock(DEFAULT_THRESHOLD)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public List<InventoryItem> filterLowStock() {
+        List<InventoryItem> low = new ArrayList<>();
+        for (InventoryItem item : items) {
+            if (item.isLowStock(DEFAULT_THRESHOLD)) {
+                low.add(item);
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,39 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead MetricsRegistry adds to every timed call - must stay far below the cheapest database query
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    @Benchmark
+    public void recordSince() {
+        registry.recordSince("db.getInventoryPage", System.nanoTime());
+    }
+
+    // Database calls and row binds recording into the same histogram at once
+    @Benchmark
+    @Threads(4)
+    public void recordSinceContended() {
+        registry.recordSince("db.getInventoryPage", System.nanoTime());
+    }
+
+    @Benchmark
+    public String formatTable() {
+        return MetricsRegistry.formatTable(registry.snapshot());
+    }
+}
@@ -0,0 +1,53 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password hashing at several costs, and checking a legacy unsalted SHA-256 hash
+ * Timings here are for the build machine - PasswordHashBenchmarkTest reports them on a device
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordHashBenchmark {
+
+    // SHA-256 of "Password1!" as stored before PBKDF2
+    private static final String LEGACY_HASH = "1d707811988069ca760826861d6d63a10e8c3b7f171c4441a6472ea58c11711b";
+
+    @Param({"10000", "100000", "400000"})
+    public int iterations;
+
+    private Pbkdf2PasswordHasher hasher;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        hasher = new Pbkdf2PasswordHasher(iterations);
+        encoded = hasher.hash("Password1!");
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash("Password1!");
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify("Password1!", encoded);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean verifyLegacy() {
+        return hasher.verify("Password1!", LEGACY_HASH);
+    }
+}
@@ -0,0 +1,82 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The app's SQL run through JdbcInventoryStore against inventories far larger than a test device holds
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreQueryBenchmark {
+
+    private static final String USER = "bench@test.com";
+    private static final int DEFAULT_THRESHOLD = 2;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private JdbcInventoryStore store;
+    // Last item of a page in the middle of the list, sorted by name
+    private InventoryItem middle;
+
+    @Setup
+    public void setUp() {
+        store = new JdbcInventoryStore(":memory:");
+        store.insertUser(USER, "hash", null);
+        // A second user so every query has to filter by owner
+        store.insertUser("other@test.com", "hash", null);
+        store.insertInventoryItems(InventoryFixtures.items(size / 10, 7), "other@test.com");
+        store.insertInventoryItems(InventoryFixtures.items(size, 42), USER);
+        store.syncDefaultThreshold(DEFAULT_THRESHOLD);
+
+        List<InventoryItem> all = store.getInventoryItemsForUser(USER, InventorySort.NAME);
+        middle = all.get(all.size() / 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public List<InventoryItem> firstPage() {
+        return store.getInventoryPage(USER, InventorySort.NAME, null, InventoryContract.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<InventoryItem> deepPage() {
+        return store.getInventoryPage(USER, InventorySort.NAME, middle, InventoryContract.PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int countLowStock() {
+        return store.countLowStockItems(USER, DEFAULT_THRESHOLD);
+    }
+
+    @Benchmark
+    public InventorySummary summary() {
+        return store.getInventorySummary(USER);
+    }
+
+    @Benchmark
+    public List<InventoryItem> lowStockItems() {
+        return store.getLowStockItems(USER, DEFAULT_THRESHOLD);
+    }
+
+    @Benchmark
+    public List<InventoryItem> prefixSearch() {
+        return store.searchInventory(USER, "bra 12", InventorySort.NAME);
+    }
+}
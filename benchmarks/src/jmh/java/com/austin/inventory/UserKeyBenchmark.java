@@ -0,0 +1,164 @@
+package com.austin.inventory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+import static com.austin.inventory.InventoryContract.*;
+
+/**
+ * Per-user queries on the version 11 schema, where inventory rows carry the owner's email, against
+ * the version 12 schema keyed by integer user id - same 500k rows spread over 50 users.
+ * The database file size of each schema is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserKeyBenchmark {
+
+    private static final int USERS = 50;
+    private static final int ITEMS_PER_USER = 10_000;
+    private static final int DEFAULT_THRESHOLD = 2;
+
+    // The same queries as InventoryContract ran them at version 11
+    private static final String EMAIL_ITEMS = "SELECT " + ITEM_COLUMNS + " FROM " + TABLE_INVENTORY
+            + " WHERE " + COLUMN_USER_EMAIL + " = ? ORDER BY " + orderBy(InventorySort.NAME);
+    private static final String EMAIL_FIRST_PAGE = EMAIL_ITEMS + " LIMIT " + PAGE_SIZE;
+    private static final String EMAIL_COUNT_LOW_STOCK = "SELECT (SELECT COUNT(*) FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_USER_EMAIL + " = ? AND "
+            + COLUMN_QUANTITY + " - " + COLUMN_REORDER_THRESHOLD + " <= 0) + (SELECT COUNT(*) FROM " + TABLE_INVENTORY + " WHERE " + COLUMN_USER_EMAIL
+            + " = ? AND " + COLUMN_REORDER_THRESHOLD + " IS NULL AND " + COLUMN_QUANTITY + " <= ?)";
+
+    @Param({"email", "id"})
+    public String key;
+
+    private File file;
+    private Connection connection;
+    private PreparedStatement items;
+    private PreparedStatement firstPage;
+    private PreparedStatement countLowStock;
+    private int userCount;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        file = File.createTempFile("user-key", ".db");
+        try (JdbcInventoryStore store = new JdbcInventoryStore(file.getPath(), 11)) {
+            for (int u = 0; u < USERS; u++) {
+                store.insertUser(email(u), "hash", null);
+            }
+        }
+        connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        populate();
+
+        if (key.equals("id")) {
+            connection.close();
+            long start = System.nanoTime();
+            new JdbcInventoryStore(file.getPath()).close();
+            System.out.println("Migrated to version " + DATABASE_VERSION + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("VACUUM");
+        }
+        System.out.println("Database file keyed by " + key + ": " + file.length() / 1024 + " KiB");
+
+        boolean byEmail = key.equals("email");
+        items = connection.prepareStatement(byEmail ? EMAIL_ITEMS : itemsForUserSql(InventorySort.NAME));
+        firstPage = connection.prepareStatement(byEmail ? EMAIL_FIRST_PAGE : pageSql(InventorySort.NAME, false, PAGE_SIZE));
+        countLowStock = connection.prepareStatement(byEmail ? EMAIL_COUNT_LOW_STOCK : SQL_COUNT_LOW_STOCK);
+    }
+
+    /**
+     * Insert every user's items through the version 11 schema, triggers and all
+     */
+    private void populate() throws SQLException {
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE_INVENTORY + " (" + COLUMN_NAME + ", " + COLUMN_QUANTITY + ", "
+                + COLUMN_USER_EMAIL + ", " + COLUMN_REORDER_THRESHOLD + ") VALUES (?, ?, ?, ?)")) {
+            for (int u = 0; u < USERS; u++) {
+                for (InventoryItem item : InventoryFixtures.items(ITEMS_PER_USER, u)) {
+                    insert.setString(1, item.getName());
+                    insert.setInt(2, item.getQuantity());
+                    insert.setString(3, email(u));
+                    if (item.getReorderThreshold() == InventoryItem.NO_THRESHOLD) {
+                        insert.setNull(4, Types.INTEGER);
+                    } else {
+                        insert.setInt(4, item.getReorderThreshold());
+                    }
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    // A realistic length - on the version 11 schema every inventory row and index entry repeats it
+    private static String email(int user) {
+        return "inventory.manager." + user + "@warehouse.example.com";
+    }
+
+    // Rotate through the users so every query starts from a different part of the indexes
+    private String nextUser() {
+        return email(userCount++ % USERS);
+    }
+
+    @Benchmark
+    public int allItems() throws SQLException {
+        items.setString(1, nextUser());
+        return count(items);
+    }
+
+    @Benchmark
+    public int firstPage() throws SQLException {
+        firstPage.setString(1, nextUser());
+        return count(firstPage);
+    }
+
+    @Benchmark
+    public int countLowStock() throws SQLException {
+        String email = nextUser();
+        countLowStock.setString(1, email);
+        countLowStock.setString(2, email);
+        countLowStock.setString(3, String.valueOf(DEFAULT_THRESHOLD));
+        try (ResultSet rows = countLowStock.executeQuery()) {
+            return rows.next() ? rows.getInt(1) : 0;
+        }
+    }
+
+    // Reads a column of every row so the driver has to materialize each one
+    private static int count(PreparedStatement statement) throws SQLException {
+        int length = 0;
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                length += rows.getString(2).length();
+            }
+        }
+        return length;
+    }
+}
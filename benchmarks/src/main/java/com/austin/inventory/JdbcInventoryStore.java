@@ -0,0 +1,532 @@
+/**
+ * JdbcInventoryStore.java
+ *
+ * Desktop implementation of InventoryStore and UserStore on the xerial sqlite-jdbc driver, used to
+ * benchmark and test the app's queries on a JVM with large synthetic datasets.
+ *
+ * Author: Austin Henley
+ * Created on: 12/6/2023
+ *
+ * The schema is built with the same DatabaseMigrations steps and every query comes from
+ * InventoryContract, so query plans match the ones SQLite picks on the device. Query arguments are
+ * bound as strings, as SQLiteDatabase.rawQuery does. The store wraps a single connection and is not
+ * thread-safe.
+ */
+
+package com.austin.inventory;
+
+import androidx.annotation.Nullable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.austin.inventory.InventoryContract.*;
+
+public class JdbcInventoryStore implements InventoryStore, UserStore, AutoCloseable {
+
+    private final Connection connection;
+
+    /**
+     * Open (or create) a database and migrate it to InventoryContract.DATABASE_VERSION
+     * @param path database file, or ":memory:" for a private in-memory database
+     */
+    public JdbcInventoryStore(String path) {
+        this(path, DATABASE_VERSION);
+    }
+
+    /**
+     * Open (or create) a database and migrate it only as far as an older version - for benchmarks
+     * comparing schemas. Most store methods run current SQL and will fail against an older schema
+     * @param path database file
+     * @param targetVersion schema version to stop at
+     */
+    JdbcInventoryStore(String path, int targetVersion) {
+        try {
+            connection = DriverManager.getConnection("jdbc:sqlite:" + path);
+            migrate(targetVersion);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not open " + path, e);
+        }
+    }
+
+    /**
+     * Build the base schema on an empty database, then run every step up to the target version
+     */
+    private void migrate(int targetVersion) throws SQLException {
+        int version = queryInt("PRAGMA user_version");
+        if (version == 0) {
+            inTransaction(() -> DatabaseMigrations.createBaseSchema(this::execSQL));
+            version = DatabaseMigrations.BASE_VERSION;
+        }
+        for (; version < targetVersion; version++) {
+            DatabaseMigrations.Migration migration = DatabaseMigrations.get(version);
+            int next = version + 1;
+            inTransaction(() -> {
+                migration.migrate(this::execSQL);
+                execSQL("PRAGMA user_version = " + next);
+            });
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //region User Operations
+
+    @Override
+    public boolean insertUser(String email, String passwordHash, String phone) {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + TABLE_USERS
+                + " (" + COLUMN_EMAIL + ", " + COLUMN_PASSWORD + ", " + COLUMN_PHONE + ") VALUES (?, ?, ?)")) {
+            statement.setString(1, email);
+            statement.setString(2, passwordHash);
+            statement.setString(3, phone);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            // SQLiteDatabase.insert reports constraint failures as -1 rather than throwing
+            return false;
+        }
+    }
+
+    @Override
+    public boolean checkUserEmail(String email) {
+        try (PreparedStatement statement = query(SQL_USER_EXISTS, email);
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    @Nullable
+    public UserRecord getUserRecord(String email) {
+        try (PreparedStatement statement = query(SQL_USER_RECORD, email);
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? new UserRecord(email, rows.getString(1), rows.getString(2), rows.getInt(3) == 1) : null;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public boolean updatePasswordHash(String email, String passwordHash) {
+        return update("UPDATE " + TABLE_USERS + " SET " + COLUMN_PASSWORD + " = ? WHERE " + COLUMN_EMAIL + " = ?", passwordHash, email) > 0;
+    }
+
+    @Override
+    public String getUserPhoneNumber(String email) {
+        UserRecord record = getUserRecord(email);
+        return record == null ? null : record.phone;
+    }
+
+    @Override
+    public void updateUser2FASetting(String email, boolean is2FAEnabled) {
+        update("UPDATE " + TABLE_USERS + " SET " + COLUMN_2FA_ENABLED + " = ? WHERE " + COLUMN_EMAIL + " = ?", is2FAEnabled ? "1" : "0", email);
+    }
+
+    @Override
+    public boolean is2FAEnabled(String email) {
+        UserRecord record = getUserRecord(email);
+        return record != null && record.twoFactorEnabled;
+    }
+
+    //endregion
+
+    //region Inventory Operations
+
+    @Override
+    public boolean insertInventoryItem(String name, int quantity, String userEmail) {
+        return insertInventoryItems(Collections.singletonList(new InventoryItem(0, name, quantity)), userEmail)[0] != -1;
+    }
+
+    @Override
+    public List<InventoryItem> getInventoryItemsForUser(String userEmail) {
+        return getInventoryItemsForUser(userEmail, InventorySort.NAME);
+    }
+
+    @Override
+    public List<InventoryItem> getInventoryItemsForUser(String userEmail, InventorySort sort) {
+        return queryItems(itemsForUserSql(sort), userEmail);
+    }
+
+    @Override
+    public InventorySnapshot getInventorySnapshot(String userEmail, InventorySort sort) {
+        InventorySnapshot.Builder builder = new InventorySnapshot.Builder(InventoryContract.PAGE_SIZE);
+        long now = System.currentTimeMillis();
+        try (PreparedStatement statement = query(itemsForUserSql(sort), userEmail);
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                int threshold = rows.getInt(4);
+                if (rows.wasNull()) {
+                    threshold = InventoryItem.NO_THRESHOLD;
+                }
+                builder.add(rows.getInt(1), rows.getString(2), rows.getInt(3), threshold, readUsageRate(rows, now));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public List<InventoryItem> searchInventory(String userEmail, String query, InventorySort sort) {
+        String match = FtsQuery.prefixMatch(query);
+        if (match.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return queryItems(searchSql(sort), match, userEmail);
+    }
+
+    @Override
+    public List<InventoryItem> getLowStockItems(String userEmail, int defaultThreshold) {
+        return queryItems(SQL_LOW_STOCK_ITEMS, userEmail, userEmail, String.valueOf(defaultThreshold));
+    }
+
+    @Override
+    public int countLowStockItems(String userEmail, int defaultThreshold) {
+        try (PreparedStatement statement = query(SQL_COUNT_LOW_STOCK, userEmail, userEmail, String.valueOf(defaultThreshold));
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? rows.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void syncDefaultThreshold(int defaultThreshold) {
+        String threshold = String.valueOf(defaultThreshold);
+        inTransaction(() -> {
+            if (queryInt(SQL_DEFAULT_THRESHOLD) != defaultThreshold) {
+                update(SQL_SET_DEFAULT_THRESHOLD, threshold);
+                update(SQL_RECOUNT_LOW_STOCK, threshold);
+            }
+        });
+    }
+
+    @Override
+    public InventorySummary getInventorySummary(String userEmail) {
+        try (PreparedStatement statement = query(SQL_SUMMARY, userEmail);
+             ResultSet rows = statement.executeQuery()) {
+            return rows.next()
+                    ? new InventorySummary(rows.getInt(1), rows.getLong(2), rows.getInt(3), rows.getInt(4))
+                    : InventorySummary.EMPTY;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public List<InventoryItem> getInventoryPage(String userEmail, InventorySort sort, @Nullable InventoryItem after, int limit) {
+        return queryItems(pageSql(sort, after != null, limit), pageArgs(userEmail, sort, after));
+    }
+
+    @Override
+    public boolean updateInventoryItem(int id, String name, int quantity) {
+        boolean[] updated = new boolean[1];
+        inTransaction(() -> {
+            updated[0] = update(SQL_RENAME_ITEM, name, String.valueOf(id)) > 0;
+            if (updated[0]) {
+                writeQuantityChanges(Collections.singletonMap(id, quantity), true);
+            }
+        });
+        return updated[0];
+    }
+
+    @Override
+    public boolean updateInventoryItem(int id, String name, int quantity, int reorderThreshold) {
+        return updateInventoryItems(Collections.singletonList(new InventoryItem(id, name, quantity, reorderThreshold)))[0];
+    }
+
+    @Override
+    public boolean deleteInventoryItem(int id) {
+        return update(SQL_DELETE_ITEM, String.valueOf(id)) > 0;
+    }
+
+    @Override
+    public void applyQuantityDeltas(Map<Integer, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        inTransaction(() -> writeQuantityChanges(deltas, false));
+    }
+
+    @Override
+    public void applyQuantityDeltas(long batch, Map<Integer, Integer> deltas) {
+        inTransaction(() -> {
+            try (PreparedStatement select = query(SQL_APPLIED_QUANTITY_BATCH);
+                 ResultSet rows = select.executeQuery()) {
+                if (rows.next() && rows.getLong(1) >= batch) {
+                    return;
+                }
+            }
+            writeQuantityChanges(deltas, false);
+            update(SQL_SET_APPLIED_QUANTITY_BATCH, String.valueOf(batch));
+        });
+    }
+
+    @Override
+    public long appliedQuantityBatch() {
+        try (PreparedStatement select = query(SQL_APPLIED_QUANTITY_BATCH);
+             ResultSet rows = select.executeQuery()) {
+            return rows.next() ? rows.getLong(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Caller owns the transaction - changes are new quantities if replace, otherwise amounts to add
+    private void writeQuantityChanges(Map<Integer, Integer> changes, boolean replace) throws SQLException {
+        long now = System.currentTimeMillis();
+        List<Integer> ids = new ArrayList<>(changes.keySet());
+        try (PreparedStatement update = connection.prepareStatement(SQL_SET_QUANTITY_AND_USAGE);
+             PreparedStatement history = connection.prepareStatement(SQL_INSERT_HISTORY)) {
+            for (int from = 0; from < ids.size(); from += MAX_IDS_PER_QUERY) {
+                int to = Math.min(ids.size(), from + MAX_IDS_PER_QUERY);
+                String[] args = new String[to - from];
+                for (int i = from; i < to; i++) {
+                    args[i - from] = String.valueOf(ids.get(i));
+                }
+                try (PreparedStatement select = query(quantityAndUsageSql(args.length), args);
+                     ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        int id = rows.getInt(1);
+                        int quantity = rows.getInt(2);
+                        int change = changes.get(id);
+                        int newQuantity = Math.max(0, replace ? change : quantity + change);
+                        if (newQuantity == quantity) {
+                            continue;
+                        }
+                        double rate = rows.getDouble(3);
+                        boolean used = !rows.wasNull();
+                        long updatedAt = used ? rows.getLong(4) : now;
+                        if (newQuantity < quantity) {
+                            rate = UsageForecast.afterUse(rate, updatedAt, quantity - newQuantity, now);
+                            updatedAt = now;
+                            used = true;
+                        }
+
+                        update.setLong(1, newQuantity);
+                        if (used) {
+                            update.setDouble(2, rate);
+                            update.setLong(3, updatedAt);
+                        } else {
+                            update.setNull(2, Types.REAL);
+                            update.setNull(3, Types.INTEGER);
+                        }
+                        update.setLong(4, id);
+                        update.executeUpdate();
+
+                        history.setLong(1, id);
+                        history.setLong(2, newQuantity - quantity);
+                        history.setLong(3, now);
+                        history.executeUpdate();
+                    }
+                }
+            }
+        }
+    }
+
+    //endregion
+
+    //region Bulk Inventory Operations
+
+    @Override
+    public long[] insertInventoryItems(List<InventoryItem> items, String userEmail) {
+        long[] results = new long[items.size()];
+        long now = System.currentTimeMillis();
+        inTransaction(() -> {
+            try (PreparedStatement statement = connection.prepareStatement(SQL_INSERT_ITEM, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement history = connection.prepareStatement(SQL_INSERT_HISTORY)) {
+                for (int i = 0; i < items.size(); i++) {
+                    InventoryItem item = items.get(i);
+                    statement.setString(1, item.getName());
+                    statement.setLong(2, item.getQuantity());
+                    statement.setString(3, userEmail);
+                    bindThreshold(statement, 4, item);
+                    results[i] = -1;
+                    try {
+                        statement.executeUpdate();
+                        try (ResultSet keys = statement.getGeneratedKeys()) {
+                            if (keys.next()) {
+                                results[i] = keys.getLong(1);
+                            }
+                        }
+                    } catch (SQLException e) {
+                        // Leave -1 for this row and keep going, as DatabaseHelper does
+                    }
+
+                    if (results[i] != -1 && item.getQuantity() != 0) {
+                        history.setLong(1, results[i]);
+                        history.setLong(2, item.getQuantity());
+                        history.setLong(3, now);
+                        history.executeUpdate();
+                    }
+                }
+            }
+        });
+        return results;
+    }
+
+    @Override
+    public boolean[] updateInventoryItems(List<InventoryItem> items) {
+        boolean[] results = new boolean[items.size()];
+        Map<Integer, Integer> quantities = new HashMap<>();
+        inTransaction(() -> {
+            try (PreparedStatement statement = connection.prepareStatement(SQL_UPDATE_ITEM_DETAILS)) {
+                for (int i = 0; i < items.size(); i++) {
+                    InventoryItem item = items.get(i);
+                    statement.setString(1, item.getName());
+                    bindThreshold(statement, 2, item);
+                    statement.setLong(3, item.getId());
+                    try {
+                        results[i] = statement.executeUpdate() > 0;
+                    } catch (SQLException e) {
+                        // Leave false for this row
+                    }
+                    if (results[i]) {
+                        quantities.put(item.getId(), item.getQuantity());
+                    }
+                }
+            }
+            writeQuantityChanges(quantities, true);
+        });
+        return results;
+    }
+
+    @Override
+    public boolean[] deleteInventoryItems(List<InventoryItem> items) {
+        boolean[] results = new boolean[items.size()];
+        inTransaction(() -> {
+            try (PreparedStatement statement = connection.prepareStatement(SQL_DELETE_ITEM)) {
+                for (int i = 0; i < items.size(); i++) {
+                    statement.setLong(1, items.get(i).getId());
+                    results[i] = statement.executeUpdate() > 0;
+                }
+            }
+        });
+        return results;
+    }
+
+    //endregion
+
+    //region JDBC plumbing
+
+    private interface SqlWork {
+        void run() throws SQLException;
+    }
+
+    /**
+     * Run work in one transaction, rolling back if it throws
+     */
+    private void inTransaction(SqlWork work) {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                work.run();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void execSQL(String sql) {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(sql, e);
+        }
+    }
+
+    // Package-private so tests can inspect tables the store has no query for
+    int queryInt(String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery(sql)) {
+            return rows.next() ? rows.getInt(1) : 0;
+        }
+    }
+
+    private PreparedStatement query(String sql, String... args) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        for (int i = 0; i < args.length; i++) {
+            statement.setString(i + 1, args[i]);
+        }
+        return statement;
+    }
+
+    private int update(String sql, String... args) {
+        try (PreparedStatement statement = query(sql, args)) {
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<InventoryItem> queryItems(String sql, String... args) {
+        List<InventoryItem> itemList = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        try (PreparedStatement statement = query(sql, args);
+             ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                itemList.add(readItem(rows, now));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return itemList;
+    }
+
+    /**
+     * Build an item from a row selected with ITEM_COLUMNS
+     * @param now time to decay the usage rate to, in epoch milliseconds
+     */
+    private static InventoryItem readItem(ResultSet rows, long now) throws SQLException {
+        int threshold = rows.getInt(4);
+        if (rows.wasNull()) {
+            threshold = InventoryItem.NO_THRESHOLD;
+        }
+        return new InventoryItem(rows.getInt(1), rows.getString(2), rows.getInt(3), threshold, readUsageRate(rows, now));
+    }
+
+    /**
+     * Usage rate of a row selected with ITEM_COLUMNS, as of now
+     */
+    private static double readUsageRate(ResultSet rows, long now) throws SQLException {
+        double rate = rows.getDouble(5);
+        if (rows.wasNull()) {
+            return UsageForecast.NO_USAGE;
+        }
+        return UsageForecast.rateAt(rate, rows.getLong(6), now);
+    }
+
+    private static void bindThreshold(PreparedStatement statement, int index, InventoryItem item) throws SQLException {
+        if (item.getReorderThreshold() == InventoryItem.NO_THRESHOLD) {
+            statement.setNull(index, Types.INTEGER);
+        } else {
+            statement.setLong(index, item.getReorderThreshold());
+        }
+    }
+
+    //endregion
+}
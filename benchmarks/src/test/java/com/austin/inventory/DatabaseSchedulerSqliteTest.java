@@ -0,0 +1,94 @@
+package com.austin.inventory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DatabaseScheduler against a real SQLite file in WAL mode, as DatabaseHelper opens it - a read on
+ * the pool finishes while the writer thread holds a write transaction open
+ */
+public class DatabaseSchedulerSqliteTest {
+
+    private static final String USER = "scheduler@test.com";
+
+    private File file;
+    private DatabaseScheduler scheduler;
+
+    @Before
+    public void setUp() throws IOException, SQLException {
+        file = File.createTempFile("inventory", ".db");
+        try (JdbcInventoryStore store = new JdbcInventoryStore(file.getPath())) {
+            assertTrue(store.insertUser(USER, "hash", null));
+            assertTrue(store.insertInventoryItem("Bolts", 1, USER));
+        }
+        try (Connection connection = connect();
+             Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = WAL");
+        }
+        scheduler = new DatabaseScheduler(DatabaseScheduler.READ_THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        assertTrue(scheduler.shutdown(5, TimeUnit.SECONDS));
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void readCompletesWhileWriteTransactionIsOpen() throws Exception {
+        CountDownLatch inTransaction = new CountDownLatch(1);
+        CountDownLatch finishWrite = new CountDownLatch(1);
+        Future<?> write = scheduler.write(() -> {
+            try (Connection connection = connect();
+                 Statement statement = connection.createStatement()) {
+                connection.setAutoCommit(false);
+                statement.executeUpdate("UPDATE inventory SET quantity = 5");
+                inTransaction.countDown();
+                assertTrue(finishWrite.await(5, TimeUnit.SECONDS));
+                connection.commit();
+            } catch (SQLException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(inTransaction.await(5, TimeUnit.SECONDS));
+
+        try (JdbcInventoryStore store = new JdbcInventoryStore(file.getPath())) {
+            AtomicInteger quantity = new AtomicInteger();
+            Future<?> read = scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE,
+                    () -> quantity.set(store.getInventoryItemsForUser(USER).get(0).getQuantity()));
+
+            // Times out if the read waited for the writer to commit
+            read.get(5, TimeUnit.SECONDS);
+            assertEquals(1, finishWrite.getCount());
+            // The uncommitted change is not visible yet
+            assertEquals(1, quantity.get());
+
+            finishWrite.countDown();
+            write.get(5, TimeUnit.SECONDS);
+            scheduler.read(DatabaseScheduler.Priority.USER_VISIBLE,
+                    () -> quantity.set(store.getInventoryItemsForUser(USER).get(0).getQuantity())).get(5, TimeUnit.SECONDS);
+            assertEquals(5, quantity.get());
+        }
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+    }
+}
@@ -0,0 +1,370 @@
+package com.austin.inventory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JdbcInventoryStoreTest {
+
+    private static final String USER = "jdbc@test.com";
+
+    private JdbcInventoryStore store;
+
+    @Before
+    public void setUp() {
+        store = new JdbcInventoryStore(":memory:");
+        assertTrue(store.insertUser(USER, "hash", "5555555555"));
+    }
+
+    @After
+    public void tearDown() {
+        store.close();
+    }
+
+    @Test
+    public void users_roundTrip() {
+        assertFalse(store.insertUser(USER, "other", null));
+        assertTrue(store.checkUserEmail(USER));
+        assertNull(store.getUserRecord("missing@test.com"));
+
+        store.updateUser2FASetting(USER, true);
+        assertTrue(store.updatePasswordHash(USER, "rehashed"));
+
+        UserRecord record = store.getUserRecord(USER);
+        assertNotNull(record);
+        assertEquals("rehashed", record.passwordHash);
+        assertEquals("5555555555", record.phone);
+        assertTrue(record.twoFactorEnabled);
+    }
+
+    @Test
+    public void pages_walkWholeInventoryInSortOrder() {
+        List<InventoryItem> items = generated(1_000, 7);
+        store.insertInventoryItems(items, USER);
+        store.insertUser("other@test.com", "hash", null);
+        store.insertInventoryItems(generated(50, 8), "other@test.com");
+
+        for (InventorySort sort : InventorySort.values()) {
+            List<InventoryItem> expected = store.getInventoryItemsForUser(USER, sort);
+            List<InventoryItem> paged = new ArrayList<>();
+            InventoryItem after = null;
+            List<InventoryItem> page;
+            do {
+                page = store.getInventoryPage(USER, sort, after, 64);
+                paged.addAll(page);
+                after = page.isEmpty() ? null : page.get(page.size() - 1);
+            } while (page.size() == 64);
+
+            assertEquals(items.size(), paged.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getId(), paged.get(i).getId());
+            }
+        }
+    }
+
+    @Test
+    public void lowStock_matchesInMemoryRule() {
+        int defaultThreshold = 10;
+        List<InventoryItem> items = generated(2_000, 3);
+        store.insertInventoryItems(items, USER);
+
+        int expected = 0;
+        for (InventoryItem item : items) {
+            if (item.isLowStock(defaultThreshold)) {
+                expected++;
+            }
+        }
+
+        List<InventoryItem> low = store.getLowStockItems(USER, defaultThreshold);
+        assertEquals(expected, low.size());
+        assertEquals(expected, store.countLowStockItems(USER, defaultThreshold));
+        for (InventoryItem item : low) {
+            assertTrue(item.isLowStock(defaultThreshold));
+        }
+    }
+
+    @Test
+    public void search_followsRenamesAndDeletes() {
+        long[] ids = store.insertInventoryItems(items("Red bolts", "Blue washers"), USER);
+
+        assertEquals(1, store.searchInventory(USER, "red bol", InventorySort.NAME).size());
+        assertTrue(store.searchInventory(USER, "  ", InventorySort.NAME).isEmpty());
+
+        assertTrue(store.updateInventoryItem((int) ids[0], "Green bolts", 4, 2));
+        assertTrue(store.searchInventory(USER, "red", InventorySort.NAME).isEmpty());
+        assertEquals(2, store.searchInventory(USER, "green", InventorySort.NAME).get(0).getReorderThreshold());
+
+        assertTrue(store.deleteInventoryItem((int) ids[1]));
+        assertTrue(store.searchInventory(USER, "washers", InventorySort.NAME).isEmpty());
+    }
+
+    @Test
+    public void search_matchesAccentedNamesAsIndexed() {
+        store.insertInventoryItems(items("CR\u00c8ME br\u00fbl\u00e9e", "Jalape\u00f1o peppers"), USER);
+
+        assertEquals(1, store.searchInventory(USER, "cr\u00c8", InventorySort.NAME).size());
+        assertEquals(1, store.searchInventory(USER, "CR\u00c8ME BR\u00fb", InventorySort.NAME).size());
+        assertEquals(1, store.searchInventory(USER, "JALAPE\u00f1 pep", InventorySort.NAME).size());
+        // The index keeps non-ASCII letters as written, so a different case is a different word
+        assertTrue(store.searchInventory(USER, "cr\u00e8me", InventorySort.NAME).isEmpty());
+    }
+
+    @Test
+    public void quantityDeltas_neverGoNegative() {
+        long[] ids = store.insertInventoryItems(items("Nuts", "Pins"), USER);
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        deltas.put((int) ids[0], 5);
+        deltas.put((int) ids[1], -50);
+        store.applyQuantityDeltas(deltas);
+
+        List<InventoryItem> stored = store.getInventoryItemsForUser(USER);
+        assertEquals(6, stored.get(0).getQuantity());
+        assertEquals(0, stored.get(1).getQuantity());
+    }
+
+    @Test
+    public void edits_recordQuantityHistoryAndUsage() throws SQLException {
+        long[] ids = store.insertInventoryItems(Collections.singletonList(new InventoryItem(0, "Gloves", 10)), USER);
+        int id = (int) ids[0];
+
+        assertTrue(store.updateInventoryItem(id, "Gloves", 4, InventoryItem.NO_THRESHOLD));
+        assertTrue(store.updateInventoryItem(id, "Nitrile gloves", 9));
+        assertTrue(store.updateInventoryItems(Collections.singletonList(new InventoryItem(id, "Nitrile gloves", 9, 3)))[0]);
+
+        // Opening stock, -6, +5 - the last update leaves the quantity alone
+        assertEquals(3, store.queryInt("SELECT COUNT(*) FROM quantity_history WHERE item_id = " + id));
+        assertEquals(9, store.queryInt("SELECT SUM(delta) FROM quantity_history WHERE item_id = " + id));
+        InventoryItem stored = store.getInventoryItemsForUser(USER).get(0);
+        assertEquals("Nitrile gloves", stored.getName());
+        assertEquals(9, stored.getQuantity());
+        assertEquals(3, stored.getReorderThreshold());
+        assertEquals(6 / UsageForecast.TIME_CONSTANT_DAYS, stored.getUsageRate(), 1e-3);
+    }
+
+    @Test
+    public void quantityBatch_replayedAfterCommitIsSkipped() throws SQLException {
+        long[] ids = store.insertInventoryItems(items("Nuts"), USER);
+        Map<Integer, Integer> batch = Collections.singletonMap((int) ids[0], 4);
+        assertEquals(0, store.appliedQuantityBatch());
+
+        store.applyQuantityDeltas(1, batch);
+        store.applyQuantityDeltas(1, batch);
+        store.applyQuantityDeltas(2, Collections.singletonMap((int) ids[0], -2));
+        store.applyQuantityDeltas(1, batch);
+
+        assertEquals(2, store.appliedQuantityBatch());
+        assertEquals(3, store.getInventoryItemsForUser(USER).get(0).getQuantity());
+        // Opening stock and one row per batch
+        assertEquals(3, store.queryInt("SELECT COUNT(*) FROM quantity_history WHERE item_id = " + ids[0]));
+    }
+
+    @Test
+    public void quantityDeltas_appendHistoryAndTrackUsage() throws SQLException {
+        List<InventoryItem> stock = new ArrayList<>();
+        stock.add(new InventoryItem(0, "Gloves", 10));
+        stock.add(new InventoryItem(0, "Tape", 2));
+        long[] ids = store.insertInventoryItems(stock, USER);
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        deltas.put((int) ids[0], -3);
+        deltas.put((int) ids[1], 4);
+        store.applyQuantityDeltas(deltas);
+        // Only 7 are left, so only 7 are recorded as used
+        store.applyQuantityDeltas(Collections.singletonMap((int) ids[0], -20));
+
+        // Opening stock, then the two changes
+        assertEquals(3, store.queryInt("SELECT COUNT(*) FROM quantity_history WHERE item_id = " + ids[0]));
+        assertEquals(0, store.queryInt("SELECT SUM(delta) FROM quantity_history WHERE item_id = " + ids[0]));
+        List<InventoryItem> stored = store.getInventoryItemsForUser(USER);
+        assertEquals(10 / UsageForecast.TIME_CONSTANT_DAYS, stored.get(0).getUsageRate(), 1e-3);
+        assertEquals(UsageForecast.NO_USAGE, stored.get(1).getUsageRate(), 0);
+        assertEquals(6, stored.get(1).getQuantity());
+
+        assertTrue(store.deleteInventoryItem((int) ids[0]));
+        assertEquals(0, store.queryInt("SELECT COUNT(*) FROM quantity_history WHERE item_id = " + ids[0]));
+    }
+
+    @Test
+    public void summary_staysConsistentUnderBulkChanges() {
+        Random random = new Random(13);
+        long[] ids = store.insertInventoryItems(generated(3_000, 12), USER);
+        store.insertUser("other@test.com", "hash", null);
+        store.insertInventoryItems(generated(200, 14), "other@test.com");
+        assertSummaryMatchesItems(10);
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (long id : ids) {
+            if (random.nextBoolean()) {
+                deltas.put((int) id, random.nextInt(120) - 80);
+            }
+        }
+        store.applyQuantityDeltas(deltas);
+        assertSummaryMatchesItems(10);
+
+        for (int i = 0; i < 500; i++) {
+            int id = (int) ids[random.nextInt(ids.length)];
+            int threshold = random.nextBoolean() ? random.nextInt(20) : InventoryItem.NO_THRESHOLD;
+            store.updateInventoryItem(id, "Renamed " + i, random.nextInt(30), threshold);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            store.deleteInventoryItem((int) ids[i]);
+        }
+        assertSummaryMatchesItems(10);
+
+        // Changing the global minimum recounts the items without a threshold of their own
+        assertSummaryMatchesItems(25);
+        assertSummaryMatchesItems(0);
+    }
+
+    private void assertSummaryMatchesItems(int defaultThreshold) {
+        InventorySummary expected = InventorySummary.EMPTY;
+        for (InventoryItem item : store.getInventoryItemsForUser(USER)) {
+            expected = new InventorySummary(expected.itemCount + 1,
+                    expected.totalUnits + item.getQuantity(),
+                    expected.outOfStockCount + (item.getQuantity() == 0 ? 1 : 0),
+                    expected.lowStockCount + (item.isLowStock(defaultThreshold) ? 1 : 0));
+        }
+        store.syncDefaultThreshold(defaultThreshold);
+        assertEquals(expected, store.getInventorySummary(USER));
+    }
+
+    @Test
+    public void insert_forUnregisteredUser_fails() {
+        assertFalse(store.insertInventoryItem("Bolts", 1, "nobody@test.com"));
+        assertEquals(-1, store.insertInventoryItems(items("Nuts"), "nobody@test.com")[0]);
+        assertEquals(InventorySummary.EMPTY, store.getInventorySummary("nobody@test.com"));
+    }
+
+    @Test
+    public void migrationToUserIds_keepsItemsHistoryAndIds() throws IOException, SQLException {
+        File file = File.createTempFile("inventory", ".db");
+        try {
+            // Version 11 still keys inventory by email
+            try (JdbcInventoryStore old = new JdbcInventoryStore(file.getPath(), 11)) {
+                assertTrue(old.insertUser(USER, "hash", null));
+                assertTrue(old.insertUser("other@test.com", "hash", null));
+            }
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO inventory(name, quantity, user_email) VALUES ('Bolts', 0, '" + USER + "'), ('Nuts', 7, '"
+                        + USER + "'), ('Pins', 3, 'other@test.com'), ('Lost', 5, 'gone@test.com')");
+                statement.execute("INSERT INTO quantity_history(item_id, delta, changed_at) VALUES (2, -3, 0)");
+            }
+
+            try (JdbcInventoryStore migrated = new JdbcInventoryStore(file.getPath())) {
+                List<InventoryItem> stored = migrated.getInventoryItemsForUser(USER);
+                assertEquals(2, stored.size());
+                assertEquals(2, stored.get(1).getId());
+                assertEquals(1, migrated.searchInventory("other@test.com", "pin", InventorySort.NAME).size());
+                assertEquals(new InventorySummary(2, 7, 1, 1), migrated.getInventorySummary(USER));
+                assertEquals(1, migrated.queryInt("SELECT COUNT(*) FROM quantity_history WHERE item_id = 2"));
+
+                // The item without an account is gone, but its id is still never reused
+                assertEquals(3, migrated.queryInt("SELECT COUNT(*) FROM inventory"));
+                assertTrue(migrated.insertInventoryItem("Washers", 1, USER));
+                assertEquals(5, migrated.queryInt("SELECT MAX(id) FROM inventory"));
+                assertEquals(0, migrated.queryInt("SELECT COUNT(*) FROM sqlite_master WHERE sql LIKE '%user_email%'"));
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void summaryMigration_countsNullQuantitiesAsNothing() throws IOException, SQLException {
+        File file = File.createTempFile("inventory", ".db");
+        try {
+            // Version 10 has no summary table yet, and quantity has always been nullable
+            try (JdbcInventoryStore old = new JdbcInventoryStore(file.getPath(), 10)) {
+                assertTrue(old.insertUser(USER, "hash", null));
+                assertTrue(old.insertUser("other@test.com", "hash", null));
+            }
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("INSERT INTO inventory(name, quantity, user_email) VALUES ('Unknown', NULL, '" + USER + "'), ('Missing', NULL, '"
+                        + USER + "'), ('Pins', NULL, 'other@test.com'), ('Nuts', 0, 'other@test.com')");
+            }
+
+            try (JdbcInventoryStore migrated = new JdbcInventoryStore(file.getPath())) {
+                assertEquals(new InventorySummary(2, 0, 0, 0), migrated.getInventorySummary(USER));
+                assertEquals(new InventorySummary(2, 0, 1, 1), migrated.getInventorySummary("other@test.com"));
+            }
+
+            // The triggers treat NULL rows the same way when they change
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("UPDATE inventory SET quantity = NULL WHERE name = 'Nuts'");
+                statement.execute("DELETE FROM inventory WHERE name = 'Unknown'");
+            }
+            try (JdbcInventoryStore migrated = new JdbcInventoryStore(file.getPath())) {
+                assertEquals(new InventorySummary(1, 0, 0, 0), migrated.getInventorySummary(USER));
+                assertEquals(new InventorySummary(2, 0, 0, 0), migrated.getInventorySummary("other@test.com"));
+            }
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void csv_exportThenImport_copiesInventory() throws IOException {
+        store.insertInventoryItems(generated(5_000, 11), USER);
+        store.insertUser("copy@test.com", "hash", null);
+        StringWriter csv = new StringWriter();
+
+        int exported = InventoryCsv.exportTo(csv,
+                (after, limit) -> store.getInventoryPage(USER, InventorySort.NAME, after, limit), 700);
+        InventoryCsv.ImportResult result = InventoryCsv.importFrom(new StringReader(csv.toString()),
+                chunk -> store.insertInventoryItems(chunk, "copy@test.com"), InventoryCsv.CHUNK_SIZE, null);
+
+        assertEquals(5_000, exported);
+        assertEquals(5_000, result.imported);
+        List<InventoryItem> original = store.getInventoryItemsForUser(USER, InventorySort.NAME);
+        List<InventoryItem> copy = store.getInventoryItemsForUser("copy@test.com", InventorySort.NAME);
+        for (int i = 0; i < original.size(); i++) {
+            assertEquals(original.get(i).getName(), copy.get(i).getName());
+            assertEquals(original.get(i).getQuantity(), copy.get(i).getQuantity());
+            assertEquals(original.get(i).getReorderThreshold(), copy.get(i).getReorderThreshold());
+        }
+    }
+
+    // A third of the items carry their own threshold, the rest use the default
+    private static List<InventoryItem> generated(int size, long seed) {
+        Random random = new Random(seed);
+        List<InventoryItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int threshold = random.nextInt(3) == 0 ? random.nextInt(20) : InventoryItem.NO_THRESHOLD;
+            items.add(new InventoryItem(0, "Item " + random.nextInt(size), random.nextInt(100), threshold));
+        }
+        return items;
+    }
+
+    private static List<InventoryItem> items(String... names) {
+        List<InventoryItem> items = new ArrayList<>();
+        for (String name : names) {
+            items.add(new InventoryItem(0, name, 1));
+        }
+        return items;
+    }
+}
@@ -15,4 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Inventory"
 include(":app")
+include(":benchmarks")
  
\ No newline at end of file